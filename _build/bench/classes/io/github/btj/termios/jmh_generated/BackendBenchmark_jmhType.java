@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class BackendBenchmark_jmhType extends BackendBenchmark_jmhType_B3 {
+}
+
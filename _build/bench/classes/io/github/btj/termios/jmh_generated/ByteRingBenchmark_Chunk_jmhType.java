@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class ByteRingBenchmark_Chunk_jmhType extends ByteRingBenchmark_Chunk_jmhType_B3 {
+}
+
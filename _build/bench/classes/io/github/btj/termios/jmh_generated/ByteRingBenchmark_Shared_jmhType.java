@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class ByteRingBenchmark_Shared_jmhType extends ByteRingBenchmark_Shared_jmhType_B3 {
+}
+
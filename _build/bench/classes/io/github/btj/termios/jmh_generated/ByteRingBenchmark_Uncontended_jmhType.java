@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class ByteRingBenchmark_Uncontended_jmhType extends ByteRingBenchmark_Uncontended_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class ByteRingBenchmark_jmhType extends ByteRingBenchmark_jmhType_B3 {
+}
+
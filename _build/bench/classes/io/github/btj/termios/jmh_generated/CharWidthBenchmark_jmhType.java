@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class CharWidthBenchmark_jmhType extends CharWidthBenchmark_jmhType_B3 {
+}
+
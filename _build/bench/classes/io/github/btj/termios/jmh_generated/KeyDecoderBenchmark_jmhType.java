@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class KeyDecoderBenchmark_jmhType extends KeyDecoderBenchmark_jmhType_B3 {
+}
+
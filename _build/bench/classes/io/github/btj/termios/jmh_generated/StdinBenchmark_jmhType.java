@@ -0,0 +1,4 @@
+package io.github.btj.termios.jmh_generated;
+public class StdinBenchmark_jmhType extends StdinBenchmark_jmhType_B3 {
+}
+
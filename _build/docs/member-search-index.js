@@ -0,0 +1 @@
+memberSearchIndex = [{"p":"io.github.btj.termios","c":"Terminal","l":"addResizeListener(Runnable)","u":"addResizeListener(java.lang.Runnable)"},{"p":"io.github.btj.termios","c":"Terminal","l":"beginFrame()"},{"p":"io.github.btj.termios","c":"InputPublisher.OverflowPolicy","l":"BLOCK"},{"p":"io.github.btj.termios","c":"Screen","l":"clear()"},{"p":"io.github.btj.termios","c":"Terminal","l":"clearInputListener()"},{"p":"io.github.btj.termios","c":"Frame","l":"clearScreen()"},{"p":"io.github.btj.termios","c":"Terminal","l":"clearScreen()"},{"p":"io.github.btj.termios","c":"Frame","l":"close()"},{"p":"io.github.btj.termios","c":"InputSubscription","l":"close()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"codePoint(long)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"decode(byte[], int, int, LongConsumer)","u":"decode(byte[],int,int,java.util.function.LongConsumer)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"decode(int, LongConsumer)","u":"decode(int,java.util.function.LongConsumer)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"DEFAULT_ESCAPE_TIMEOUT_NANOS"},{"p":"io.github.btj.termios","c":"InputPublisher.OverflowPolicy","l":"DROP_OLDEST"},{"p":"io.github.btj.termios","c":"Terminal","l":"enterRawInputMode()"},{"p":"io.github.btj.termios","c":"TerminalSize","l":"equals(Object)","u":"equals(java.lang.Object)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"finalByte(long)"},{"p":"io.github.btj.termios","c":"Screen","l":"flush()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"flush(LongConsumer)","u":"flush(java.util.function.LongConsumer)"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"getBufferedBytes()"},{"p":"io.github.btj.termios","c":"Screen","l":"getBytesWritten()"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"getCapacity()"},{"p":"io.github.btj.termios","c":"Screen","l":"getCell(int, int)","u":"getCell(int,int)"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"getDroppedBytes()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"getEscapeTimeoutNanos()"},{"p":"io.github.btj.termios","c":"Screen","l":"getHeight()"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"getHighWaterMark()"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"getOverflowPolicy()"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"getRingHighWaterMark()"},{"p":"io.github.btj.termios","c":"Terminal","l":"getSize()"},{"p":"io.github.btj.termios","c":"Screen","l":"getWidth()"},{"p":"io.github.btj.termios","c":"InputPublisher.OverflowPolicy","l":"GROW"},{"p":"io.github.btj.termios","c":"TerminalSize","l":"hashCode()"},{"p":"io.github.btj.termios","c":"TerminalSize","l":"height()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"height(long)"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"InputPublisher(Executor, InputPublisher.OverflowPolicy, int)","u":"%3Cinit%3E(java.util.concurrent.Executor,io.github.btj.termios.InputPublisher.OverflowPolicy,int)"},{"p":"io.github.btj.termios","c":"Screen","l":"invalidate()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"isPending()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_BACKTAB"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_BEGIN"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_DELETE"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_DOWN"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_END"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_ESCAPE"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_F1"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_HOME"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_INSERT"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_LEFT"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_PAGE_DOWN"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_PAGE_UP"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_RIGHT"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KEY_UP"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"key(long)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"KeyDecoder()","u":"%3Cinit%3E()"},{"p":"io.github.btj.termios","c":"Terminal","l":"leaveRawInputMode()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"MOD_ALT"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"MOD_CTRL"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"MOD_META"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"MOD_SHIFT"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"modifiers(long)"},{"p":"io.github.btj.termios","c":"Frame","l":"moveCursor(int, int)","u":"moveCursor(int,int)"},{"p":"io.github.btj.termios","c":"Terminal","l":"moveCursor(int, int)","u":"moveCursor(int,int)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"NONE"},{"p":"io.github.btj.termios","c":"Frame","l":"printText(int, int, char[], int, int)","u":"printText(int,int,char[],int,int)"},{"p":"io.github.btj.termios","c":"Terminal","l":"printText(int, int, char[], int, int)","u":"printText(int,int,char[],int,int)"},{"p":"io.github.btj.termios","c":"Frame","l":"printText(int, int, CharSequence, int, int)","u":"printText(int,int,java.lang.CharSequence,int,int)"},{"p":"io.github.btj.termios","c":"Terminal","l":"printText(int, int, CharSequence, int, int)","u":"printText(int,int,java.lang.CharSequence,int,int)"},{"p":"io.github.btj.termios","c":"Frame","l":"printText(int, int, String)","u":"printText(int,int,java.lang.String)"},{"p":"io.github.btj.termios","c":"Terminal","l":"printText(int, int, String)","u":"printText(int,int,java.lang.String)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readByte()"},{"p":"io.github.btj.termios","c":"Terminal","l":"readByte(Duration)","u":"readByte(java.time.Duration)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readByte(long)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readByteNanos(long)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readBytes(byte[], int, int)","u":"readBytes(byte[],int,int)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readBytes(byte[], int, int, long)","u":"readBytes(byte[],int,int,long)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readBytes(ByteBuffer)","u":"readBytes(java.nio.ByteBuffer)"},{"p":"io.github.btj.termios","c":"Terminal","l":"readBytes(ByteBuffer, long)","u":"readBytes(java.nio.ByteBuffer,long)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"readEvent()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"readEventNanos(long)"},{"p":"io.github.btj.termios","c":"Terminal","l":"removeResizeListener(Runnable)","u":"removeResizeListener(java.lang.Runnable)"},{"p":"io.github.btj.termios","c":"Frame","l":"reportTextAreaSize()"},{"p":"io.github.btj.termios","c":"Terminal","l":"reportTextAreaSize()"},{"p":"io.github.btj.termios","c":"Screen","l":"Screen(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"io.github.btj.termios","c":"Screen","l":"Screen(int, int, OutputStream)","u":"%3Cinit%3E(int,int,java.io.OutputStream)"},{"p":"io.github.btj.termios","c":"Screen","l":"setCell(int, int, char)","u":"setCell(int,int,char)"},{"p":"io.github.btj.termios","c":"Screen","l":"setCursor(int, int)","u":"setCursor(int,int)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"setEscapeTimeout(Duration)","u":"setEscapeTimeout(java.time.Duration)"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"setEscapeTimeoutNanos(long)"},{"p":"io.github.btj.termios","c":"Terminal","l":"setInputListener(Runnable)","u":"setInputListener(java.lang.Runnable)"},{"p":"io.github.btj.termios","c":"Terminal","l":"subscribe(Executor, Consumer<ByteBuffer>)","u":"subscribe(java.util.concurrent.Executor,java.util.function.Consumer)"},{"p":"io.github.btj.termios","c":"InputPublisher","l":"subscribe(Flow.Subscriber<? super ByteBuffer>)","u":"subscribe(java.util.concurrent.Flow.Subscriber)"},{"p":"io.github.btj.termios","c":"TerminalSize","l":"TerminalSize(int, int)","u":"%3Cinit%3E(int,int)"},{"p":"io.github.btj.termios","c":"TerminalSize","l":"toString()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"TYPE_CHAR"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"TYPE_KEY"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"TYPE_TEXT_AREA_SIZE"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"TYPE_UNKNOWN_SEQUENCE"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"type(long)"},{"p":"io.github.btj.termios","c":"InputPublisher.OverflowPolicy","l":"valueOf(String)","u":"valueOf(java.lang.String)"},{"p":"io.github.btj.termios","c":"InputPublisher.OverflowPolicy","l":"values()"},{"p":"io.github.btj.termios","c":"TerminalSize","l":"width()"},{"p":"io.github.btj.termios","c":"KeyDecoder","l":"width(long)"},{"p":"io.github.btj.termios","c":"Screen","l":"writeString(int, int, String)","u":"writeString(int,int,java.lang.String)"}];updateSearchResults();
\ No newline at end of file
@@ -0,0 +1 @@
+packageSearchIndex = [{"l":"All Packages","u":"allpackages-index.html"},{"l":"io.github.btj.termios"}];updateSearchResults();
\ No newline at end of file
@@ -0,0 +1 @@
+typeSearchIndex = [{"l":"All Classes and Interfaces","u":"allclasses-index.html"},{"p":"io.github.btj.termios","l":"Frame"},{"p":"io.github.btj.termios","l":"InputPublisher"},{"p":"io.github.btj.termios","l":"InputSubscription"},{"p":"io.github.btj.termios","l":"KeyDecoder"},{"p":"io.github.btj.termios","l":"InputPublisher.OverflowPolicy"},{"p":"io.github.btj.termios","l":"Screen"},{"p":"io.github.btj.termios","l":"Terminal"},{"p":"io.github.btj.termios","l":"TerminalSize"}];updateSearchResults();
\ No newline at end of file
@@ -0,0 +1,119 @@
+/* DO NOT EDIT THIS FILE - it is machine generated */
+#include <jni.h>
+/* Header for class io_github_btj_termios_Terminal */
+
+#ifndef _Included_io_github_btj_termios_Terminal
+#define _Included_io_github_btj_termios_Terminal
+#ifdef __cplusplus
+extern "C" {
+#endif
+#undef io_github_btj_termios_Terminal_TERMIOS_SIZE
+#define io_github_btj_termios_Terminal_TERMIOS_SIZE 256L
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    enterRawInputMode0
+ * Signature: (I[B)V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_enterRawInputMode0
+  (JNIEnv *, jclass, jint, jbyteArray);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    pollRead
+ * Signature: (I[BIIJ)I
+ */
+JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_pollRead
+  (JNIEnv *, jclass, jint, jbyteArray, jint, jint, jlong);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    leaveRawInputMode0
+ * Signature: (I[B)V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_leaveRawInputMode0
+  (JNIEnv *, jclass, jint, jbyteArray);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    queryTextAreaSize
+ * Signature: (II)J
+ */
+JNIEXPORT jlong JNICALL Java_io_github_btj_termios_Terminal_queryTextAreaSize
+  (JNIEnv *, jclass, jint, jint);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    openTerminal
+ * Signature: (Ljava/lang/String;)I
+ */
+JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_openTerminal
+  (JNIEnv *, jclass, jstring);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    closeFileDescriptor
+ * Signature: (I)V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_closeFileDescriptor
+  (JNIEnv *, jclass, jint);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    write
+ * Signature: (ILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_write
+  (JNIEnv *, jclass, jint, jobject, jint, jint);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    createPoller
+ * Signature: ()I
+ */
+JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_createPoller
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    armPoller
+ * Signature: (II)V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_armPoller
+  (JNIEnv *, jclass, jint, jint);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    disarmPoller
+ * Signature: (II)V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_disarmPoller
+  (JNIEnv *, jclass, jint, jint);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    waitPoller
+ * Signature: (I[I)I
+ */
+JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_waitPoller
+  (JNIEnv *, jclass, jint, jintArray);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    installResizeHandler
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_installResizeHandler
+  (JNIEnv *, jclass);
+
+/*
+ * Class:     io_github_btj_termios_Terminal
+ * Method:    waitForResize
+ * Signature: ()V
+ */
+JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_waitForResize
+  (JNIEnv *, jclass);
+
+#ifdef __cplusplus
+}
+#endif
+#endif
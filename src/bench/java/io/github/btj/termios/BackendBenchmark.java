@@ -0,0 +1,50 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost per call of the JNI backend and the FFM backend, using a pollRead that does not wait.
+ * <code>make bench</code> redirects standard input from /dev/null, so each call returns -1 at once.
+ * The FFM backend requires Java 22 and a library built with JDK 22 or later, so <code>make bench</code> measures it only then;
+ * elsewhere, asking for it with <code>-p backend=ffm</code> makes its runs fail in setup.
+ * The text area size query is not measured, since the forked benchmark JVM has no terminal.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--enable-native-access=ALL-UNNAMED")
+@State(Scope.Thread)
+public class BackendBenchmark {
+
+    @Param({"jni", "ffm"})
+    public String backend;
+
+    NativeBackend nativeBackend;
+    byte[] bytes = new byte[16];
+
+    @Setup
+    public void setUp() {
+        nativeBackend = backend.equals("jni") ? new JniBackend() : NativeBackend.ffm(true);
+        if (nativeBackend == null)
+            throw new IllegalStateException("The FFM backend is not available");
+    }
+
+    @Benchmark
+    public int pollRead() throws java.io.IOException {
+        return nativeBackend.pollRead(bytes, 0, bytes.length, 0);
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the ring that hands bytes from the standard input pump thread to the reading thread.
+ *
+ * The uncontended benchmarks put and take on a single thread. In the {@code producerThread} group,
+ * a producer thread puts chunks while a consumer thread takes them; the consumer's score is the throughput.
+ * Neither thread ever blocks indefinitely, so that the group can stop at the end of each iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteRingBenchmark {
+
+    static final int CHUNK_SIZE = 64;
+    static final long TIMEOUT_NANOS = 1_000_000;
+
+    @State(Scope.Thread)
+    public static class Uncontended {
+        final ByteRing ring = new ByteRing();
+        final byte[] chunk = new byte[CHUNK_SIZE];
+        final byte[] target = new byte[CHUNK_SIZE];
+    }
+
+    @State(Scope.Group)
+    public static class Shared {
+        final ByteRing ring = new ByteRing();
+    }
+
+    @State(Scope.Thread)
+    public static class Chunk {
+        final byte[] bytes = new byte[CHUNK_SIZE];
+    }
+
+    /** Puts a chunk and takes it back in bulk. */
+    @Benchmark
+    public int putTakeChunk(Uncontended state) throws Exception {
+        state.ring.put(state.chunk, 0, CHUNK_SIZE);
+        int total = 0;
+        while (total < CHUNK_SIZE)
+            total += state.ring.take(state.target, total, CHUNK_SIZE - total, 0);
+        return total;
+    }
+
+    /** Puts a chunk and takes it back one byte at a time, the way {@link Terminal#readByte(long)} does. */
+    @Benchmark
+    public int putTakeBytesWithDeadline(Uncontended state) throws Exception {
+        state.ring.put(state.chunk, 0, CHUNK_SIZE);
+        long deadline = System.currentTimeMillis() + 1000;
+        int sum = 0;
+        for (int i = 0; i < CHUNK_SIZE; i++)
+            sum += state.ring.take(Terminal.timeoutNanos(deadline));
+        return sum;
+    }
+
+    @Benchmark
+    @Group("producerThread")
+    @GroupThreads(1)
+    public void producer(Shared shared, Chunk chunk) throws InterruptedException {
+        // Only put when there is room, so that the producer never blocks after the consumer has stopped.
+        if (shared.ring.length() <= ByteRing.SIZE - CHUNK_SIZE)
+            shared.ring.put(chunk.bytes, 0, CHUNK_SIZE);
+        else
+            Thread.onSpinWait();
+    }
+
+    @Benchmark
+    @Group("producerThread")
+    @GroupThreads(1)
+    public int consumer(Shared shared, Chunk chunk) throws Exception {
+        try {
+            return shared.ring.take(chunk.bytes, 0, CHUNK_SIZE, TIMEOUT_NANOS);
+        } catch (TimeoutException e) {
+            return 0;
+        }
+    }
+
+}
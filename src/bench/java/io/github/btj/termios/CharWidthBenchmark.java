@@ -0,0 +1,76 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the column width lookup that printText and {@link Screen#writeString(int, int, String)} do for each character,
+ * using {@link CharWidth}'s two-level table, against a binary search over the code point ranges the table is built from.
+ * The score is the time to look up the width of every character of the text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CharWidthBenchmark {
+
+    @Param({"ascii", "cjk", "mixed"})
+    public String text;
+
+    int[] codePoints;
+
+    @Setup
+    public void setUp() {
+        String sample = switch (text) {
+            case "ascii" -> "Press q to quit; use the arrow keys to move the ball around the screen.";
+            case "cjk" -> "\u6309q\u9000\u51fa\uff1b\u4f7f\u7528\u65b9\u5411\u952e\u79fb\u52a8\u7403\u3002\ud55c\uad6d\uc5b4\u30c6\u30b9\u30c8";
+            default -> "Caf\u00e9 \u2014 \u4e2d\u6587 e\u0301t\u00e9 \ud83d\ude00 na\u00efve \u0645\u0631\u062d\u0628\u0627 \u0416\u0443\u043a";
+        };
+        codePoints = sample.codePoints().toArray();
+    }
+
+    /** Returns whether the given code point is in one of the given sorted, disjoint, inclusive ranges. */
+    static boolean inRanges(int[] ranges, int codePoint) {
+        int low = 0, high = ranges.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (codePoint < ranges[2 * middle])
+                high = middle - 1;
+            else if (ranges[2 * middle + 1] < codePoint)
+                low = middle + 1;
+            else
+                return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public int table() {
+        int columns = 0;
+        for (int codePoint : codePoints)
+            columns += CharWidth.of(codePoint);
+        return columns;
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        int columns = 0;
+        for (int codePoint : codePoints)
+            columns += inRanges(CharWidth.ZERO_WIDTH, codePoint) ? 0 : inRanges(CharWidth.WIDE, codePoint) ? 2 : 1;
+        return columns;
+    }
+
+}
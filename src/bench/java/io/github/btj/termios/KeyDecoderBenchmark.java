@@ -0,0 +1,63 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures decoding the same text arriving as a bracketed paste, which {@link KeyDecoder} copies in bulk into a single event,
+ * against arriving without the paste markers, which yields one event per character.
+ * The score is the time to decode the text, chunked as a read from standard input would return it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyDecoderBenchmark {
+
+    @Param({"65536"})
+    public int size;
+
+    KeyDecoder decoder = new KeyDecoder();
+    byte[] pasted;
+    byte[] typed;
+
+    @Setup
+    public void setUp() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < size)
+            text.append("for (int i = 0; i < n; i++)\r    sum += values[i]; // caf\u00e9\r");
+        text.setLength(size);
+        typed = text.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        pasted = ("\033[200~" + text + "\033[201~").getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    void decode(byte[] bytes, Blackhole blackhole) {
+        for (int offset = 0; offset < bytes.length; offset += 4096)
+            decoder.decode(bytes, offset, Math.min(4096, bytes.length - offset), blackhole::consume);
+    }
+
+    @Benchmark
+    public void pasted(Blackhole blackhole) {
+        decode(pasted, blackhole);
+    }
+
+    @Benchmark
+    public void typed(Blackhole blackhole) {
+        decode(typed, blackhole);
+    }
+
+}
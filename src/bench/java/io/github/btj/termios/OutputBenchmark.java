@@ -0,0 +1,119 @@
+package io.github.btj.termios;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the encoding of output into an {@link OutputBuffer}, which is what {@link Terminal#printText(int, int, String)}
+ * and {@link Terminal#moveCursor(int, int)} do before writing, and full-frame redraws.
+ * The output is written to a channel that discards it, so that only the library's own cost is measured.
+ * Run with {@code -prof gc} (as {@code make bench} does) to see the allocation rate, which should be zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OutputBenchmark {
+
+    /** A channel that accepts and discards all bytes. */
+    static final class NullChannel implements WritableByteChannel {
+        public int write(ByteBuffer source) {
+            int n = source.remaining();
+            source.position(source.limit());
+            return n;
+        }
+        public boolean isOpen() { return true; }
+        public void close() {}
+    }
+
+    @Param({"24x80", "80x300"})
+    public String size;
+
+    int height;
+    int width;
+    final OutputBuffer output = new OutputBuffer();
+    final NullChannel channel = new NullChannel();
+    final String text = "Press q to quit; use the arrow keys to move the ball";
+    final String unicodeText = "Appuyez sur q pour quitter \u2014 \u6309 q \u9000\u51fa \ud83d\ude00";
+    char[] cells;
+    Screen screen;
+    int frame;
+
+    @Setup
+    public void setUp() {
+        String[] parts = size.split("x");
+        height = Integer.parseInt(parts[0]);
+        width = Integer.parseInt(parts[1]);
+        cells = new char[height * width];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = (char)('a' + i % 26);
+        screen = new Screen(height, width, java.io.OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public int moveCursor() throws java.io.IOException {
+        output.putMoveCursor(height / 2, width / 2);
+        int n = output.length();
+        output.writeTo(channel);
+        return n;
+    }
+
+    @Benchmark
+    public int printText() throws java.io.IOException {
+        output.putMoveCursor(1, 1);
+        output.putAscii(text);
+        int n = output.length();
+        output.writeTo(channel);
+        return n;
+    }
+
+    /** Like {@link #printText()}, but for text with accented letters, CJK ideographs and an emoji, as printText encodes it. */
+    @Benchmark
+    public int printTextUtf8() throws java.io.IOException {
+        output.putMoveCursor(1, 1);
+        CharWidth.columns(unicodeText, 0, unicodeText.length());
+        output.putUtf8(unicodeText, 0, unicodeText.length());
+        int n = output.length();
+        output.writeTo(channel);
+        return n;
+    }
+
+    /** Redraws every row, the way {@code ScreenBuffer.flush} in TerminalTest does. */
+    @Benchmark
+    public int fullFrameRedraw() throws java.io.IOException {
+        for (int row = 0; row < height; row++) {
+            output.putMoveCursor(row + 1, 1);
+            output.putAscii(cells, row * width, width);
+        }
+        int n = output.length();
+        output.writeTo(channel);
+        return n;
+    }
+
+    /** Draws a frame in which one cell moved through a {@link Screen}, which writes only the cells that changed. */
+    @Benchmark
+    public long screenFlush() {
+        frame++;
+        screen.clear();
+        screen.writeString(0, 0, text);
+        screen.setCell(height / 2, frame % width, 'O');
+        screen.flush();
+        return screen.getBytesWritten();
+    }
+
+}
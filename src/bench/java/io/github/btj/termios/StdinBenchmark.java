@@ -0,0 +1,46 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Terminal#readByte(long)} with a deadline that has passed, as called by a game loop
+ * that checks for a key press once per frame. No input arrives in the forked benchmark JVM,
+ * so each call times out (or returns -1 if standard input is at its end).
+ * The cost of actually taking bytes is measured by {@link ByteRingBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class StdinBenchmark {
+
+    @Benchmark
+    public int readByteExpiredDeadline() throws Exception {
+        try {
+            return Terminal.readByte(0L);
+        } catch (TimeoutException e) {
+            return -2;
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dio.github.btj.termios.input=poll")
+    public int readByteExpiredDeadlinePollMode() throws Exception {
+        try {
+            return Terminal.readByte(0L);
+        } catch (TimeoutException e) {
+            return -2;
+        }
+    }
+
+}
@@ -1,3 +1,6 @@
+#ifdef __linux__
+    #define _GNU_SOURCE // For ppoll
+#endif
 #include <stdio.h>
 #include "io_github_btj_termios_Terminal.h"
 
@@ -9,7 +12,8 @@
     DWORD oldStdoutConsoleMode;
     HANDLE hStdout;
 
-    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_enterRawInputMode(JNIEnv *env, jclass class_) {
+    // The console is per process, so the file descriptor and the saved attributes are ignored.
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_enterRawInputMode0(JNIEnv *env, jclass class_, jint fd, jbyteArray savedAttributes) {
         hStdin = GetStdHandle(STD_INPUT_HANDLE);
         if (hStdin == INVALID_HANDLE_VALUE)
             (*env)->FatalError(env, "Couldn't get the stdin handle");
@@ -31,22 +35,145 @@
             (*env)->FatalError(env, "Couldn't set the stdout console mode. Is stdout not a console?");
     }
 
-    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_leaveRawInputMode(JNIEnv *env, jclass class_) {
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_leaveRawInputMode0(JNIEnv *env, jclass class_, jint fd, jbyteArray savedAttributes) {
         if (!SetConsoleMode(hStdin, oldStdinConsoleMode))
             (*env)->FatalError(env, "Couldn't restore the stdin console mode. Is stdin not a console?");
         if (!SetConsoleMode(hStdout, oldStdoutConsoleMode))
             (*env)->FatalError(env, "Couldn't restore the stdout console mode. Is stdout not a console?");
     }
 
+    static void throwUnsupported(JNIEnv *env, const char *message) {
+        jclass exceptionClass = (*env)->FindClass(env, "java/lang/UnsupportedOperationException");
+        if (exceptionClass != NULL)
+            (*env)->ThrowNew(env, exceptionClass, message);
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_pollRead(JNIEnv *env, jclass class_, jint fd, jbyteArray bytes, jint offset, jint count, jlong timeoutNanos) {
+        throwUnsupported(env, "Poll-based input is not supported on Windows");
+        return 0;
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_openTerminal(JNIEnv *env, jclass class_, jstring path) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+        return -1;
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_closeFileDescriptor(JNIEnv *env, jclass class_, jint fd) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_write(JNIEnv *env, jclass class_, jint fd, jobject buffer, jint position, jint limit) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+        return 0;
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_createPoller(JNIEnv *env, jclass class_) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+        return -1;
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_armPoller(JNIEnv *env, jclass class_, jint poller, jint fd) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_disarmPoller(JNIEnv *env, jclass class_, jint poller, jint fd) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_waitPoller(JNIEnv *env, jclass class_, jint poller, jintArray fds) {
+        throwUnsupported(env, "Terminal sessions other than the default one are not supported on Windows");
+        return 0;
+    }
+
+    static void throwIOException(JNIEnv *env, const char *message) {
+        jclass exceptionClass = (*env)->FindClass(env, "java/io/IOException");
+        if (exceptionClass != NULL)
+            (*env)->ThrowNew(env, exceptionClass, message);
+    }
+
+    static int getConsoleSize(COORD *size) {
+        CONSOLE_SCREEN_BUFFER_INFO info;
+        if (!GetConsoleScreenBufferInfo(GetStdHandle(STD_OUTPUT_HANDLE), &info))
+            return 0;
+        size->Y = info.srWindow.Bottom - info.srWindow.Top + 1;
+        size->X = info.srWindow.Right - info.srWindow.Left + 1;
+        return 1;
+    }
+
+    JNIEXPORT jlong JNICALL Java_io_github_btj_termios_Terminal_queryTextAreaSize(JNIEnv *env, jclass class_, jint outputFd, jint inputFd) {
+        COORD size;
+        if (!getConsoleSize(&size)) {
+            throwIOException(env, "Couldn't get the console screen buffer info. Is stdout not a console?");
+            return 0;
+        }
+        return (jlong)size.Y << 32 | size.X;
+    }
+
+    COORD lastConsoleSize;
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_installResizeHandler(JNIEnv *env, jclass class_) {
+        if (!getConsoleSize(&lastConsoleSize))
+            throwIOException(env, "Couldn't get the console screen buffer info. Is stdout not a console?");
+    }
+
+    // Windows has no SIGWINCH; poll the console window size instead.
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_waitForResize(JNIEnv *env, jclass class_) {
+        for (;;) {
+            Sleep(100);
+            COORD size;
+            if (!getConsoleSize(&size)) {
+                throwIOException(env, "Couldn't get the console screen buffer info. Is stdout not a console?");
+                return;
+            }
+            if (size.X != lastConsoleSize.X || size.Y != lastConsoleSize.Y) {
+                lastConsoleSize = size;
+                return;
+            }
+        }
+    }
+
 #else
 
     #include <termios.h>
+    #include <poll.h>
+    #include <unistd.h>
+    #include <errno.h>
+    #include <string.h>
+    #include <signal.h>
+    #include <fcntl.h>
+    #include <sys/ioctl.h>
+    #ifdef __linux__
+        #include <sys/epoll.h>
+    #else
+        #include <sys/types.h>
+        #include <sys/event.h>
+        #include <sys/time.h>
+    #endif
+
+    static void throwIOException(JNIEnv *env, int error) {
+        jclass exceptionClass = (*env)->FindClass(env, "java/io/IOException");
+        if (exceptionClass != NULL)
+            (*env)->ThrowNew(env, exceptionClass, strerror(error));
+    }
 
-    struct termios original_term;
+    /* Each session saves its terminal's original attributes in its own array, which must be large enough for a struct termios. */
+    static int checkAttributesArray(JNIEnv *env, jbyteArray savedAttributes) {
+        if ((*env)->GetArrayLength(env, savedAttributes) < (jsize)sizeof(struct termios)) {
+            (*env)->FatalError(env, "The array for the saved terminal attributes is too small");
+            return 0;
+        }
+        return 1;
+    }
 
-    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_enterRawInputMode(JNIEnv *env, jclass class_) {
-        if (tcgetattr(fileno(stdin), &original_term))
-            (*env)->FatalError(env, "Could not get the terminal attributes. Is stdin not a terminal?");
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_enterRawInputMode0(JNIEnv *env, jclass class_, jint fd, jbyteArray savedAttributes) {
+        if (!checkAttributesArray(env, savedAttributes))
+            return;
+        struct termios original_term;
+        if (tcgetattr(fd, &original_term)) {
+            throwIOException(env, errno);
+            return;
+        }
+        (*env)->SetByteArrayRegion(env, savedAttributes, 0, sizeof(original_term), (jbyte *)&original_term);
 
         struct termios raw = original_term;
 
@@ -71,13 +198,222 @@
         /* control chars - set return condition: min number of bytes and timer */
         raw.c_cc[VMIN] = 1; raw.c_cc[VTIME] = 0; /* immediate - anything       */
 
-        if (tcsetattr(fileno(stdin), TCSANOW, &raw))
-            (*env)->FatalError(env, "Could not set the terminal attributes. Is stdin not a terminal?");
+        if (tcsetattr(fd, TCSANOW, &raw))
+            throwIOException(env, errno);
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_leaveRawInputMode0(JNIEnv *env, jclass class_, jint fd, jbyteArray savedAttributes) {
+        if (!checkAttributesArray(env, savedAttributes))
+            return;
+        struct termios original_term;
+        (*env)->GetByteArrayRegion(env, savedAttributes, 0, sizeof(original_term), (jbyte *)&original_term);
+        if (tcsetattr(fd, TCSANOW, &original_term))
+            throwIOException(env, errno);
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_pollRead(JNIEnv *env, jclass class_, jint fd, jbyteArray bytes, jint offset, jint count, jlong timeoutNanos) {
+        struct pollfd pollfd = { .fd = fd, .events = POLLIN };
+    #ifdef __linux__
+        struct timespec timeout = { .tv_sec = timeoutNanos / 1000000000, .tv_nsec = timeoutNanos % 1000000000 };
+        int result = ppoll(&pollfd, 1, timeoutNanos < 0 ? NULL : &timeout, NULL);
+    #else
+        // poll's timeout is in milliseconds; round up so that we do not return before the timeout elapsed.
+        int timeoutMillis = timeoutNanos < 0 ? -1 : timeoutNanos >= 2000000000000000LL ? 2000000000 : (int)((timeoutNanos + 999999) / 1000000);
+        int result = poll(&pollfd, 1, timeoutMillis);
+    #endif
+        if (result < 0) {
+            if (errno != EINTR)
+                throwIOException(env, errno);
+            return 0;
+        }
+        if (result == 0)
+            return 0;
+
+        jbyte chunk[4096];
+        if (count > sizeof(chunk))
+            count = sizeof(chunk);
+        ssize_t n = read(fd, chunk, count);
+        if (n < 0) {
+            if (errno != EINTR && errno != EAGAIN)
+                throwIOException(env, errno);
+            return 0;
+        }
+        if (n == 0)
+            return -1; // End of file
+        (*env)->SetByteArrayRegion(env, bytes, offset, n, chunk);
+        return n;
+    }
+
+    JNIEXPORT jlong JNICALL Java_io_github_btj_termios_Terminal_queryTextAreaSize(JNIEnv *env, jclass class_, jint outputFd, jint inputFd) {
+        struct winsize size;
+        if (ioctl(outputFd, TIOCGWINSZ, &size) && ioctl(inputFd, TIOCGWINSZ, &size)) {
+            throwIOException(env, errno);
+            return 0;
+        }
+        return (jlong)size.ws_row << 32 | size.ws_col;
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_openTerminal(JNIEnv *env, jclass class_, jstring path) {
+        const char *chars = (*env)->GetStringUTFChars(env, path, NULL);
+        if (chars == NULL)
+            return -1;
+        // O_NOCTTY: a terminal opened by a server must not become the JVM's controlling terminal.
+        int fd = open(chars, O_RDWR | O_NOCTTY | O_CLOEXEC);
+        int error = errno;
+        (*env)->ReleaseStringUTFChars(env, path, chars);
+        if (fd < 0)
+            throwIOException(env, error);
+        return fd;
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_closeFileDescriptor(JNIEnv *env, jclass class_, jint fd) {
+        // Do not retry on EINTR: on Linux, the descriptor is closed anyway.
+        if (close(fd) && errno != EINTR)
+            throwIOException(env, errno);
+    }
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_write(JNIEnv *env, jclass class_, jint fd, jobject buffer, jint position, jint limit) {
+        char *address = (*env)->GetDirectBufferAddress(env, buffer);
+        if (address == NULL) {
+            (*env)->FatalError(env, "Not a direct buffer");
+            return 0;
+        }
+        for (;;) {
+            ssize_t n = write(fd, address + position, limit - position);
+            if (n >= 0)
+                return n;
+            if (errno == EINTR)
+                continue;
+            if (errno == EAGAIN || errno == EWOULDBLOCK) {
+                // Someone else made the descriptor non-blocking; wait until it accepts output.
+                struct pollfd pollfd = { .fd = fd, .events = POLLOUT };
+                poll(&pollfd, 1, -1);
+                continue;
+            }
+            throwIOException(env, errno);
+            return 0;
+        }
+    }
+
+    /* A poller waits for any of a set of file descriptors to become readable, using epoll on Linux and kqueue elsewhere.
+       Each descriptor is armed for a single notification, after which it must be armed again. */
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_createPoller(JNIEnv *env, jclass class_) {
+    #ifdef __linux__
+        int poller = epoll_create1(EPOLL_CLOEXEC);
+    #else
+        int poller = kqueue();
+    #endif
+        if (poller < 0)
+            throwIOException(env, errno);
+        return poller;
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_armPoller(JNIEnv *env, jclass class_, jint poller, jint fd) {
+    #ifdef __linux__
+        struct epoll_event event = { .events = EPOLLIN | EPOLLONESHOT, .data.fd = fd };
+        if (epoll_ctl(poller, EPOLL_CTL_MOD, fd, &event) && (errno != ENOENT || epoll_ctl(poller, EPOLL_CTL_ADD, fd, &event)))
+            throwIOException(env, errno);
+    #else
+        struct kevent change;
+        EV_SET(&change, fd, EVFILT_READ, EV_ADD | EV_ONESHOT, 0, 0, NULL);
+        if (kevent(poller, &change, 1, NULL, 0, NULL) < 0)
+            throwIOException(env, errno);
+    #endif
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_disarmPoller(JNIEnv *env, jclass class_, jint poller, jint fd) {
+        // Failure means that the descriptor was not armed, which is fine.
+    #ifdef __linux__
+        struct epoll_event event;
+        epoll_ctl(poller, EPOLL_CTL_DEL, fd, &event);
+    #else
+        struct kevent change;
+        EV_SET(&change, fd, EVFILT_READ, EV_DELETE, 0, 0, NULL);
+        kevent(poller, &change, 1, NULL, 0, NULL);
+    #endif
+    }
+
+    #define MAX_POLLER_EVENTS 256
+
+    JNIEXPORT jint JNICALL Java_io_github_btj_termios_Terminal_waitPoller(JNIEnv *env, jclass class_, jint poller, jintArray fds) {
+        jint ready[MAX_POLLER_EVENTS];
+        int max = (*env)->GetArrayLength(env, fds);
+        if (max > MAX_POLLER_EVENTS)
+            max = MAX_POLLER_EVENTS;
+    #ifdef __linux__
+        struct epoll_event events[MAX_POLLER_EVENTS];
+        int n = epoll_wait(poller, events, max, -1);
+    #else
+        struct kevent events[MAX_POLLER_EVENTS];
+        int n = kevent(poller, NULL, 0, events, max, NULL);
+    #endif
+        if (n < 0) {
+            if (errno != EINTR)
+                throwIOException(env, errno);
+            return 0;
+        }
+        for (int i = 0; i < n; i++) {
+    #ifdef __linux__
+            ready[i] = events[i].data.fd;
+    #else
+            ready[i] = (jint)events[i].ident;
+    #endif
+        }
+        (*env)->SetIntArrayRegion(env, fds, 0, n, ready);
+        return n;
+    }
+
+    /* The SIGWINCH handler writes a byte to this pipe; waitForResize reads from it. */
+    int resizePipe[2] = {-1, -1};
+    struct sigaction previousResizeAction;
+
+    static void handleResize(int signal, siginfo_t *info, void *context) {
+        int savedErrno = errno;
+        char c = 0;
+        write(resizePipe[1], &c, 1); // Non-blocking; if the pipe is full, a notification is pending anyway.
+        errno = savedErrno;
+        if (previousResizeAction.sa_flags & SA_SIGINFO)
+            previousResizeAction.sa_sigaction(signal, info, context);
+        else if (previousResizeAction.sa_handler != SIG_DFL && previousResizeAction.sa_handler != SIG_IGN)
+            previousResizeAction.sa_handler(signal);
+    }
+
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_installResizeHandler(JNIEnv *env, jclass class_) {
+        if (resizePipe[0] >= 0)
+            return;
+        if (pipe(resizePipe)) {
+            throwIOException(env, errno);
+            return;
+        }
+        fcntl(resizePipe[0], F_SETFD, FD_CLOEXEC);
+        fcntl(resizePipe[1], F_SETFD, FD_CLOEXEC);
+        fcntl(resizePipe[1], F_SETFL, fcntl(resizePipe[1], F_GETFL) | O_NONBLOCK);
+
+        struct sigaction action;
+        memset(&action, 0, sizeof(action));
+        action.sa_sigaction = handleResize;
+        action.sa_flags = SA_SIGINFO | SA_RESTART;
+        sigemptyset(&action.sa_mask);
+        if (sigaction(SIGWINCH, &action, &previousResizeAction))
+            throwIOException(env, errno);
     }
 
-    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_leaveRawInputMode(JNIEnv *env, jclass class_) {
-        if (tcsetattr(fileno(stdin), TCSANOW, &original_term))
-            (*env)->FatalError(env, "Could not set the terminal attributes. Is stdin not a terminal?");
+    JNIEXPORT void JNICALL Java_io_github_btj_termios_Terminal_waitForResize(JNIEnv *env, jclass class_) {
+        char buffer[64];
+        for (;;) {
+            ssize_t n = read(resizePipe[0], buffer, sizeof(buffer));
+            if (n > 0)
+                break;
+            if (n < 0 && errno == EINTR)
+                continue;
+            throwIOException(env, n < 0 ? errno : EPIPE);
+            return;
+        }
+        // Coalesce notifications of resizes that happened in quick succession.
+        struct pollfd pollfd = { .fd = resizePipe[0], .events = POLLIN };
+        while (poll(&pollfd, 1, 0) > 0 && read(resizePipe[0], buffer, sizeof(buffer)) > 0)
+            ;
     }
 
 #endif
@@ -0,0 +1,208 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A lock-free single-producer, single-consumer ring of bytes.
+ *
+ * The producer only writes {@code tail} and the consumer only writes {@code head};
+ * each publishes its index with release semantics and reads the other's with acquire semantics.
+ * A thread parks only when the ring is empty (consumer) or full (producer).
+ * At most one thread may put and at most one thread may take at any given time.
+ */
+class ByteRing {
+    private static final int SIZE_BITS = 14;
+    static final int SIZE = 1 << SIZE_BITS;
+    private static final int SIZE_MASK = SIZE - 1;
+    /**
+     * A parked producer is woken only once this much room is available,
+     * so that a consumer taking one byte at a time does not wake it for every byte.
+     */
+    private static final int PRODUCER_WAKEUP_ROOM = SIZE / 4;
+
+    private static final java.lang.invoke.VarHandle HEAD;
+    private static final java.lang.invoke.VarHandle TAIL;
+
+    static {
+        try {
+            java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(ByteRing.class, "head", long.class);
+            TAIL = lookup.findVarHandle(ByteRing.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final byte[] buffer = new byte[SIZE];
+    /** Index of the next byte to take. Written by the consumer only. */
+    private long head;
+    /** Index of the next byte to put. Written by the producer only. */
+    private long tail;
+    private volatile Thread waitingConsumer;
+    private volatile Thread waitingProducer;
+    private volatile boolean closed;
+    private volatile Throwable poison;
+    /** The largest number of bytes that were in the ring at once. Written by the producer only. */
+    private volatile int highWaterMark;
+
+    public int length() { return (int)((long)TAIL.getAcquire(this) - (long)HEAD.getAcquire(this)); }
+
+    /**
+     * Returns true if a take would not block: bytes are available, or the ring was closed or poisoned.
+     */
+    public boolean isReady() { return length() > 0 || closed || poison != null; }
+
+    public int highWaterMark() { return highWaterMark; }
+
+    /**
+     * Puts the given bytes, waiting for room as necessary.
+     * A waiting consumer is woken once per batch of bytes that fits rather than once per byte.
+     */
+    public void put(byte[] elements, int offset, int count) throws InterruptedException {
+        long t = tail;
+        while (count > 0) {
+            int free = SIZE - (int)(t - (long)HEAD.getAcquire(this));
+            if (free == 0) {
+                awaitRoom(t);
+                continue;
+            }
+            int n = Math.min(count, free);
+            int index = (int)t & SIZE_MASK;
+            int firstPart = Math.min(n, SIZE - index);
+            System.arraycopy(elements, offset, buffer, index, firstPart);
+            System.arraycopy(elements, offset + firstPart, buffer, 0, n - firstPart);
+            t += n;
+            offset += n;
+            count -= n;
+            TAIL.setRelease(this, t);
+            int used = (int)(t - (long)HEAD.getAcquire(this));
+            if (used > highWaterMark)
+                highWaterMark = used;
+            // Pairs with the fence in awaitElement so that either we see the waiting consumer or it sees the new tail.
+            java.lang.invoke.VarHandle.fullFence();
+            Thread consumer = waitingConsumer;
+            if (consumer != null)
+                java.util.concurrent.locks.LockSupport.unpark(consumer);
+        }
+    }
+
+    private void awaitRoom(long t) throws InterruptedException {
+        long start = Metrics.blockStart();
+        waitingProducer = Thread.currentThread();
+        java.lang.invoke.VarHandle.fullFence();
+        if (SIZE - (int)(t - (long)HEAD.getAcquire(this)) < PRODUCER_WAKEUP_ROOM)
+            java.util.concurrent.locks.LockSupport.park(this);
+        waitingProducer = null;
+        Metrics.producerBlocked(start);
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+
+    /**
+     * Marks the end of the stream. Once the ring is drained, takes return -1.
+     */
+    public void close() {
+        closed = true;
+        java.util.concurrent.locks.LockSupport.unpark(waitingConsumer);
+    }
+
+    public void poison(Throwable poison) {
+        this.poison = poison;
+        java.util.concurrent.locks.LockSupport.unpark(waitingConsumer);
+    }
+
+    private void signalProducer(long h) {
+        // Pairs with the fence in awaitRoom.
+        java.lang.invoke.VarHandle.fullFence();
+        Thread producer = waitingProducer;
+        if (producer != null && SIZE - (int)((long)TAIL.getAcquire(this) - h) >= PRODUCER_WAKEUP_ROOM)
+            java.util.concurrent.locks.LockSupport.unpark(producer);
+    }
+
+    /**
+     * Waits at most the given number of nanoseconds ({@code Long.MAX_VALUE} means forever) until at least one byte
+     * is available and returns the number of available bytes, or returns -1 if the ring is empty and closed.
+     * The timeout is measured with {@link System#nanoTime()}, so it is not affected by changes to the system clock.
+     */
+    private int awaitElement(long timeoutNanos) throws InterruptedException, ByteRingPoison, TimeoutException {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? 0 : System.nanoTime() + timeoutNanos;
+        long h = head;
+        for (;;) {
+            int available = (int)((long)TAIL.getAcquire(this) - h);
+            if (available > 0)
+                return available;
+            if (poison != null)
+                throw new ByteRingPoison(poison);
+            if (closed) {
+                // The producer may have put bytes just before closing.
+                available = (int)((long)TAIL.getAcquire(this) - h);
+                return available > 0 ? available : -1;
+            }
+            long remaining = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+            if (remaining <= 0)
+                throw new TimeoutException();
+            waitingConsumer = Thread.currentThread();
+            java.lang.invoke.VarHandle.fullFence();
+            if ((long)TAIL.getAcquire(this) == h && poison == null && !closed) {
+                if (remaining == Long.MAX_VALUE)
+                    java.util.concurrent.locks.LockSupport.park(this);
+                else
+                    java.util.concurrent.locks.LockSupport.parkNanos(this, remaining);
+            }
+            waitingConsumer = null;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Takes one byte and returns it as an unsigned value, or returns -1 if the ring is empty and closed.
+     */
+    public int take(long timeoutNanos) throws InterruptedException, ByteRingPoison, TimeoutException {
+        if (awaitElement(timeoutNanos) < 0)
+            return -1;
+        long h = head;
+        int result = buffer[(int)h & SIZE_MASK] & 0xff;
+        HEAD.setRelease(this, h + 1);
+        signalProducer(h + 1);
+        return result;
+    }
+
+    /**
+     * Takes at least one and at most {@code count} bytes.
+     * Returns the number of bytes taken, or -1 if the ring is empty and closed.
+     */
+    public int take(byte[] elements, int offset, int count, long timeoutNanos) throws InterruptedException, ByteRingPoison, TimeoutException {
+        int available = awaitElement(timeoutNanos);
+        if (available < 0)
+            return -1;
+        int n = Math.min(count, available);
+        long h = head;
+        int index = (int)h & SIZE_MASK;
+        int firstPart = Math.min(n, SIZE - index);
+        System.arraycopy(buffer, index, elements, offset, firstPart);
+        System.arraycopy(buffer, 0, elements, offset + firstPart, n - firstPart);
+        HEAD.setRelease(this, h + n);
+        signalProducer(h + n);
+        return n;
+    }
+
+    /**
+     * Like {@link #take(byte[], int, int, long)}, but puts the bytes into the given buffer,
+     * up to its number of remaining bytes.
+     */
+    public int take(java.nio.ByteBuffer elements, long timeoutNanos) throws InterruptedException, ByteRingPoison, TimeoutException {
+        int available = awaitElement(timeoutNanos);
+        if (available < 0)
+            return -1;
+        int n = Math.min(elements.remaining(), available);
+        long h = head;
+        int index = (int)h & SIZE_MASK;
+        int firstPart = Math.min(n, SIZE - index);
+        elements.put(buffer, index, firstPart);
+        elements.put(buffer, 0, n - firstPart);
+        HEAD.setRelease(this, h + n);
+        signalProducer(h + n);
+        return n;
+    }
+}
@@ -0,0 +1,9 @@
+package io.github.btj.termios;
+
+class ByteRingPoison extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    ByteRingPoison(Throwable throwable) {
+        super(throwable);
+    }
+}
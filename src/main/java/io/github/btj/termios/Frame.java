@@ -0,0 +1,325 @@
+package io.github.btj.termios;
+
+/**
+ * A batch of output that is written to a session's terminal with a single write call when it is closed.
+ * Obtain one using {@link Terminal#beginFrame()} or {@link TerminalSession#beginFrame()}.
+ *
+ * The methods of this class take the same arguments as the corresponding methods of {@link Terminal},
+ * but encode the output into a reusable buffer instead of writing it immediately.
+ * Other output to the same session by the library while a frame is open in the current thread,
+ * such as that of {@link Screen#flush()}, is appended to the frame as well.
+ * Each session has its own frame, with its own lock, so that output to different sessions does not contend.
+ *
+ * Within a frame, the cursor's position is tracked, so that each cursor movement, including the one at the start of
+ * {@link #printText(int, int, String)}, is encoded as the shortest sequence from where the cursor is:
+ * for example a carriage return and a line feed to go to the start of the next row, or nothing to continue printing
+ * where the previous text ended. The first movement in a frame is absolute, since other output may have moved the cursor
+ * between frames. Where the cursor is after printing text is known only if the text area's width is known,
+ * that is, if the session's {@link TerminalSession#getSize()} was called and no resize was noticed since.
+ * Resizes are noticed only for the default session; for other sessions, call getSize again after a resize.
+ */
+public final class Frame implements AutoCloseable {
+
+    private final TerminalSession session;
+    /** Held while this frame is being built or written, so that output from different threads does not interleave. */
+    final java.util.concurrent.locks.ReentrantLock lock = new java.util.concurrent.locks.ReentrantLock();
+    /**
+     * The width of the session's text area as last returned by {@link TerminalSession#getSize()}, or 0 if unknown
+     * or if a resize was noticed since. Lets this frame know where the cursor is after printing text.
+     */
+    volatile int textAreaWidth;
+    /** True if a scroll region was set using this frame and not reset since, so that line feeds might scroll it. */
+    volatile boolean scrollRegionSet;
+    private final OutputBuffer output = new OutputBuffer();
+    /** The number of times the frame was begun but not yet closed. Accessed only while holding {@link #lock}. */
+    private int depth;
+    /** The cursor's position (1-based) as far as this frame knows, or 0 if unknown. Accessed only while holding {@link #lock}. */
+    private int cursorRow;
+    private int cursorColumn;
+    /** The text area's width at the start of this frame, or 0 if unknown. */
+    private int width;
+
+    Frame(TerminalSession session) {
+        this.session = session;
+    }
+
+    Frame begin() {
+        lock.lock();
+        if (depth++ == 0) {
+            cursorRow = cursorColumn = 0;
+            width = textAreaWidth;
+        }
+        return this;
+    }
+
+    private void checkOpen() {
+        if (!lock.isHeldByCurrentThread() || depth == 0)
+            throw new IllegalStateException("This frame is not open in the current thread");
+    }
+
+    /**
+     * If this frame is open in the current thread, which must hold {@link #lock}, appends the contents of the given buffer
+     * to it, clears the given buffer, and returns true.
+     */
+    boolean appendIfOpen(OutputBuffer buffer) {
+        if (depth == 0 || buffer == output)
+            return false;
+        output.moveFrom(buffer);
+        cursorRow = cursorColumn = 0;
+        return true;
+    }
+
+    /** Appends the sequence that begins a synchronized update (DEC private mode 2026): the terminal defers drawing until it ends. */
+    void beginSynchronizedUpdate() {
+        checkOpen();
+        output.putAscii("\033[?2026h");
+    }
+
+    /** Appends the sequence that ends a synchronized update. */
+    void endSynchronizedUpdate() {
+        checkOpen();
+        output.putAscii("\033[?2026l");
+    }
+
+    private void moveCursorTo(int row, int column) {
+        output.putMoveCursor(cursorRow, cursorColumn, row, column, !scrollRegionSet);
+        cursorRow = row;
+        cursorColumn = column;
+    }
+
+    /** Updates the cursor's position after printing text that occupies the given number of columns. */
+    private void advanceCursor(int columns) {
+        int column = cursorColumn + columns;
+        if (width == 0 || column > width + 1)
+            cursorRow = cursorColumn = 0; // The text may have wrapped.
+        else if (column == width + 1)
+            cursorColumn = 0; // The text ended in the last column, so the next character would wrap.
+        else
+            cursorColumn = column;
+    }
+
+    private static void checkRowAndColumn(int row, int column) {
+        if (row < 1)
+            throw new IllegalArgumentException("The given row is less than 1");
+        if (column < 1)
+            throw new IllegalArgumentException("The given column is less than 1");
+    }
+
+    /**
+     * Like {@link Terminal#reportTextAreaSize()}.
+     */
+    public void reportTextAreaSize() {
+        checkOpen();
+        output.putCsi();
+        output.putAscii("18t");
+    }
+
+    /**
+     * Like {@link Terminal#enableBracketedPaste()}.
+     */
+    public void enableBracketedPaste() {
+        checkOpen();
+        output.putCsi();
+        output.putAscii("?2004h");
+    }
+
+    /**
+     * Like {@link Terminal#disableBracketedPaste()}.
+     */
+    public void disableBracketedPaste() {
+        checkOpen();
+        output.putCsi();
+        output.putAscii("?2004l");
+    }
+
+    /**
+     * Like {@link Terminal#enableMouseTracking(MouseTracking)}.
+     */
+    public void enableMouseTracking(MouseTracking tracking) {
+        java.util.Objects.requireNonNull(tracking, "tracking");
+        checkOpen();
+        output.putCsi();
+        output.putAscii("?");
+        output.putDecimal(tracking.mode);
+        output.putAscii("h");
+        output.putCsi();
+        output.putAscii("?1006h");
+    }
+
+    /**
+     * Like {@link Terminal#disableMouseTracking()}.
+     */
+    public void disableMouseTracking() {
+        checkOpen();
+        output.putCsi();
+        output.putAscii("?1003l");
+        output.putCsi();
+        output.putAscii("?1002l");
+        output.putCsi();
+        output.putAscii("?1000l");
+        output.putCsi();
+        output.putAscii("?1006l");
+    }
+
+    /**
+     * Like {@link Terminal#clearScreen()}.
+     */
+    public void clearScreen() {
+        checkOpen();
+        output.putCsi();
+        output.putAscii("2J");
+        output.putCsi();
+        output.putAscii("3J");
+    }
+
+    /**
+     * Like {@link Terminal#moveCursor(int, int)}.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     */
+    public void moveCursor(int row, int column) {
+        checkOpen();
+        checkRowAndColumn(row, column);
+        moveCursorTo(row, column);
+    }
+
+    private static void checkCount(int count) {
+        if (count < 1)
+            throw new IllegalArgumentException("The given count is less than 1");
+    }
+
+    /**
+     * Like {@link Terminal#setScrollRegion(int, int)}.
+     *
+     * @throws IllegalArgumentException if the given top row is less than 1 or not less than the given bottom row.
+     */
+    public void setScrollRegion(int top, int bottom) {
+        checkOpen();
+        if (top < 1)
+            throw new IllegalArgumentException("The given top row is less than 1");
+        if (bottom <= top)
+            throw new IllegalArgumentException("The given bottom row is not greater than the given top row");
+        output.putScrollRegion(top, bottom);
+        scrollRegionSet = true;
+        cursorRow = cursorColumn = 1;
+    }
+
+    /**
+     * Like {@link Terminal#resetScrollRegion()}.
+     */
+    public void resetScrollRegion() {
+        checkOpen();
+        output.putCsi();
+        output.put('r');
+        scrollRegionSet = false;
+        cursorRow = cursorColumn = 1;
+    }
+
+    /**
+     * Like {@link Terminal#scrollUp(int)}.
+     *
+     * @throws IllegalArgumentException if the given number of lines is less than 1.
+     */
+    public void scrollUp(int lines) {
+        checkOpen();
+        checkCount(lines);
+        output.putCsi(lines, 'S');
+    }
+
+    /**
+     * Like {@link Terminal#scrollDown(int)}.
+     *
+     * @throws IllegalArgumentException if the given number of lines is less than 1.
+     */
+    public void scrollDown(int lines) {
+        checkOpen();
+        checkCount(lines);
+        output.putCsi(lines, 'T');
+    }
+
+    /**
+     * Like {@link Terminal#insertLines(int)}.
+     *
+     * @throws IllegalArgumentException if the given count is less than 1.
+     */
+    public void insertLines(int count) {
+        checkOpen();
+        checkCount(count);
+        output.putCsi(count, 'L');
+        cursorColumn = 0; // Some terminals move the cursor to the first column.
+    }
+
+    /**
+     * Like {@link Terminal#deleteLines(int)}.
+     *
+     * @throws IllegalArgumentException if the given count is less than 1.
+     */
+    public void deleteLines(int count) {
+        checkOpen();
+        checkCount(count);
+        output.putCsi(count, 'M');
+        cursorColumn = 0;
+    }
+
+    /**
+     * Like {@link Terminal#printText(int, int, String)}.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     */
+    public void printText(int row, int column, String text) {
+        printText(row, column, text, 0, text.length());
+    }
+
+    /**
+     * Like {@link Terminal#printText(int, int, CharSequence, int, int)}.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     * @throws IndexOutOfBoundsException if the given start and end do not denote a range within the given text.
+     */
+    public void printText(int row, int column, CharSequence text, int start, int end) {
+        checkOpen();
+        checkRowAndColumn(row, column);
+        java.util.Objects.checkFromToIndex(start, end, text.length());
+        int columns = CharWidth.columns(text, start, end);
+        moveCursorTo(row, column);
+        output.putUtf8(text, start, end);
+        advanceCursor(columns);
+    }
+
+    /**
+     * Like {@link Terminal#printText(int, int, char[], int, int)}.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public void printText(int row, int column, char[] text, int offset, int count) {
+        checkOpen();
+        checkRowAndColumn(row, column);
+        java.util.Objects.checkFromIndexSize(offset, count, text.length);
+        int columns = CharWidth.columns(text, offset, count);
+        moveCursorTo(row, column);
+        output.putUtf8(text, offset, count);
+        advanceCursor(columns);
+    }
+
+    /**
+     * Ends this frame. If this is the outermost frame, writes its output to the session's terminal with a single write call.
+     *
+     * @throws IllegalStateException if this frame is not open in the current thread.
+     * @throws java.io.UncheckedIOException if writing to the terminal fails.
+     */
+    @Override
+    public void close() {
+        checkOpen();
+        try {
+            if (--depth == 0)
+                session.writeNow(output);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package io.github.btj.termios;
+
+/**
+ * Paces the redrawing of the terminal: coalesces redraw requests into at most a given number of frames per second.
+ *
+ * Call {@link #requestFrame()} whenever the application's state changes, for example after each key press or timer tick.
+ * The renderer is then run on the given executor, as soon as the frame rate allows. Requests that arrive while a frame
+ * is pending are coalesced into it, so key repeat or bursts of events do not produce more frames than the terminal can show.
+ * The renderer is never run concurrently with itself, and a request that arrives while it runs causes one more frame.
+ *
+ * Each frame runs inside the {@link Frame} of the scheduler's session, so that all output of the renderer to that session,
+ * including that of {@link Screen#flush()} on a Screen that draws on it, is written with a single write call.
+ * The frame is wrapped in a synchronized update (DEC private mode 2026), so that terminals that support it
+ * show the whole frame at once, without tearing; other terminals ignore it.
+ *
+ * Example:
+ * <pre>
+ * FrameScheduler scheduler = new FrameScheduler(java.awt.EventQueue::invokeLater, 60, () -&gt; {
+ *     drawScreen();
+ *     screen.flush();
+ * });
+ * // In an event handler:
+ * ballRow++;
+ * scheduler.requestFrame();
+ * </pre>
+ */
+public final class FrameScheduler implements AutoCloseable {
+
+    /** Runs the delays between frames; the frames themselves run on the scheduler's executor. */
+    private static class Timer {
+        static final java.util.concurrent.ScheduledThreadPoolExecutor instance = new java.util.concurrent.ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread t = new Thread(null, runnable, "io.github.btj.termios.Frame scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    private final TerminalSession session;
+    private final java.util.concurrent.Executor executor;
+    private final long intervalNanos;
+    private final Runnable renderer;
+    private final Runnable renderTask = this::render;
+
+    // Guarded by this.
+    private boolean closed;
+    /** True if a frame was requested but has not started yet. */
+    private boolean pending;
+    private boolean rendering;
+    /** The time at which the pending frame was due: when it was requested, or when the frame rate first allowed it, whichever is later. */
+    private long dueTime;
+    /** The earliest time at which the next frame may start. */
+    private long nextFrameTime = System.nanoTime();
+    private long frameCount;
+    private long coalescedCount;
+    private long droppedCount;
+
+    /**
+     * Creates a scheduler that runs the given renderer on the given executor at most the given number of times per second,
+     * for the default session.
+     *
+     * @throws IllegalArgumentException if the given maximum frame rate is less than 1.
+     */
+    public FrameScheduler(java.util.concurrent.Executor executor, int maxFramesPerSecond, Runnable renderer) {
+        this(TerminalSession.getDefault(), executor, maxFramesPerSecond, renderer);
+    }
+
+    /**
+     * Creates a scheduler that runs the given renderer on the given executor at most the given number of times per second,
+     * inside frames of the given session.
+     *
+     * @throws IllegalArgumentException if the given maximum frame rate is less than 1.
+     */
+    public FrameScheduler(TerminalSession session, java.util.concurrent.Executor executor, int maxFramesPerSecond, Runnable renderer) {
+        java.util.Objects.requireNonNull(session);
+        java.util.Objects.requireNonNull(executor);
+        java.util.Objects.requireNonNull(renderer);
+        if (maxFramesPerSecond < 1)
+            throw new IllegalArgumentException("The given maximum frame rate is less than 1");
+        this.session = session;
+        this.executor = executor;
+        this.intervalNanos = 1_000_000_000L / maxFramesPerSecond;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Requests a frame. If a frame is pending already, this request is coalesced into it. Does nothing after {@link #close()}.
+     * May be called from any thread.
+     */
+    public void requestFrame() {
+        synchronized (this) {
+            if (closed)
+                return;
+            if (pending) {
+                coalescedCount++;
+                return;
+            }
+            pending = true;
+            dueTime = Math.max(System.nanoTime(), nextFrameTime);
+            if (rendering)
+                return; // Scheduled when the current frame is done.
+        }
+        schedule();
+    }
+
+    /** Submits the pending frame to the executor, after the delay that the frame rate requires. */
+    private void schedule() {
+        long delay;
+        synchronized (this) {
+            delay = dueTime - System.nanoTime();
+        }
+        try {
+            if (delay <= 0)
+                executor.execute(renderTask);
+            else
+                Timer.instance.schedule(() -> {
+                    try {
+                        executor.execute(renderTask);
+                    } catch (java.util.concurrent.RejectedExecutionException e) {
+                        close();
+                    }
+                }, delay, java.util.concurrent.TimeUnit.NANOSECONDS);
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            close();
+        }
+    }
+
+    private void render() {
+        synchronized (this) {
+            if (closed || !pending)
+                return;
+            pending = false;
+            rendering = true;
+            long now = System.nanoTime();
+            // Frame slots that passed while this frame waited for the previous one or for the executor.
+            droppedCount += (now - dueTime) / intervalNanos;
+            frameCount++;
+            nextFrameTime = now + intervalNanos;
+        }
+        try (Frame frame = session.beginFrame()) {
+            frame.beginSynchronizedUpdate();
+            try {
+                renderer.run();
+            } finally {
+                frame.endSynchronizedUpdate();
+            }
+        } finally {
+            // Even if the renderer threw an exception, render the frame requested in the meantime.
+            boolean again;
+            synchronized (this) {
+                rendering = false;
+                again = pending && !closed;
+            }
+            if (again)
+                schedule();
+        }
+    }
+
+    /** Returns the number of frames rendered so far. */
+    public synchronized long getFrameCount() { return frameCount; }
+
+    /** Returns the number of requests so far that were coalesced into a frame that was pending already. */
+    public synchronized long getCoalescedCount() { return coalescedCount; }
+
+    /**
+     * Returns the number of frames dropped so far: frame slots that passed while a requested frame waited
+     * for the previous frame or for the executor, because the renderer or other tasks on the executor took longer than a frame interval.
+     */
+    public synchronized long getDroppedCount() { return droppedCount; }
+
+    /**
+     * Stops rendering frames. If a frame is being rendered, it is completed.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        pending = false;
+    }
+
+}
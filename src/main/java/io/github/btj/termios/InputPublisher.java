@@ -0,0 +1,265 @@
+package io.github.btj.termios;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+
+/**
+ * Publishes the bytes read from standard input as a stream of ByteBuffers, honouring the subscriber's demand.
+ *
+ * Bytes read from standard input are buffered until the subscriber requests them. Each item is a new ByteBuffer
+ * holding at most 4096 bytes, which the subscriber may keep. What happens when more than the configured capacity
+ * is buffered depends on the {@link OverflowPolicy}. The buffer's size and high-water mark can be observed at any time,
+ * for example to size the capacity or to notice a subscriber that falls behind.
+ *
+ * A publisher accepts only one subscriber, and subscribing starts reading standard input;
+ * while subscribed, do not read standard input in other ways. Signals are delivered on the given executor.
+ * At the end of standard input, the subscriber receives onComplete, and if reading standard input fails, onError.
+ *
+ * Example:
+ * <pre>
+ * InputPublisher publisher = new InputPublisher(executor, InputPublisher.OverflowPolicy.DROP_OLDEST, 1 &lt;&lt; 16);
+ * publisher.subscribe(mySubscriber);
+ * </pre>
+ */
+public final class InputPublisher implements Flow.Publisher<ByteBuffer> {
+
+    /** What to do when the buffer holds more bytes than its capacity because the subscriber has not requested them. */
+    public enum OverflowPolicy {
+        /**
+         * Stop reading standard input until the subscriber catches up. The bytes then wait in the ring between
+         * the standard input pump thread and the publisher and, once that is full, in the operating system.
+         */
+        BLOCK,
+        /** Discard the oldest buffered bytes. */
+        DROP_OLDEST,
+        /** Let the buffer grow beyond its capacity. */
+        GROW
+    }
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final java.util.concurrent.Executor executor;
+    private final OverflowPolicy policy;
+    private final int capacity;
+
+    // The following are accessed only by the drain loop, which runs on the executor, on one thread at a time.
+    private final java.util.ArrayDeque<ByteBuffer> chunks = new java.util.ArrayDeque<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(CHUNK_SIZE);
+    private boolean started;
+    private boolean inputEnded;
+    private java.io.IOException inputFailure;
+    private boolean terminated;
+
+    /** Guarded by this. */
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+    /** The number of times the drain loop was requested to run; it runs while this is nonzero. */
+    private final java.util.concurrent.atomic.AtomicInteger drainRequests = new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.atomic.AtomicLong demand = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicBoolean listening = new java.util.concurrent.atomic.AtomicBoolean();
+    private final Runnable listener = this::onInput;
+    private volatile boolean cancelled;
+    /** The arrival time of the bytes that caused the listener to be called, for {@link Metrics#dispatched}. */
+    private volatile long arrivalTime;
+    private volatile Throwable invalidRequest;
+    private volatile int bufferedBytes;
+    private volatile int highWaterMark;
+    private volatile long droppedBytes;
+
+    /**
+     * Creates a publisher that delivers signals on the given executor and buffers up to the given number of bytes.
+     *
+     * @throws IllegalArgumentException if the given capacity is less than 1.
+     */
+    public InputPublisher(java.util.concurrent.Executor executor, OverflowPolicy policy, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The given capacity is less than 1");
+        this.executor = java.util.Objects.requireNonNull(executor);
+        this.policy = java.util.Objects.requireNonNull(policy);
+        this.capacity = capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() { return policy; }
+
+    public int getCapacity() { return capacity; }
+
+    /** Returns the number of bytes that were read from standard input but not yet delivered to the subscriber. */
+    public int getBufferedBytes() { return bufferedBytes; }
+
+    /** Returns the largest number of bytes that were buffered at once. This may exceed the capacity only under {@link OverflowPolicy#GROW}. */
+    public int getHighWaterMark() { return highWaterMark; }
+
+    /** Returns the number of bytes discarded under {@link OverflowPolicy#DROP_OLDEST}. */
+    public long getDroppedBytes() { return droppedBytes; }
+
+    /**
+     * Returns the largest number of bytes that were waiting at once in the ring between the standard input pump thread
+     * and its reader (of at most 16384 bytes), since the program started. Under {@link OverflowPolicy#BLOCK},
+     * this reaches the ring's size when the subscriber falls behind.
+     */
+    public int getRingHighWaterMark() { return Stdin.ringHighWaterMark(); }
+
+    /**
+     * Subscribes the given subscriber. If this publisher has a subscriber already, the given subscriber receives
+     * onError with an IllegalStateException.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        java.util.Objects.requireNonNull(subscriber);
+        synchronized (this) {
+            if (this.subscriber == null) {
+                this.subscriber = subscriber;
+                subscriber = null;
+            }
+        }
+        if (subscriber != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {}
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("This publisher has a subscriber already"));
+            return;
+        }
+        requestDrain();
+    }
+
+    private final Flow.Subscription subscription = new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+            if (n <= 0)
+                invalidRequest = new IllegalArgumentException("The requested number of items is not positive");
+            else
+                demand.accumulateAndGet(n, (current, extra) -> current + extra < 0 ? Long.MAX_VALUE : current + extra);
+            requestDrain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            requestDrain();
+        }
+    };
+
+    /** Called by the standard input pump thread when bytes are available. */
+    private void onInput() {
+        arrivalTime = Stdin.arrivalTime();
+        listening.set(false);
+        requestDrain();
+    }
+
+    private void requestDrain() {
+        if (drainRequests.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (java.util.concurrent.RejectedExecutionException e) {
+                cancelled = true;
+                drainRequests.set(0);
+            }
+        }
+    }
+
+    private void drain() {
+        int requests = drainRequests.get();
+        for (;;) {
+            if (!terminated)
+                drainOnce();
+            requests = drainRequests.addAndGet(-requests);
+            if (requests == 0)
+                return;
+        }
+    }
+
+    private void drainOnce() {
+        Flow.Subscriber<? super ByteBuffer> subscriber = this.subscriber;
+        if (!started) {
+            started = true;
+            subscriber.onSubscribe(subscription);
+        }
+        for (;;) {
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            if (invalidRequest != null) {
+                terminate();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            readAvailableBytes();
+            if (chunks.isEmpty()) {
+                if (inputFailure != null) {
+                    terminate();
+                    subscriber.onError(inputFailure);
+                } else if (inputEnded) {
+                    terminate();
+                    subscriber.onComplete();
+                }
+                return;
+            }
+            if (demand.get() == 0)
+                return;
+            if (demand.get() != Long.MAX_VALUE)
+                demand.decrementAndGet();
+            ByteBuffer chunk = chunks.poll();
+            bufferedBytes -= chunk.remaining();
+            long arrival = arrivalTime;
+            if (arrival != 0) {
+                arrivalTime = 0;
+                Metrics.dispatched("publisher", arrival);
+            }
+            subscriber.onNext(chunk);
+        }
+    }
+
+    /**
+     * Moves the bytes that are available on standard input into the buffer, as far as the overflow policy allows.
+     * If no more bytes are available, makes sure that the drain loop runs again once there are.
+     */
+    private void readAvailableBytes() {
+        while (!inputEnded && inputFailure == null) {
+            int room = policy == OverflowPolicy.BLOCK ? capacity - bufferedBytes : CHUNK_SIZE;
+            if (room <= 0)
+                return; // Once the subscriber catches up, the drain loop runs again and reads on.
+            scratch.clear().limit(Math.min(room, CHUNK_SIZE));
+            try {
+                if (Stdin.readBytes(scratch, 0) < 0) {
+                    inputEnded = true;
+                    return;
+                }
+            } catch (java.util.concurrent.TimeoutException e) {
+                // No bytes are available now. If bytes arrive after all, the listener is called right away.
+                if (!listening.getAndSet(true))
+                    Stdin.addListener(listener);
+                return;
+            } catch (java.io.IOException e) {
+                inputFailure = e;
+                return;
+            }
+            scratch.flip();
+            ByteBuffer chunk = ByteBuffer.allocate(scratch.remaining()).put(scratch).flip();
+            chunks.add(chunk);
+            int buffered = bufferedBytes + chunk.remaining();
+            if (policy == OverflowPolicy.DROP_OLDEST) {
+                while (buffered > capacity) {
+                    ByteBuffer oldest = chunks.peek();
+                    int n = Math.min(oldest.remaining(), buffered - capacity);
+                    oldest.position(oldest.position() + n);
+                    if (!oldest.hasRemaining())
+                        chunks.poll();
+                    buffered -= n;
+                    droppedBytes += n;
+                }
+            }
+            bufferedBytes = buffered;
+            if (buffered > highWaterMark)
+                highWaterMark = buffered;
+        }
+    }
+
+    private void terminate() {
+        terminated = true;
+        chunks.clear();
+        bufferedBytes = 0;
+        Stdin.removeListener(listener);
+    }
+
+}
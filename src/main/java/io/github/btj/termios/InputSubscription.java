@@ -0,0 +1,141 @@
+package io.github.btj.termios;
+
+/**
+ * Delivers the bytes read from standard input, or from the input of another {@link TerminalSession}, to a consumer,
+ * in batches, on an executor. Obtain one using {@link Terminal#subscribe(java.util.concurrent.Executor, java.util.function.Consumer)}
+ * or {@link TerminalSession#subscribe(java.util.concurrent.Executor, java.util.function.Consumer)}.
+ *
+ * When bytes become available, a single dispatch is submitted to the executor. It passes all bytes that are available
+ * by the time it runs to the consumer, so bytes that arrive while a dispatch is pending, such as the bytes of
+ * an escape sequence or keys typed in quick succession, are delivered together. Only once the dispatch is done is the
+ * next one submitted, so the consumer is never called concurrently with itself.
+ *
+ * The consumer must not keep a reference to the given ByteBuffer, which is reused for the next batch.
+ * At the end of the input, or if reading it fails, the consumer is called once with an empty buffer,
+ * and the subscription ends. The subscription also ends if the consumer throws an exception
+ * or the executor rejects a dispatch.
+ */
+public final class InputSubscription implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 4096;
+
+    private final TerminalSession session;
+    private final java.util.concurrent.Executor executor;
+    private final java.util.function.Consumer<java.nio.ByteBuffer> consumer;
+    private final java.nio.ByteBuffer batch = java.nio.ByteBuffer.allocate(BATCH_SIZE);
+    private final Runnable listener = this::onInput;
+    private volatile boolean closed;
+    /** The arrival time of the bytes that caused the pending dispatch, for {@link Metrics#dispatched}. */
+    private volatile long arrivalTime;
+
+    private InputSubscription(TerminalSession session, java.util.concurrent.Executor executor, java.util.function.Consumer<java.nio.ByteBuffer> consumer) {
+        this.session = session;
+        this.executor = executor;
+        this.consumer = consumer;
+    }
+
+    static InputSubscription subscribe(TerminalSession session, java.util.concurrent.Executor executor, java.util.function.Consumer<java.nio.ByteBuffer> consumer) {
+        java.util.Objects.requireNonNull(executor);
+        java.util.Objects.requireNonNull(consumer);
+        InputSubscription subscription = new InputSubscription(session, executor, consumer);
+        synchronized (session) {
+            if (session.subscription != null)
+                throw new IllegalStateException(session == TerminalSession.getDefault() ? "Standard input is subscribed to already" : "The session's input is subscribed to already");
+            session.subscription = subscription;
+        }
+        try {
+            session.addInputListener(subscription.listener);
+        } catch (RuntimeException e) {
+            subscription.close();
+            throw e;
+        }
+        return subscription;
+    }
+
+    /** Called by the standard input pump thread or the session poller when bytes are available; runs at most once per dispatch. */
+    private void onInput() {
+        if (closed)
+            return;
+        arrivalTime = session.inputArrivalTime();
+        try {
+            executor.execute(this::dispatch);
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            close();
+        }
+    }
+
+    private void dispatch() {
+        boolean rearm = false;
+        try {
+            rearm = deliverAvailableBytes();
+        } finally {
+            if (!rearm)
+                close();
+        }
+        if (!rearm)
+            return;
+        // If bytes arrived in the meantime, this calls onInput right away or soon.
+        try {
+            session.addInputListener(listener);
+        } catch (RuntimeException e) {
+            close(); // The session was closed.
+            return;
+        }
+        if (closed)
+            session.removeInputListener(listener);
+    }
+
+    /**
+     * Passes the available bytes to the consumer, in batches of at most BATCH_SIZE bytes.
+     * Returns false if the subscription was closed or ended.
+     */
+    private boolean deliverAvailableBytes() {
+        for (;;) {
+            if (closed)
+                return false;
+            batch.clear();
+            boolean end = false;
+            try {
+                while (batch.hasRemaining()) {
+                    int n = session.readAvailable(batch);
+                    if (n < 0) {
+                        end = true;
+                        break;
+                    }
+                    if (n == 0)
+                        break; // No more bytes are available now.
+                }
+            } catch (java.io.IOException e) {
+                end = true;
+            }
+            batch.flip();
+            boolean full = batch.limit() == BATCH_SIZE;
+            if (batch.hasRemaining()) {
+                Metrics.dispatched("subscription", arrivalTime);
+                arrivalTime = 0;
+                consumer.accept(batch);
+            }
+            if (end) {
+                if (!closed)
+                    consumer.accept(batch.clear().flip());
+                return false;
+            }
+            if (!full)
+                return true;
+        }
+    }
+
+    /**
+     * Ends this subscription. If a dispatch is in progress, the consumer may still be called during it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        session.removeInputListener(listener);
+        synchronized (session) {
+            if (session.subscription == this)
+                session.subscription = null;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package io.github.btj.termios;
+
+class JniBackend extends NativeBackend {
+
+    /** The terminal attributes saved by enterRawInputMode. Guarded by this. */
+    private final byte[] originalTerm = new byte[Terminal.TERMIOS_SIZE];
+
+    JniBackend() {
+        NativeLibrary.ensureLoaded();
+    }
+
+    synchronized void enterRawInputMode() {
+        try {
+            Terminal.enterRawInputMode0(0, originalTerm);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not set the terminal attributes. Is stdin not a terminal?", e);
+        }
+    }
+
+    synchronized void leaveRawInputMode() {
+        try {
+            Terminal.leaveRawInputMode0(0, originalTerm);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not set the terminal attributes. Is stdin not a terminal?", e);
+        }
+    }
+
+    int pollRead(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException {
+        return Terminal.pollRead(0, bytes, offset, count, timeoutNanos);
+    }
+
+    long queryTextAreaSize() throws java.io.IOException { return Terminal.queryTextAreaSize(1, 0); }
+
+}
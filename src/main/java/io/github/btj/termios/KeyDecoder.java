@@ -0,0 +1,703 @@
+package io.github.btj.termios;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Decodes the bytes read from standard input into key events.
+ *
+ * Recognizes UTF-8-encoded characters, control characters, the CSI and SS3 sequences that terminals
+ * send for arrow keys, function keys and editing keys (including xterm-style modifier parameters),
+ * Alt-prefixed characters, text area size reports (<code>CSI 8 ; height ; width t</code>), pasted text, and SGR mouse reports.
+ *
+ * Events are encoded as {@code long} values so that decoding allocates nothing;
+ * use the static accessor methods of this class to take them apart.
+ * A decoder is not thread-safe.
+ *
+ * Example:
+ * <pre>
+ * KeyDecoder decoder = new KeyDecoder();
+ * byte[] bytes = new byte[4096];
+ * LongConsumer handler = event -&gt; {
+ *     if (KeyDecoder.type(event) == KeyDecoder.TYPE_KEY &amp;&amp; KeyDecoder.key(event) == KeyDecoder.KEY_UP)
+ *         moveUp();
+ * };
+ * for (;;) {
+ *     int n = Terminal.readBytes(bytes, 0, bytes.length);
+ *     decoder.decode(bytes, 0, n, handler);
+ * }
+ * </pre>
+ *
+ * A lone Escape key press cannot be distinguished from the start of an escape sequence
+ * until the next byte arrives; call {@link #flush(LongConsumer)} when no more input arrives for a while.
+ * Alternatively, {@link #readEvent()} reads standard input itself and does this automatically
+ * once the {@linkplain #setEscapeTimeoutNanos(long) escape timeout} elapses.
+ *
+ * If bracketed paste mode is enabled, using {@link Terminal#enableBracketedPaste()}, the terminal marks pasted text with
+ * <code>CSI 200 ~</code> and <code>CSI 201 ~</code>. The decoder then reports the whole paste as a single {@link #TYPE_PASTE} event,
+ * rather than as one event per character, and without interpreting control characters and escape sequences in it.
+ * The bytes between the markers are only scanned for the end marker and copied in bulk, so large pastes are cheap to decode.
+ *
+ * If mouse tracking is enabled, using {@link Terminal#enableMouseTracking(MouseTracking)}, mouse presses, releases and movements
+ * are reported as {@link #TYPE_MOUSE} events. A mouse movement that is immediately followed, in the bytes passed to a single
+ * {@code decode} call or already available to {@link #readEvent()}, by another movement with the same buttons and modifiers
+ * is dropped, so that an application that falls behind catches up with the latest position at once;
+ * {@link #getCoalescedMotionCount()} returns the number of movements dropped this way.
+ */
+public final class KeyDecoder {
+
+    /** The absence of an event. No event is ever encoded as this value. */
+    public static final long NONE = 0;
+
+    /** A character. {@link #codePoint(long)} returns its Unicode code point; control characters such as Return (13), Tab (9) and Backspace (127) are reported as is. */
+    public static final int TYPE_CHAR = 1;
+    /** A non-character key. {@link #key(long)} returns one of the {@code KEY_} constants. */
+    public static final int TYPE_KEY = 2;
+    /** A text area size report, as requested by {@link Terminal#reportTextAreaSize()}. See {@link #height(long)} and {@link #width(long)}. */
+    public static final int TYPE_TEXT_AREA_SIZE = 3;
+    /** A well-formed but unrecognized control sequence. {@link #finalByte(long)} returns its final byte. */
+    public static final int TYPE_UNKNOWN_SEQUENCE = 4;
+    /**
+     * Text pasted while bracketed paste mode was enabled. Use {@link #getPastedBytes()} or {@link #getPastedText()}
+     * to obtain it; {@link #pasteLength(long)} returns its length in bytes.
+     */
+    public static final int TYPE_PASTE = 5;
+    /**
+     * A mouse press, release or movement. See {@link #mouseAction(long)}, {@link #mouseButton(long)}, {@link #mouseRow(long)}
+     * and {@link #mouseColumn(long)}; {@link #modifiers(long)} returns the Shift, Alt and Ctrl keys held down.
+     */
+    public static final int TYPE_MOUSE = 6;
+
+    public static final int MOD_SHIFT = 1;
+    public static final int MOD_ALT = 2;
+    public static final int MOD_CTRL = 4;
+    public static final int MOD_META = 8;
+
+    public static final int KEY_UP = 1;
+    public static final int KEY_DOWN = 2;
+    public static final int KEY_RIGHT = 3;
+    public static final int KEY_LEFT = 4;
+    public static final int KEY_HOME = 5;
+    public static final int KEY_END = 6;
+    public static final int KEY_INSERT = 7;
+    public static final int KEY_DELETE = 8;
+    public static final int KEY_PAGE_UP = 9;
+    public static final int KEY_PAGE_DOWN = 10;
+    /** Shift+Tab. */
+    public static final int KEY_BACKTAB = 11;
+    public static final int KEY_ESCAPE = 12;
+    /** Keypad 5 with Num Lock off. */
+    public static final int KEY_BEGIN = 13;
+    /** Function key F<i>n</i> is {@code KEY_F1 + n - 1}, for <i>n</i> from 1 to 20. */
+    public static final int KEY_F1 = 0x100;
+
+    public static final int MOUSE_PRESS = 0;
+    public static final int MOUSE_RELEASE = 1;
+    /** The mouse moved, with {@link #mouseButton(long)} held down, or with no button held down ({@link #MOUSE_BUTTON_NONE}). */
+    public static final int MOUSE_MOTION = 2;
+
+    public static final int MOUSE_BUTTON_LEFT = 0;
+    public static final int MOUSE_BUTTON_MIDDLE = 1;
+    public static final int MOUSE_BUTTON_RIGHT = 2;
+    /** No button; for movements while no button is held down. */
+    public static final int MOUSE_BUTTON_NONE = 3;
+    /** Scrolling up is reported as a press of this button; there is no release. */
+    public static final int MOUSE_WHEEL_UP = 4;
+    public static final int MOUSE_WHEEL_DOWN = 5;
+    public static final int MOUSE_WHEEL_LEFT = 6;
+    public static final int MOUSE_WHEEL_RIGHT = 7;
+    /** Extra button <i>n</i> is {@code MOUSE_BUTTON_8 + n - 8}, for <i>n</i> from 8 to 11. */
+    public static final int MOUSE_BUTTON_8 = 8;
+
+    private static final int TYPE_SHIFT = 56;
+    private static final int MODIFIERS_SHIFT = 48;
+    private static final int PARAM1_SHIFT = 24;
+    private static final int PARAM_MASK = 0xffffff;
+
+    /** Returns the type of the given event; one of the {@code TYPE_} constants. */
+    public static int type(long event) { return (int)(event >>> TYPE_SHIFT); }
+    /** Returns the modifier keys held down during the given event, as a combination of the {@code MOD_} flags. */
+    public static int modifiers(long event) { return (int)(event >>> MODIFIERS_SHIFT) & 0xff; }
+    /** Returns the code point of the given {@link #TYPE_CHAR} event. */
+    public static int codePoint(long event) { return (int)event & PARAM_MASK; }
+    /** Returns the key of the given {@link #TYPE_KEY} event; one of the {@code KEY_} constants. */
+    public static int key(long event) { return (int)event & PARAM_MASK; }
+    /** Returns the height (in rows) reported by the given {@link #TYPE_TEXT_AREA_SIZE} event. */
+    public static int height(long event) { return (int)(event >>> PARAM1_SHIFT) & PARAM_MASK; }
+    /** Returns the width (in columns) reported by the given {@link #TYPE_TEXT_AREA_SIZE} event. */
+    public static int width(long event) { return (int)event & PARAM_MASK; }
+    /** Returns the final byte of the given {@link #TYPE_UNKNOWN_SEQUENCE} event. */
+    public static int finalByte(long event) { return (int)event & PARAM_MASK; }
+    /** Returns the length in bytes of the text of the given {@link #TYPE_PASTE} event, or 16777215 if it is longer than that. */
+    public static int pasteLength(long event) { return (int)event & PARAM_MASK; }
+    /** Returns the action of the given {@link #TYPE_MOUSE} event; one of the {@code MOUSE_} action constants. */
+    public static int mouseAction(long event) { return (int)(event >>> PARAM1_SHIFT + 20) & 3; }
+    /** Returns the button of the given {@link #TYPE_MOUSE} event; one of the {@code MOUSE_BUTTON_} and {@code MOUSE_WHEEL_} constants. */
+    public static int mouseButton(long event) { return (int)(event >>> PARAM1_SHIFT + 16) & 0xf; }
+    /** Returns the row (1-based) of the given {@link #TYPE_MOUSE} event, or 65535 if it is greater than that. */
+    public static int mouseRow(long event) { return (int)(event >>> PARAM1_SHIFT) & 0xffff; }
+    /** Returns the column (1-based) of the given {@link #TYPE_MOUSE} event. */
+    public static int mouseColumn(long event) { return (int)event & PARAM_MASK; }
+
+    static long event(int type, int modifiers, int param1, int param2) {
+        return (long)type << TYPE_SHIFT | (long)modifiers << MODIFIERS_SHIFT | (long)(param1 & PARAM_MASK) << PARAM1_SHIFT | (param2 & PARAM_MASK);
+    }
+
+    // States
+    private static final int GROUND = 0;
+    private static final int ESCAPE = 1;
+    private static final int CSI = 2;
+    private static final int SS3 = 3;
+    /** Expecting 1, 2 or 3 more UTF-8 continuation bytes. */
+    private static final int UTF8_1 = 4;
+    private static final int UTF8_2 = 5;
+    private static final int UTF8_3 = 6;
+    private static final int STATE_COUNT = 7;
+    /** Inside a bracketed paste. Handled outside the table, since the bytes are not decoded. */
+    private static final int PASTE = STATE_COUNT;
+
+    // Actions
+    private static final int IGNORE = 0;
+    private static final int EMIT_CHAR = 1;
+    private static final int EMIT_INVALID = 2;
+    private static final int ENTER_ESCAPE = 3;
+    private static final int EMIT_ESCAPE = 4;
+    /** An Escape followed by a byte that does not start a sequence: Alt plus the character that starts with that byte. */
+    private static final int ALT_PREFIX = 5;
+    private static final int ENTER_CSI = 6;
+    private static final int PARAM_DIGIT = 7;
+    private static final int PARAM_SEPARATOR = 8;
+    private static final int PRIVATE_MARKER = 9;
+    private static final int INTERMEDIATE = 10;
+    private static final int DISPATCH_CSI = 11;
+    private static final int DISPATCH_SS3 = 12;
+    private static final int UTF8_LEAD_2 = 13;
+    private static final int UTF8_LEAD_3 = 14;
+    private static final int UTF8_LEAD_4 = 15;
+    private static final int UTF8_CONTINUATION = 16;
+    /** A byte that ends an incomplete UTF-8 sequence; emit a replacement character, then process the byte in the ground state. */
+    private static final int UTF8_ABORT = 17;
+    /** An Escape, an O, and a byte that does not complete an SS3 sequence; emit Alt+O, then process the byte in the ground state. */
+    private static final int SS3_ABORT = 18;
+
+    private static final int ACTION_SHIFT = 4;
+    private static final int STATE_MASK = (1 << ACTION_SHIFT) - 1;
+
+    /** For each state and input byte, the action to perform and the next state. */
+    private static final short[] TABLE = new short[STATE_COUNT << 8];
+
+    private static void on(int state, int first, int last, int action, int nextState) {
+        for (int b = first; b <= last; b++)
+            TABLE[state << 8 | b] = (short)(action << ACTION_SHIFT | nextState);
+    }
+
+    static {
+        on(GROUND, 0x00, 0x7f, EMIT_CHAR, GROUND);
+        on(GROUND, 0x1b, 0x1b, ENTER_ESCAPE, ESCAPE);
+        on(GROUND, 0x80, 0xff, EMIT_INVALID, GROUND);
+        on(GROUND, 0xc2, 0xdf, UTF8_LEAD_2, UTF8_1);
+        on(GROUND, 0xe0, 0xef, UTF8_LEAD_3, UTF8_2);
+        on(GROUND, 0xf0, 0xf4, UTF8_LEAD_4, UTF8_3);
+
+        on(ESCAPE, 0x00, 0xff, ALT_PREFIX, GROUND);
+        on(ESCAPE, 0x1b, 0x1b, EMIT_ESCAPE, ESCAPE);
+        on(ESCAPE, '[', '[', ENTER_CSI, CSI);
+        on(ESCAPE, 'O', 'O', IGNORE, SS3);
+
+        on(CSI, 0x00, 0xff, IGNORE, CSI);
+        on(CSI, 0x18, 0x18, IGNORE, GROUND); // CAN
+        on(CSI, 0x1a, 0x1a, IGNORE, GROUND); // SUB
+        on(CSI, 0x1b, 0x1b, ENTER_ESCAPE, ESCAPE);
+        on(CSI, 0x20, 0x2f, INTERMEDIATE, CSI);
+        on(CSI, '0', '9', PARAM_DIGIT, CSI);
+        on(CSI, ':', ';', PARAM_SEPARATOR, CSI);
+        on(CSI, '<', '?', PRIVATE_MARKER, CSI);
+        on(CSI, 0x40, 0x7e, DISPATCH_CSI, GROUND);
+
+        on(SS3, 0x00, 0xff, SS3_ABORT, GROUND);
+        on(SS3, 0x1b, 0x1b, ENTER_ESCAPE, ESCAPE);
+        on(SS3, 0x40, 0x7e, DISPATCH_SS3, GROUND);
+
+        on(UTF8_1, 0x00, 0xff, UTF8_ABORT, GROUND);
+        on(UTF8_1, 0x80, 0xbf, UTF8_CONTINUATION, GROUND);
+        on(UTF8_2, 0x00, 0xff, UTF8_ABORT, GROUND);
+        on(UTF8_2, 0x80, 0xbf, UTF8_CONTINUATION, UTF8_1);
+        on(UTF8_3, 0x00, 0xff, UTF8_ABORT, GROUND);
+        on(UTF8_3, 0x80, 0xbf, UTF8_CONTINUATION, UTF8_2);
+    }
+
+    /** For CSI sequences with final byte {@code ~}, the key for each first parameter value. */
+    private static final int[] TILDE_KEYS = new int[35];
+
+    static {
+        TILDE_KEYS[1] = KEY_HOME;
+        TILDE_KEYS[2] = KEY_INSERT;
+        TILDE_KEYS[3] = KEY_DELETE;
+        TILDE_KEYS[4] = KEY_END;
+        TILDE_KEYS[5] = KEY_PAGE_UP;
+        TILDE_KEYS[6] = KEY_PAGE_DOWN;
+        TILDE_KEYS[7] = KEY_HOME;
+        TILDE_KEYS[8] = KEY_END;
+        int[] functionKeyCodes = {11, 12, 13, 14, 15, 17, 18, 19, 20, 21, 23, 24, 25, 26, 28, 29, 31, 32, 33, 34};
+        for (int i = 0; i < functionKeyCodes.length; i++)
+            TILDE_KEYS[functionKeyCodes[i]] = KEY_F1 + i;
+    }
+
+    /** Returns the key for the given final byte of a CSI or SS3 sequence, or 0 if none. */
+    private static int letterKey(int finalByte) {
+        return switch (finalByte) {
+            case 'A' -> KEY_UP;
+            case 'B' -> KEY_DOWN;
+            case 'C' -> KEY_RIGHT;
+            case 'D' -> KEY_LEFT;
+            case 'E' -> KEY_BEGIN;
+            case 'F' -> KEY_END;
+            case 'H' -> KEY_HOME;
+            case 'P' -> KEY_F1;
+            case 'Q' -> KEY_F1 + 1;
+            case 'R' -> KEY_F1 + 2;
+            case 'S' -> KEY_F1 + 3;
+            case 'Z' -> KEY_BACKTAB;
+            default -> 0;
+        };
+    }
+
+    private static final int MAX_PARAMS = 16;
+    private static final int MAX_PARAM_VALUE = PARAM_MASK;
+
+    private int state = GROUND;
+    private final int[] params = new int[MAX_PARAMS];
+    private int paramCount;
+    private int privateMarker;
+    private int intermediate;
+    private int codePoint;
+    private int minCodePoint;
+    private int pendingModifiers;
+
+    /** The sequence that ends a bracketed paste. Its first byte does not occur elsewhere in it. */
+    private static final byte[] PASTE_END = {0x1b, '[', '2', '0', '1', '~'};
+    private byte[] paste = new byte[256];
+    private int pasteLength;
+    /** The number of bytes of {@link #PASTE_END} seen last while in the PASTE state. */
+    private int pasteEndMatched;
+
+    /** The consumer of the {@code decode} call in progress, if it coalesces movements. */
+    private LongConsumer batchEvents;
+    private final LongConsumer coalesce = this::coalesce;
+    /** A movement decoded during the {@code decode} call in progress but not yet passed on, or NONE. */
+    private long pendingMotion;
+    private long coalescedMotionCount;
+
+    /** The default escape timeout: 20 milliseconds. */
+    public static final long DEFAULT_ESCAPE_TIMEOUT_NANOS = 20_000_000;
+
+    private long escapeTimeoutNanos = DEFAULT_ESCAPE_TIMEOUT_NANOS;
+    /** Events decoded by {@link #readEvent()} but not yet returned. A byte yields at most two events. */
+    private final long[] queue = new long[4];
+    private int queueStart;
+    private int queueLength;
+    private final LongConsumer enqueue = this::enqueue;
+
+    public KeyDecoder() {}
+
+    /**
+     * Returns the time, in nanoseconds, that {@link #readEvent()} waits for the next byte of an incomplete sequence
+     * before completing it with {@link #flush(LongConsumer)}.
+     */
+    public long getEscapeTimeoutNanos() {
+        return escapeTimeoutNanos;
+    }
+
+    /**
+     * Sets the time, in nanoseconds, that {@link #readEvent()} waits for the next byte of an incomplete sequence
+     * before completing it with {@link #flush(LongConsumer)}; in particular, this is how long it takes before
+     * a lone Escape key press is reported. Sub-millisecond values are supported.
+     * Terminals typically send the bytes of a sequence together, so locally even a very short timeout works;
+     * over slow network connections, a longer timeout may be necessary.
+     *
+     * @throws IllegalArgumentException if the given timeout is negative.
+     */
+    public void setEscapeTimeoutNanos(long escapeTimeoutNanos) {
+        if (escapeTimeoutNanos < 0)
+            throw new IllegalArgumentException("The given escape timeout is negative");
+        this.escapeTimeoutNanos = escapeTimeoutNanos;
+    }
+
+    /**
+     * Like {@link #setEscapeTimeoutNanos(long)}, but takes the timeout as a Duration.
+     */
+    public void setEscapeTimeout(java.time.Duration escapeTimeout) {
+        setEscapeTimeoutNanos(Terminal.toNanos(escapeTimeout));
+    }
+
+    private void enqueue(long event) {
+        if (queueLength > 0) {
+            int last = (queueStart + queueLength - 1) & (queue.length - 1);
+            if (replacesMotion(queue[last], event)) {
+                queue[last] = event;
+                coalescedMotionCount++;
+                return;
+            }
+        }
+        queue[(queueStart + queueLength++) & (queue.length - 1)] = event;
+    }
+
+    /** Returns true if the given events are movements with the same buttons and modifiers. */
+    private static boolean replacesMotion(long previous, long event) {
+        return type(event) == TYPE_MOUSE && mouseAction(event) == MOUSE_MOTION
+            && (previous ^ event) >>> PARAM1_SHIFT + 16 == 0;
+    }
+
+    private void coalesce(long event) {
+        if (pendingMotion != NONE) {
+            if (replacesMotion(pendingMotion, event)) {
+                pendingMotion = event;
+                coalescedMotionCount++;
+                return;
+            }
+            batchEvents.accept(pendingMotion);
+            pendingMotion = NONE;
+        }
+        if (type(event) == TYPE_MOUSE && mouseAction(event) == MOUSE_MOTION)
+            pendingMotion = event;
+        else
+            batchEvents.accept(event);
+    }
+
+    private LongConsumer beginBatch(LongConsumer events) {
+        batchEvents = events;
+        return coalesce;
+    }
+
+    private void endBatch() {
+        long motion = pendingMotion;
+        LongConsumer events = batchEvents;
+        pendingMotion = NONE;
+        batchEvents = null;
+        if (motion != NONE)
+            events.accept(motion);
+    }
+
+    /**
+     * Returns the number of mouse movements that were dropped because they were immediately followed by another movement
+     * with the same buttons and modifiers.
+     */
+    public long getCoalescedMotionCount() {
+        return coalescedMotionCount;
+    }
+
+    /**
+     * Reads bytes from standard input using {@link Terminal#readByteNanos(long)} until they form an event, and returns it.
+     * Returns {@link #NONE} if the end of standard input was reached.
+     *
+     * If an incomplete sequence is pending and no byte arrives within the escape timeout, the sequence is completed
+     * as by {@link #flush(LongConsumer)}; in particular, a lone Escape byte is reported as {@link #KEY_ESCAPE}.
+     */
+    public long readEvent() throws java.io.IOException {
+        try {
+            return readEventNanos(Long.MAX_VALUE);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Like {@link #readEvent()}, but throws a TimeoutException if no event became available
+     * within the given number of nanoseconds ({@code Long.MAX_VALUE} means no timeout).
+     * Bytes read before the timeout elapsed are not lost; they are part of the event returned by the next call.
+     */
+    public long readEventNanos(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? 0 : System.nanoTime() + timeoutNanos;
+        for (;;) {
+            if (queueLength == 1 && state != PASTE && type(queue[queueStart]) == TYPE_MOUSE && mouseAction(queue[queueStart]) == MOUSE_MOTION) {
+                // Decode any input that is already available, so that the movement can be coalesced with later ones.
+                int b;
+                try {
+                    b = Terminal.readByteNanos(0);
+                } catch (java.util.concurrent.TimeoutException e) {
+                    b = -1;
+                }
+                if (b >= 0) {
+                    decode(b, enqueue);
+                    continue;
+                }
+            }
+            if (queueLength > 0) {
+                long event = queue[queueStart];
+                queueStart = (queueStart + 1) & (queue.length - 1);
+                queueLength--;
+                return event;
+            }
+            long wait = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+            boolean escapeWait = state != GROUND && state != PASTE && escapeTimeoutNanos < wait;
+            if (escapeWait)
+                wait = escapeTimeoutNanos;
+            int b;
+            try {
+                b = Terminal.readByteNanos(wait);
+            } catch (java.util.concurrent.TimeoutException e) {
+                if (!escapeWait)
+                    throw e;
+                flush(enqueue);
+                continue;
+            }
+            if (b < 0) {
+                flush(enqueue);
+                if (queueLength == 0)
+                    return NONE;
+                continue;
+            }
+            decode(b, enqueue);
+        }
+    }
+
+    /**
+     * Returns true if the decoder has consumed bytes that do not yet form a complete event.
+     */
+    public boolean isPending() {
+        return state != GROUND;
+    }
+
+    /**
+     * Decodes the given bytes, passing the resulting events to the given consumer in order.
+     * Incomplete sequences and pastes at the end of the range are continued by the next call.
+     *
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public void decode(byte[] bytes, int offset, int count, LongConsumer events) {
+        java.util.Objects.checkFromIndexSize(offset, count, bytes.length);
+        if (batchEvents == null) {
+            events = beginBatch(events);
+            try {
+                decode(bytes, offset, count, events);
+            } finally {
+                endBatch();
+            }
+            return;
+        }
+        for (int i = offset, end = offset + count; i < end; ) {
+            if (state == PASTE && pasteEndMatched == 0) {
+                // Copy everything up to the next Escape, which might start the end sequence, in one go.
+                int start = i;
+                while (i < end && bytes[i] != 0x1b)
+                    i++;
+                appendPaste(bytes, start, i - start);
+                if (i == end)
+                    break;
+            }
+            decode(bytes[i++] & 0xff, events);
+        }
+    }
+
+    /**
+     * Decodes the given ByteBuffer's remaining bytes, like {@link #decode(byte[], int, int, LongConsumer)},
+     * and advances its position to its limit. Useful with {@link Terminal#subscribe(java.util.concurrent.Executor, java.util.function.Consumer)}.
+     */
+    public void decode(java.nio.ByteBuffer bytes, LongConsumer events) {
+        if (bytes.hasArray()) {
+            decode(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), events);
+            bytes.position(bytes.limit());
+        } else {
+            LongConsumer coalescing = beginBatch(events);
+            try {
+                while (bytes.hasRemaining())
+                    decode(bytes.get() & 0xff, coalescing);
+            } finally {
+                endBatch();
+            }
+        }
+    }
+
+    /**
+     * Decodes the given byte (0 to 255), passing any resulting events to the given consumer.
+     */
+    public void decode(int b, LongConsumer events) {
+        if (state == PASTE) {
+            decodePasteByte(b, events);
+            return;
+        }
+        for (;;) {
+            int entry = TABLE[state << 8 | b];
+            state = entry & STATE_MASK;
+            switch (entry >>> ACTION_SHIFT) {
+                case IGNORE -> {}
+                case EMIT_CHAR -> emitChar(b, events);
+                case EMIT_INVALID -> emitChar(0xfffd, events);
+                case ENTER_ESCAPE -> pendingModifiers = 0;
+                case EMIT_ESCAPE -> events.accept(event(TYPE_KEY, 0, 0, KEY_ESCAPE));
+                case ALT_PREFIX -> {
+                    pendingModifiers = MOD_ALT;
+                    continue;
+                }
+                case ENTER_CSI -> {
+                    params[0] = 0;
+                    paramCount = 0;
+                    privateMarker = 0;
+                    intermediate = 0;
+                }
+                case PARAM_DIGIT -> {
+                    if (paramCount == 0)
+                        paramCount = 1;
+                    int value = params[paramCount - 1] * 10 + (b - '0');
+                    params[paramCount - 1] = Math.min(value, MAX_PARAM_VALUE);
+                }
+                case PARAM_SEPARATOR -> {
+                    if (paramCount == 0)
+                        paramCount = 1;
+                    if (paramCount < MAX_PARAMS)
+                        params[paramCount++] = 0;
+                }
+                case PRIVATE_MARKER -> privateMarker = b;
+                case INTERMEDIATE -> intermediate = b;
+                case DISPATCH_CSI -> dispatchCsi(b, events);
+                case DISPATCH_SS3 -> {
+                    int key = letterKey(b);
+                    events.accept(key != 0 ? event(TYPE_KEY, 0, 0, key) : event(TYPE_UNKNOWN_SEQUENCE, 0, 0, b));
+                }
+                case UTF8_LEAD_2 -> { codePoint = b & 0x1f; minCodePoint = 0x80; }
+                case UTF8_LEAD_3 -> { codePoint = b & 0x0f; minCodePoint = 0x800; }
+                case UTF8_LEAD_4 -> { codePoint = b & 0x07; minCodePoint = 0x10000; }
+                case UTF8_CONTINUATION -> {
+                    codePoint = codePoint << 6 | (b & 0x3f);
+                    if (state == GROUND) {
+                        boolean valid = minCodePoint <= codePoint && codePoint <= 0x10ffff && (codePoint < 0xd800 || 0xdfff < codePoint);
+                        emitChar(valid ? codePoint : 0xfffd, events);
+                    }
+                }
+                case UTF8_ABORT -> {
+                    emitChar(0xfffd, events);
+                    continue;
+                }
+                case SS3_ABORT -> {
+                    events.accept(event(TYPE_CHAR, MOD_ALT, 0, 'O'));
+                    continue;
+                }
+                default -> throw new AssertionError();
+            }
+            return;
+        }
+    }
+
+    private void decodePasteByte(int b, LongConsumer events) {
+        for (;;) {
+            if (b == (PASTE_END[pasteEndMatched] & 0xff)) {
+                if (++pasteEndMatched == PASTE_END.length) {
+                    pasteEndMatched = 0;
+                    state = GROUND;
+                    events.accept(event(TYPE_PASTE, 0, 0, Math.min(pasteLength, PARAM_MASK)));
+                }
+                return;
+            }
+            if (pasteEndMatched == 0) {
+                appendPaste(b);
+                return;
+            }
+            // What looked like the start of the end sequence was pasted text; the byte might start the end sequence itself.
+            appendPaste(PASTE_END, 0, pasteEndMatched);
+            pasteEndMatched = 0;
+        }
+    }
+
+    private void ensurePasteCapacity(int extra) {
+        if (paste.length - pasteLength < extra)
+            paste = java.util.Arrays.copyOf(paste, Math.max(paste.length * 2, pasteLength + extra));
+    }
+
+    private void appendPaste(int b) {
+        ensurePasteCapacity(1);
+        paste[pasteLength++] = (byte)b;
+    }
+
+    private void appendPaste(byte[] bytes, int offset, int count) {
+        ensurePasteCapacity(count);
+        System.arraycopy(bytes, offset, paste, pasteLength, count);
+        pasteLength += count;
+    }
+
+    /**
+     * Returns a read-only view of the bytes of the last {@link #TYPE_PASTE} event, normally UTF-8-encoded text.
+     * The view is valid until the next paste begins.
+     */
+    public java.nio.ByteBuffer getPastedBytes() {
+        return java.nio.ByteBuffer.wrap(paste, 0, pasteLength).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the text of the last {@link #TYPE_PASTE} event, decoded from UTF-8; malformed input is replaced by U+FFFD.
+     * Line breaks are typically pasted as carriage returns.
+     */
+    public String getPastedText() {
+        return new String(paste, 0, pasteLength, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Completes a pending lone Escape key press or Alt+[ or Alt+O key press, if any;
+     * call this when no more bytes arrived for a while after an Escape byte.
+     * Discards any other incomplete sequence. A paste in progress is left alone; it ends only with its end marker.
+     */
+    public void flush(LongConsumer events) {
+        if (state == PASTE)
+            return;
+        switch (state) {
+            case ESCAPE -> events.accept(event(TYPE_KEY, 0, 0, KEY_ESCAPE));
+            case CSI -> {
+                if (paramCount == 0 && privateMarker == 0 && intermediate == 0)
+                    events.accept(event(TYPE_CHAR, MOD_ALT, 0, '['));
+            }
+            case SS3 -> events.accept(event(TYPE_CHAR, MOD_ALT, 0, 'O'));
+            case UTF8_1, UTF8_2, UTF8_3 -> emitChar(0xfffd, events);
+            default -> {}
+        }
+        state = GROUND;
+        pendingModifiers = 0;
+    }
+
+    private void emitChar(int codePoint, LongConsumer events) {
+        events.accept(event(TYPE_CHAR, pendingModifiers, 0, codePoint));
+        pendingModifiers = 0;
+    }
+
+    /** Returns the modifiers encoded in the given xterm-style modifier parameter. */
+    private static int modifiersParam(int value) {
+        return value > 1 ? (value - 1) & 0xff : 0;
+    }
+
+    private void dispatchCsi(int finalByte, LongConsumer events) {
+        int p0 = paramCount > 0 ? params[0] : 0;
+        int modifiers = paramCount > 1 ? modifiersParam(params[1]) : 0;
+        long event = NONE;
+        if (privateMarker == 0 && intermediate == 0) {
+            if (finalByte == '~' && p0 == 200 && paramCount == 1) {
+                state = PASTE;
+                pasteLength = 0;
+                pasteEndMatched = 0;
+                return;
+            }
+            if (finalByte == '~') {
+                if (p0 < TILDE_KEYS.length && TILDE_KEYS[p0] != 0)
+                    event = event(TYPE_KEY, modifiers, 0, TILDE_KEYS[p0]);
+            } else if (finalByte == 't') {
+                if (paramCount == 3 && p0 == 8)
+                    event = event(TYPE_TEXT_AREA_SIZE, 0, params[1], params[2]);
+            } else if (finalByte == 'u') {
+                // CSI code point ; modifiers u, as sent by terminals that implement fixterms
+                if (paramCount > 0 && p0 <= 0x10ffff)
+                    event = event(TYPE_CHAR, modifiers, 0, p0);
+            } else {
+                int key = letterKey(finalByte);
+                if (key != 0)
+                    event = event(TYPE_KEY, modifiers, 0, key);
+            }
+        } else if (privateMarker == '<' && intermediate == 0 && paramCount == 3 && (finalByte == 'M' || finalByte == 'm'))
+            event = mouseEvent(p0, params[1], params[2], finalByte == 'm');
+        events.accept(event != NONE ? event : event(TYPE_UNKNOWN_SEQUENCE, 0, 0, finalByte));
+    }
+
+    /** Returns the event for the SGR mouse report <code>CSI &lt; code ; column ; row M</code> (or {@code m} for a release). */
+    private static long mouseEvent(int code, int column, int row, boolean release) {
+        int button = (code & 3) | (code & 64) >> 4 | (code & 128) >> 4;
+        int action = release ? MOUSE_RELEASE : (code & 32) != 0 ? MOUSE_MOTION : MOUSE_PRESS;
+        int modifiers = ((code & 4) != 0 ? MOD_SHIFT : 0) | ((code & 8) != 0 ? MOD_ALT : 0) | ((code & 16) != 0 ? MOD_CTRL : 0);
+        return event(TYPE_MOUSE, modifiers, action << 20 | button << 16 | Math.min(row, 0xffff), column);
+    }
+
+}
@@ -0,0 +1,205 @@
+package io.github.btj.termios;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Name("io.github.btj.termios.InputRead")
+@Label("Terminal Input Read")
+@Category("Terminal")
+@Description("Bytes read from standard input by the pump thread, or directly in poll mode.")
+class InputReadEvent extends jdk.jfr.Event {
+    @Label("Bytes")
+    @DataAmount
+    int bytes;
+
+    @Label("Buffer Occupancy")
+    @Description("The number of bytes waiting in the ring between the pump thread and the reader, after this read")
+    @DataAmount
+    int occupancy;
+}
+
+@Name("io.github.btj.termios.InputBufferFull")
+@Label("Terminal Input Buffer Full")
+@Category("Terminal")
+@Description("The standard input pump thread waited because the ring between it and the reader was full.")
+class InputBufferFullEvent extends jdk.jfr.Event {
+    @Label("Blocked Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long blockedTime;
+}
+
+@Name("io.github.btj.termios.InputDispatch")
+@Label("Terminal Input Dispatch")
+@Category("Terminal")
+@Description("An input listener or subscription consumer was called.")
+class InputDispatchEvent extends jdk.jfr.Event {
+    @Label("Kind")
+    String kind;
+
+    @Label("Latency")
+    @Description("The time from the arrival of the bytes to the start of the call")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
+
+@Name("io.github.btj.termios.OutputFlush")
+@Label("Terminal Output Flush")
+@Category("Terminal")
+@Description("Output written to standard output with a single write call.")
+class OutputFlushEvent extends jdk.jfr.Event {
+    @Label("Bytes")
+    @DataAmount
+    int bytes;
+
+    @Label("Write Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long writeTime;
+}
+
+/**
+ * Collects the metrics returned by {@link Terminal#getMetrics()} if system property {@code io.github.btj.termios.metrics}
+ * is {@code true} at startup, and emits JDK Flight Recorder events if they are enabled in a recording.
+ *
+ * Each hook checks a static final flag and, once Flight Recorder has been initialized, whether its event is enabled,
+ * so that it does next to nothing and allocates nothing otherwise; in particular, the clock is then not read.
+ * Durations are measured with {@link System#nanoTime()} and recorded in event fields rather than as the events' own durations.
+ */
+final class Metrics {
+
+    static final boolean ENABLED = Boolean.getBoolean("io.github.btj.termios.metrics");
+    private static final boolean JFR = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    /** Set once Flight Recorder has been initialized, e.g. because a recording was started. */
+    private static volatile boolean recorderInitialized;
+
+    /**
+     * Event instances used only to check whether the corresponding event type is enabled.
+     * Loading an event class initializes Flight Recorder, which takes hundreds of milliseconds, so this class is
+     * initialized only once Flight Recorder has been initialized anyway.
+     */
+    private static final class Probes {
+        static final InputReadEvent READ = new InputReadEvent();
+        static final InputBufferFullEvent FULL = new InputBufferFullEvent();
+        static final InputDispatchEvent DISPATCH = new InputDispatchEvent();
+        static final OutputFlushEvent FLUSH = new OutputFlushEvent();
+    }
+
+    private static final AtomicLong bytesRead = new AtomicLong();
+    private static final AtomicLong producerBlockedNanos = new AtomicLong();
+    private static final AtomicLong dispatchCount = new AtomicLong();
+    private static final AtomicLong dispatchLatencyNanos = new AtomicLong();
+    private static final AtomicLong maxDispatchLatencyNanos = new AtomicLong();
+    // The following are written only while holding the lock of the default session's frame.
+    private static volatile long bytesWritten;
+    private static volatile long flushCount;
+    private static volatile long flushNanos;
+    private static volatile long maxFlushNanos;
+    private static volatile int maxFlushBytes;
+
+    private Metrics() {}
+
+    private static boolean recorderInitialized() {
+        if (recorderInitialized)
+            return true;
+        if (!JFR || !jdk.jfr.FlightRecorder.isInitialized())
+            return false;
+        recorderInitialized = true;
+        return true;
+    }
+
+    // A recording may start at any time, so whether an event is enabled is checked on every call.
+    // A start time of 0 tells the corresponding hook that there is nothing to record.
+
+    /** Returns the arrival time to pass to {@link #dispatched} for bytes that were just read, or 0. */
+    static long arrivalTime() {
+        return ENABLED || recorderInitialized() && Probes.DISPATCH.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /** Returns the start time to pass to {@link #producerBlocked}, or 0. */
+    static long blockStart() {
+        return ENABLED || recorderInitialized() && Probes.FULL.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /** Returns the start time to pass to {@link #flushed}, or 0. */
+    static long flushStart() {
+        return ENABLED || recorderInitialized() && Probes.FLUSH.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /** Called after bytes were read from standard input and, by the pump thread, put in the ring. */
+    static void inputRead(int bytes) {
+        if (ENABLED)
+            bytesRead.addAndGet(bytes);
+        if (recorderInitialized() && Probes.READ.isEnabled()) {
+            InputReadEvent event = new InputReadEvent();
+            event.bytes = bytes;
+            event.occupancy = Stdin.ringOccupancy();
+            event.commit();
+        }
+    }
+
+    /** Called after the producer waited for room in the ring since the given start time. */
+    static void producerBlocked(long start) {
+        if (start == 0)
+            return;
+        long nanos = System.nanoTime() - start;
+        if (ENABLED)
+            producerBlockedNanos.addAndGet(nanos);
+        if (recorderInitialized() && Probes.FULL.isEnabled()) {
+            InputBufferFullEvent event = new InputBufferFullEvent();
+            event.blockedTime = nanos;
+            event.commit();
+        }
+    }
+
+    /** Called before an input listener or consumer is called for bytes that arrived at the given time. */
+    static void dispatched(String kind, long arrival) {
+        if (arrival == 0)
+            return;
+        long latency = System.nanoTime() - arrival;
+        if (ENABLED) {
+            dispatchCount.incrementAndGet();
+            dispatchLatencyNanos.addAndGet(latency);
+            maxDispatchLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+        if (recorderInitialized() && Probes.DISPATCH.isEnabled()) {
+            InputDispatchEvent event = new InputDispatchEvent();
+            event.kind = kind;
+            event.latency = latency;
+            event.commit();
+        }
+    }
+
+    /** Called after output was written to standard output since the given start time, while holding the lock of the default session's {@link Frame}. */
+    static void flushed(int bytes, long start) {
+        if (start == 0)
+            return;
+        long nanos = System.nanoTime() - start;
+        if (ENABLED) {
+            bytesWritten += bytes;
+            flushCount++;
+            flushNanos += nanos;
+            if (nanos > maxFlushNanos)
+                maxFlushNanos = nanos;
+            if (bytes > maxFlushBytes)
+                maxFlushBytes = bytes;
+        }
+        if (recorderInitialized() && Probes.FLUSH.isEnabled()) {
+            OutputFlushEvent event = new OutputFlushEvent();
+            event.bytes = bytes;
+            event.writeTime = nanos;
+            event.commit();
+        }
+    }
+
+    static TerminalMetrics snapshot() {
+        return new TerminalMetrics(bytesRead.get(), bytesWritten, Stdin.ringOccupancy(), Stdin.ringHighWaterMark(), producerBlockedNanos.get(),
+                dispatchCount.get(), dispatchLatencyNanos.get(), maxDispatchLatencyNanos.get(), flushCount, flushNanos, maxFlushNanos, maxFlushBytes);
+    }
+
+}
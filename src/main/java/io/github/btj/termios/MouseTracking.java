@@ -0,0 +1,22 @@
+package io.github.btj.termios;
+
+/**
+ * The mouse events that the terminal reports once {@link Terminal#enableMouseTracking(MouseTracking)} is called.
+ * {@link KeyDecoder} decodes them into {@link KeyDecoder#TYPE_MOUSE} events.
+ */
+public enum MouseTracking {
+
+    /** Button presses and releases, and wheel scrolls (mode 1000). */
+    CLICKS(1000),
+    /** Like {@link #CLICKS}, plus movements while a button is held down (mode 1002). */
+    DRAGS(1002),
+    /** Like {@link #DRAGS}, plus movements while no button is held down (mode 1003). */
+    ALL_MOTION(1003);
+
+    final int mode;
+
+    MouseTracking(int mode) {
+        this.mode = mode;
+    }
+
+}
@@ -0,0 +1,55 @@
+package io.github.btj.termios;
+
+/**
+ * The operating system calls through which Terminal controls the terminal and reads standard input.
+ *
+ * On Java 22 and later, on Linux and macOS, these are made through the Foreign Function &amp; Memory API
+ * ({@code FfmBackend}) if native access is enabled for this library, for example with
+ * {@code --enable-native-access=ALL-UNNAMED}; then the native library need not be extracted and loaded.
+ * Otherwise, the native library is used. System property
+ * {@code io.github.btj.termios.backend} can be set to {@code jni} or {@code ffm} to override this choice;
+ * {@code ffm} selects the FFM backend even if native access is not enabled, in which case the JVM prints a warning.
+ *
+ * Resize notifications always use the native library, since a signal handler cannot be written in Java.
+ */
+abstract class NativeBackend {
+
+    static final NativeBackend INSTANCE = select();
+
+    private static NativeBackend select() {
+        String name = System.getProperty("io.github.btj.termios.backend", "");
+        if (!name.equals("jni")) {
+            NativeBackend backend = ffm(name.equals("ffm"));
+            if (backend != null)
+                return backend;
+        }
+        return new JniBackend();
+    }
+
+    /**
+     * Returns the FFM backend, or null if it is not available. If {@code force} is false,
+     * it is also not available if native access is not enabled for this library.
+     */
+    static NativeBackend ffm(boolean force) {
+        if (Runtime.version().feature() < 22)
+            return null;
+        try {
+            return (NativeBackend)Class.forName("io.github.btj.termios.FfmBackend").getDeclaredMethod("create", boolean.class).invoke(null, force);
+        } catch (ReflectiveOperationException|LinkageError e) {
+            return null; // The library was built without the FFM backend.
+        }
+    }
+
+    static void ensureSelected() {}
+
+    abstract void enterRawInputMode();
+
+    abstract void leaveRawInputMode();
+
+    /** See {@link Terminal#pollRead(byte[], int, int, long)}. */
+    abstract int pollRead(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException;
+
+    /** See {@link Terminal#queryTextAreaSize()}. */
+    abstract long queryTextAreaSize() throws java.io.IOException;
+
+}
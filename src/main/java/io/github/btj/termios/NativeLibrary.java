@@ -0,0 +1,73 @@
+package io.github.btj.termios;
+
+/**
+ * Loads the native library when this class is initialized, i.e. before the first native method is called.
+ *
+ * By default, the library is extracted from the class path into {@code java.io.tmpdir}, under a name that includes
+ * the library's MD5 digest, unless a file with that name exists already. The digest is computed at build time and
+ * stored next to the library as a resource, so that normally only a file existence check is needed.
+ * The extraction can be skipped by setting system property {@code io.github.btj.termios.library.path}
+ * to the path of the library file, or by setting system property {@code io.github.btj.termios.library.useLibraryPath}
+ * to {@code true} to look up the library in {@code java.library.path}.
+ */
+class NativeLibrary {
+
+    private static final String NAME = "io_github_btj_termios";
+
+    static {
+        String path = System.getProperty("io.github.btj.termios.library.path");
+        if (path != null)
+            System.load(path);
+        else if (Boolean.getBoolean("io.github.btj.termios.library.useLibraryPath"))
+            System.loadLibrary(NAME);
+        else {
+            try {
+                System.load(extract());
+            } catch (java.io.IOException|java.security.NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    static void ensureLoaded() {}
+
+    private static byte[] readResource(String name) throws java.io.IOException {
+        try (java.io.InputStream in = NativeLibrary.class.getClassLoader().getResourceAsStream(name)) {
+            return in == null ? null : in.readAllBytes();
+        }
+    }
+
+    private static String extract() throws java.io.IOException, java.security.NoSuchAlgorithmException {
+        String libName = System.mapLibraryName(NAME);
+        byte[] libBytes = null;
+        byte[] libMD5Resource = readResource(libName + ".md5");
+        String libMD5;
+        if (libMD5Resource != null)
+            libMD5 = new String(libMD5Resource, java.nio.charset.StandardCharsets.US_ASCII).trim();
+        else {
+            libBytes = readResource(libName);
+            byte[] libMD5Bytes = java.security.MessageDigest.getInstance("MD5").digest(libBytes);
+            libMD5 = new java.math.BigInteger(1, libMD5Bytes).toString(16);
+        }
+        String libPath = System.getProperty("java.io.tmpdir") + "/" + System.mapLibraryName(NAME + "_" + libMD5);
+        java.io.File libFile = new java.io.File(libPath);
+        if (!libFile.exists()) {
+            if (libBytes == null)
+                libBytes = readResource(libName);
+            // Write to a temporary file and rename it, so that a JVM starting concurrently never loads a partially written library.
+            java.nio.file.Path tempFile = java.nio.file.Files.createTempFile(libFile.getParentFile().toPath(), libFile.getName(), ".tmp");
+            try {
+                java.nio.file.Files.write(tempFile, libBytes);
+                java.nio.file.Files.move(tempFile, libFile.toPath(), java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            } catch (java.io.IOException e) {
+                if (!libFile.exists())
+                    throw e;
+            } finally {
+                java.nio.file.Files.deleteIfExists(tempFile);
+            }
+        }
+        //System.out.println("The library is at " + libPath);
+        return libPath;
+    }
+
+}
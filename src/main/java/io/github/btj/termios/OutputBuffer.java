@@ -0,0 +1,468 @@
+package io.github.btj.termios;
+
+/**
+ * A reusable, growable direct buffer into which control sequences and text are encoded
+ * before being written to the terminal in one go.
+ */
+final class OutputBuffer {
+
+    private java.nio.ByteBuffer bytes = java.nio.ByteBuffer.allocateDirect(8192);
+
+    int length() { return bytes.position(); }
+
+    void clear() { bytes.clear(); }
+
+    /** Copies the contents of this buffer into the given array, starting at the given offset. */
+    void copyTo(byte[] destination, int offset) { bytes.get(0, destination, offset, bytes.position()); }
+
+    private void ensureCapacity(int extra) {
+        if (bytes.remaining() < extra) {
+            java.nio.ByteBuffer newBytes = java.nio.ByteBuffer.allocateDirect(Math.max(bytes.capacity() * 2, bytes.position() + extra));
+            bytes.flip();
+            newBytes.put(bytes);
+            bytes = newBytes;
+        }
+    }
+
+    void put(int b) {
+        ensureCapacity(1);
+        bytes.put((byte)b);
+    }
+
+    void putAscii(String text) {
+        int n = text.length();
+        ensureCapacity(n);
+        for (int i = 0; i < n; i++)
+            bytes.put((byte)text.charAt(i));
+    }
+
+    void putAscii(CharSequence text, int start, int end) {
+        ensureCapacity(end - start);
+        for (int i = start; i < end; i++)
+            bytes.put((byte)text.charAt(i));
+    }
+
+    void putAscii(char[] text, int offset, int count) {
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++)
+            bytes.put((byte)text[offset + i]);
+    }
+
+    void put(byte[] b, int offset, int count) {
+        ensureCapacity(count);
+        bytes.put(b, offset, count);
+    }
+
+    /** Appends the contents of the given buffer and clears the given buffer. */
+    void moveFrom(OutputBuffer other) {
+        ensureCapacity(other.length());
+        other.bytes.flip();
+        bytes.put(other.bytes);
+        other.bytes.clear();
+    }
+
+    /** Returns the number of bytes of the UTF-8 encoding of the given code point. */
+    static int utf8Length(int codePoint) {
+        return codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /** Appends the UTF-8 encoding of the given code point, which must not be a surrogate. */
+    void putCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            put(codePoint);
+            return;
+        }
+        ensureCapacity(4);
+        if (codePoint < 0x800) {
+            bytes.put((byte)(0xC0 | codePoint >> 6));
+        } else {
+            if (codePoint < 0x10000) {
+                bytes.put((byte)(0xE0 | codePoint >> 12));
+            } else {
+                bytes.put((byte)(0xF0 | codePoint >> 18));
+                bytes.put((byte)(0x80 | codePoint >> 12 & 0x3F));
+            }
+            bytes.put((byte)(0x80 | codePoint >> 6 & 0x3F));
+        }
+        bytes.put((byte)(0x80 | codePoint & 0x3F));
+    }
+
+    /**
+     * Appends the given range of the given text in UTF-8. The range must not contain unpaired surrogates.
+     * ASCII text is copied byte for byte, as by {@link #putAscii(CharSequence, int, int)}.
+     */
+    void putUtf8(CharSequence text, int start, int end) {
+        ensureCapacity(end - start);
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes.put((byte)c);
+            } else {
+                if (Character.isHighSurrogate(c))
+                    putCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+                else
+                    putCodePoint(c);
+                // The encoding took more than one byte per char, so make room for the rest again.
+                ensureCapacity(end - i - 1);
+            }
+        }
+    }
+
+    /** Like {@link #putUtf8(CharSequence, int, int)}, but for the given range of the given array. */
+    void putUtf8(char[] text, int offset, int count) {
+        ensureCapacity(count);
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            char c = text[i];
+            if (c < 0x80) {
+                bytes.put((byte)c);
+            } else {
+                if (Character.isHighSurrogate(c))
+                    putCodePoint(Character.toCodePoint(c, text[++i]));
+                else
+                    putCodePoint(c);
+                ensureCapacity(end - i - 1);
+            }
+        }
+    }
+
+    /** Returns the number of decimal digits of the given nonnegative value. */
+    static int digits(int value) {
+        int n = 1;
+        while (value >= 10) {
+            value /= 10;
+            n++;
+        }
+        return n;
+    }
+
+    /** Appends the given nonnegative value in decimal. */
+    void putDecimal(int value) {
+        int n = digits(value);
+        ensureCapacity(n);
+        int position = bytes.position();
+        for (int i = position + n - 1; i >= position; i--) {
+            bytes.put(i, (byte)('0' + value % 10));
+            value /= 10;
+        }
+        bytes.position(position + n);
+    }
+
+    /** Appends the Control Sequence Introducer, <code>ESC [</code>. */
+    void putCsi() {
+        ensureCapacity(2);
+        bytes.put((byte)'\033');
+        bytes.put((byte)'[');
+    }
+
+    /**
+     * Appends a Cursor Position sequence for the given row and column (both 1-based),
+     * leaving out parameters that equal their default value 1.
+     */
+    void putMoveCursor(int row, int column) {
+        putCsi();
+        if (row != 1)
+            putDecimal(row);
+        if (column != 1) {
+            put(';');
+            putDecimal(column);
+        }
+        put('H');
+    }
+
+    /** Returns the number of bytes appended by {@link #putMoveCursor(int, int)}. */
+    static int moveCursorLength(int row, int column) {
+        return 3 + (row == 1 ? 0 : digits(row)) + (column == 1 ? 0 : 1 + digits(column));
+    }
+
+    /** Returns the number of bytes of a control sequence with the given count as its parameter, which is left out if it is 1. */
+    private static int countSequenceLength(int count) {
+        return count == 1 ? 3 : 3 + digits(count);
+    }
+
+    private void putCountSequence(int count, char finalByte) {
+        putCsi();
+        if (count != 1)
+            putDecimal(count);
+        put(finalByte);
+    }
+
+    /**
+     * Returns the number of bytes of the shortest sequence that moves the cursor from the given column to the given other column
+     * on the same row: Carriage Return, backspaces, Cursor Backward or Forward, or Cursor Horizontal Absolute; and appends it if requested.
+     */
+    private int moveHorizontally(int fromColumn, int column, boolean append) {
+        if (column == fromColumn)
+            return 0;
+        int absoluteLength = countSequenceLength(column);
+        if (column == 1) {
+            if (append)
+                put('\r');
+            return 1;
+        }
+        int distance = Math.abs(column - fromColumn);
+        int relativeLength = column < fromColumn ? Math.min(distance, countSequenceLength(distance)) : countSequenceLength(distance);
+        if (absoluteLength < relativeLength) {
+            if (append)
+                putCountSequence(column, 'G');
+            return absoluteLength;
+        }
+        if (append) {
+            if (column > fromColumn)
+                putCountSequence(distance, 'C');
+            else if (distance < countSequenceLength(distance))
+                for (int i = 0; i < distance; i++)
+                    put('\b');
+            else
+                putCountSequence(distance, 'D');
+        }
+        return relativeLength;
+    }
+
+    /** Returns the number of bytes of a Cursor Up or Cursor Down sequence from the given row to the given row, and appends it if requested. */
+    private int moveVertically(int fromRow, int row, boolean append) {
+        if (row == fromRow)
+            return 0;
+        int distance = Math.abs(row - fromRow);
+        if (append)
+            putCountSequence(distance, row < fromRow ? 'A' : 'B');
+        return countSequenceLength(distance);
+    }
+
+    /**
+     * Returns the number of bytes of the shortest sequence that moves the cursor down from column 1 of the given row
+     * to column 1 of the given lower row: line feeds, if allowed, or Cursor Down; and appends it if requested.
+     * Line feeds keep the cursor in column 1 whether or not the terminal driver translates them into CR LF.
+     */
+    private int moveDownFromFirstColumn(int fromRow, int row, boolean lineFeeds, boolean append) {
+        int distance = row - fromRow;
+        if (!lineFeeds || distance <= 0 || distance > countSequenceLength(distance))
+            return moveVertically(fromRow, row, append);
+        if (append)
+            for (int i = 0; i < distance; i++)
+                put('\n');
+        return distance;
+    }
+
+    private static final int MOVE_ABSOLUTE = 0, MOVE_RELATIVE = 1, MOVE_FROM_FIRST_COLUMN = 2, MOVE_COLUMN_FIRST = 3;
+
+    /**
+     * Returns the number of bytes of the shortest sequence that moves the cursor from the given position to the given position,
+     * and appends it if requested. See {@link #putMoveCursor(int, int, int, int, boolean)}.
+     */
+    private int moveCursor(int fromRow, int fromColumn, int row, int column, boolean lineFeeds, boolean append) {
+        int bestLength = moveCursorLength(row, column), best = MOVE_ABSOLUTE;
+        if (fromRow > 0) {
+            if (fromColumn > 0) {
+                int length = moveVertically(fromRow, row, false) + moveHorizontally(fromColumn, column, false);
+                if (length == 0)
+                    return 0;
+                if (length < bestLength) {
+                    bestLength = length;
+                    best = MOVE_RELATIVE;
+                }
+            }
+            // A carriage return or an absolute column first, which also work if the cursor's column is unknown.
+            int length = 1 + moveDownFromFirstColumn(fromRow, row, lineFeeds, false) + moveHorizontally(1, column, false);
+            if (length < bestLength) {
+                bestLength = length;
+                best = MOVE_FROM_FIRST_COLUMN;
+            }
+            length = countSequenceLength(column) + moveVertically(fromRow, row, false);
+            if (length < bestLength) {
+                bestLength = length;
+                best = MOVE_COLUMN_FIRST;
+            }
+        }
+        if (append) {
+            switch (best) {
+                case MOVE_ABSOLUTE -> putMoveCursor(row, column);
+                case MOVE_RELATIVE -> {
+                    moveVertically(fromRow, row, true);
+                    moveHorizontally(fromColumn, column, true);
+                }
+                case MOVE_FROM_FIRST_COLUMN -> {
+                    put('\r');
+                    moveDownFromFirstColumn(fromRow, row, lineFeeds, true);
+                    moveHorizontally(1, column, true);
+                }
+                default -> {
+                    putCountSequence(column, 'G');
+                    moveVertically(fromRow, row, true);
+                }
+            }
+        }
+        return bestLength;
+    }
+
+    /**
+     * Appends the shortest sequence that moves the cursor from the given position to the given position (all 1-based):
+     * nothing, a Cursor Position sequence, or a combination of Carriage Return, line feeds, backspaces,
+     * Cursor Up, Down, Forward or Backward, and Cursor Horizontal Absolute.
+     * A current row or column of 0 means that it is unknown; a known row with an unknown column also covers the case where
+     * the last character was printed in the last column, so that the terminal's next character would wrap.
+     * Line feeds are only used if allowed, since a line feed at the bottom of a scroll region scrolls it.
+     */
+    void putMoveCursor(int fromRow, int fromColumn, int row, int column, boolean lineFeeds) {
+        moveCursor(fromRow, fromColumn, row, column, lineFeeds, true);
+    }
+
+    /** Returns the number of bytes appended by {@link #putMoveCursor(int, int, int, int, boolean)}. */
+    int moveCursorLength(int fromRow, int fromColumn, int row, int column, boolean lineFeeds) {
+        return moveCursor(fromRow, fromColumn, row, column, lineFeeds, false);
+    }
+
+    /** Appends a control sequence with the given nonnegative parameter and the given final byte, e.g. <code>ESC [ 3 S</code>. */
+    void putCsi(int parameter, char finalByte) {
+        putCsi();
+        putDecimal(parameter);
+        put(finalByte);
+    }
+
+    /** Returns the number of bytes appended by {@link #putCsi(int, char)}. */
+    static int csiLength(int parameter) {
+        return 3 + digits(parameter);
+    }
+
+    /** Appends a Set Top and Bottom Margins (DECSTBM) sequence for the given rows (both 1-based). */
+    void putScrollRegion(int top, int bottom) {
+        putCsi();
+        putDecimal(top);
+        put(';');
+        putDecimal(bottom);
+        put('r');
+    }
+
+    /** Returns the number of bytes appended by {@link #putScrollRegion(int, int)}. */
+    static int scrollRegionLength(int top, int bottom) {
+        return 4 + digits(top) + digits(bottom);
+    }
+
+    /** Stands for a graphic rendition that is not known, e.g. because the screen was modified by other means. */
+    static final long UNKNOWN_STYLE = -1;
+
+    private static final int[] ATTRIBUTE_ON = {1, 2, 3, 4, 5, 7, 9};
+    private static final int[] ATTRIBUTE_OFF = {22, 22, 23, 24, 25, 27, 29};
+    /** The parameters of the SGR sequence being built; at most 7 attributes and two colours of 3 parameters each. */
+    private final int[] sgrParams = new int[16];
+    private int sgrParamCount;
+
+    private void addSgrColor(int color, int base) {
+        int[] params = sgrParams;
+        if (color == Style.DEFAULT_COLOR)
+            params[sgrParamCount++] = base + 9;
+        else if (color < 8)
+            params[sgrParamCount++] = base + color;
+        else if (color < 16)
+            params[sgrParamCount++] = base + 60 + color - 8;
+        else {
+            params[sgrParamCount++] = base + 8;
+            params[sgrParamCount++] = 5;
+            params[sgrParamCount++] = color;
+        }
+    }
+
+    /** Returns the number of bytes of the parameters, including the separators between them. */
+    private int sgrParamsLength() {
+        int length = Math.max(0, sgrParamCount - 1);
+        for (int i = 0; i < sgrParamCount; i++)
+            length += digits(sgrParams[i]);
+        return length;
+    }
+
+    /** Sets the SGR parameters that reset the graphic rendition and then select the given style. */
+    private void setFullSgrParams(long style) {
+        sgrParamCount = 0;
+        if (style == Style.DEFAULT)
+            return; // ESC [ m
+        sgrParams[sgrParamCount++] = 0;
+        int attributes = Style.getAttributes(style);
+        for (int i = 0; i < ATTRIBUTE_ON.length; i++)
+            if ((attributes & 1 << i) != 0)
+                sgrParams[sgrParamCount++] = ATTRIBUTE_ON[i];
+        if (Style.getForeground(style) != Style.DEFAULT_COLOR)
+            addSgrColor(Style.getForeground(style), 30);
+        if (Style.getBackground(style) != Style.DEFAULT_COLOR)
+            addSgrColor(Style.getBackground(style), 40);
+    }
+
+    /** Sets the SGR parameters that change only what differs between the given styles. */
+    private void setDeltaSgrParams(long from, long to) {
+        sgrParamCount = 0;
+        int fromAttributes = Style.getAttributes(from);
+        int toAttributes = Style.getAttributes(to);
+        int removed = fromAttributes & ~toAttributes;
+        if ((removed & (Style.BOLD | Style.DIM)) != 0) {
+            // Bold and dim share their off code, so if one of them is to stay on, it is turned on again below.
+            sgrParams[sgrParamCount++] = ATTRIBUTE_OFF[0];
+            fromAttributes &= ~(Style.BOLD | Style.DIM);
+        }
+        for (int i = 2; i < ATTRIBUTE_OFF.length; i++)
+            if ((removed & 1 << i) != 0)
+                sgrParams[sgrParamCount++] = ATTRIBUTE_OFF[i];
+        int added = toAttributes & ~fromAttributes;
+        for (int i = 0; i < ATTRIBUTE_ON.length; i++)
+            if ((added & 1 << i) != 0)
+                sgrParams[sgrParamCount++] = ATTRIBUTE_ON[i];
+        if (Style.getForeground(from) != Style.getForeground(to))
+            addSgrColor(Style.getForeground(to), 30);
+        if (Style.getBackground(from) != Style.getBackground(to))
+            addSgrColor(Style.getBackground(to), 40);
+    }
+
+    /**
+     * Sets the parameters of the shortest Select Graphic Rendition sequence that changes the terminal's graphic rendition
+     * from the given style, or {@link #UNKNOWN_STYLE}, to the given, different style: either one that changes only what differs,
+     * for example only the foreground colour, or one that resets everything and selects the new style from scratch.
+     * Returns the length of the sequence.
+     */
+    private int setSgrParams(long from, long to) {
+        setFullSgrParams(to);
+        int fullLength = sgrParamsLength();
+        if (from != UNKNOWN_STYLE) {
+            setDeltaSgrParams(from, to);
+            int deltaLength = sgrParamsLength();
+            if (deltaLength < fullLength)
+                return 3 + deltaLength;
+            setFullSgrParams(to);
+        }
+        return 3 + fullLength;
+    }
+
+    /** Returns the number of bytes appended by {@link #putSgr(long, long)}. */
+    int sgrLength(long from, long to) {
+        return from == to ? 0 : setSgrParams(from, to);
+    }
+
+    /**
+     * Appends the shortest Select Graphic Rendition sequence that changes the terminal's graphic rendition
+     * from the given style, or {@link #UNKNOWN_STYLE}, to the given style, if they differ.
+     */
+    void putSgr(long from, long to) {
+        if (from == to)
+            return;
+        setSgrParams(from, to);
+        putCsi();
+        for (int i = 0; i < sgrParamCount; i++) {
+            if (i > 0)
+                put(';');
+            putDecimal(sgrParams[i]);
+        }
+        put('m');
+    }
+
+    /**
+     * Writes the contents of this buffer to the given channel and clears this buffer.
+     * A single write call suffices unless the channel accepts only part of the bytes.
+     */
+    void writeTo(java.nio.channels.WritableByteChannel channel) throws java.io.IOException {
+        bytes.flip();
+        try {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        } finally {
+            bytes.clear();
+        }
+    }
+
+}
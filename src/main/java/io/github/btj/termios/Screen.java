@@ -0,0 +1,497 @@
+package io.github.btj.termios;
+
+/**
+ * A double-buffered grid of character cells that is drawn on the terminal.
+ *
+ * Drawing methods such as {@link #setCell(int, int, char)} and {@link #writeString(int, int, String)}
+ * only update the back buffer. {@link #flush()} compares the back buffer with the front buffer,
+ * which holds what is currently on the terminal, and writes only the cells that changed,
+ * with a single write call. Unchanged cells between two changed cells on the same row
+ * are rewritten if that takes fewer bytes than moving the cursor past them.
+ * If a range of full-width rows moved up or down, as in a log view that shows a new line,
+ * flush first scrolls that range on the terminal, using a scroll region (DECSTBM) and Scroll Up or Scroll Down,
+ * or Insert Line or Delete Line if the range extends to the last row, so that only the rows scrolled in need to be written.
+ *
+ * Rows and columns are 0-based. Each cell contains a printable Unicode character and a {@link Style}:
+ * colours and attributes such as bold. Each cell is stored as a single {@code long} in a flat array.
+ * A wide character, such as a CJK ideograph, occupies two cells; the second one contains character 0.
+ * Writing over either half of a wide character replaces the other half by a space.
+ * Zero-width characters, such as combining marks, cannot be stored; {@link #writeString} skips them,
+ * so text should be in composed form (NFC).
+ * When consecutive cells that are written differ in style, only the difference is sent to the terminal,
+ * for example only the new foreground colour, unless resetting the style and selecting the new one from scratch is shorter.
+ * After a flush, the terminal's style is the default style.
+ * A Screen is not thread-safe.
+ *
+ * Example:
+ * <pre>
+ * Screen screen = new Screen(height, width);
+ * for (;;) {
+ *     screen.clear();
+ *     screen.writeString(0, 0, "Hello");
+ *     screen.writeString(1, 0, "Error", Style.foreground(Style.RED));
+ *     screen.setCursor(ballRow, ballColumn);
+ *     screen.flush();
+ *     ...
+ * }
+ * </pre>
+ */
+public final class Screen {
+
+    private final int height;
+    private final int width;
+    /** What is currently shown on the terminal, as far as we know. Each cell is a character combined with a style. */
+    private final long[] front;
+    /** What should be shown on the terminal after the next flush. */
+    private final long[] back;
+    /** The session to draw on, or null to write to {@code out}. */
+    private final TerminalSession session;
+    private final java.io.OutputStream out;
+    private final java.nio.channels.WritableByteChannel channel;
+    private final OutputBuffer output = new OutputBuffer();
+    private boolean repaintAll = true;
+    /** The terminal's cursor position (0-based), or -1 if unknown. */
+    private int cursorRow = -1;
+    private int cursorColumn = -1;
+    /** The terminal's current style, or OutputBuffer.UNKNOWN_STYLE. */
+    private long currentStyle = OutputBuffer.UNKNOWN_STYLE;
+    private int targetCursorRow;
+    private int targetCursorColumn;
+    private long bytesWritten;
+    /** The hash of each row of the back and front buffers, computed by flush to find rows that moved. */
+    private final long[] backHashes;
+    private final long[] frontHashes;
+
+    /**
+     * Creates a Screen of the given size that draws on standard output.
+     *
+     * @throws IllegalArgumentException if the given height or width are less than 1.
+     */
+    public Screen(int height, int width) {
+        this(height, width, TerminalSession.getDefault(), null, null);
+    }
+
+    /**
+     * Creates a Screen of the given size that draws on the given session's terminal.
+     * For the default session, this is the same as {@link #Screen(int, int)}.
+     *
+     * @throws IllegalArgumentException if the given height or width are less than 1.
+     */
+    public Screen(int height, int width, TerminalSession session) {
+        this(height, width, java.util.Objects.requireNonNull(session), null, null);
+    }
+
+    /**
+     * Creates a Screen of the given size that writes its output to the given stream.
+     *
+     * @throws IllegalArgumentException if the given height or width are less than 1.
+     */
+    public Screen(int height, int width, java.io.OutputStream out) {
+        this(height, width, null, java.util.Objects.requireNonNull(out), java.nio.channels.Channels.newChannel(out));
+    }
+
+    private Screen(int height, int width, TerminalSession session, java.io.OutputStream out, java.nio.channels.WritableByteChannel channel) {
+        if (height < 1)
+            throw new IllegalArgumentException("The given height is less than 1");
+        if (width < 1)
+            throw new IllegalArgumentException("The given width is less than 1");
+        this.height = height;
+        this.width = width;
+        this.session = session;
+        this.out = out;
+        this.channel = channel;
+        front = new long[height * width];
+        back = new long[height * width];
+        java.util.Arrays.fill(back, ' ');
+        backHashes = new long[height];
+        frontHashes = new long[height];
+    }
+
+    public int getHeight() { return height; }
+
+    public int getWidth() { return width; }
+
+    /**
+     * Returns the total number of bytes written by {@link #flush()} so far.
+     */
+    public long getBytesWritten() { return bytesWritten; }
+
+    private void checkPosition(int row, int column) {
+        if (row < 0 || height <= row)
+            throw new IllegalArgumentException("The given row is out of bounds");
+        if (column < 0 || width <= column)
+            throw new IllegalArgumentException("The given column is out of bounds");
+    }
+
+    /** The code point of the second cell of a wide character. */
+    private static final int CONTINUATION = 0;
+
+    private static boolean isContinuation(long cell) {
+        return (cell & Style.CODE_POINT_MASK) == CONTINUATION;
+    }
+
+    /** If the cell at the given index is half of a wide character, replaces the other half by a space in the same style. */
+    private void breakWideCharacter(int index) {
+        long cell = back[index];
+        if (isContinuation(cell))
+            back[index - 1] = (cell & Style.MASK) | ' ';
+        else if ((cell & Style.WIDE) != 0)
+            back[index + 1] = (cell & Style.MASK) | ' ';
+    }
+
+    /** Stores the given code point, whose width is the given width, in the cell at the given index, which must be in bounds. */
+    private void put(int index, int codePoint, int columns, long style) {
+        breakWideCharacter(index);
+        if (columns == 2) {
+            breakWideCharacter(index + 1);
+            back[index] = style | Style.WIDE | codePoint;
+            back[index + 1] = style | CONTINUATION;
+        } else
+            back[index] = style | codePoint;
+    }
+
+    /**
+     * Fills the back buffer with spaces in the default style.
+     */
+    public void clear() {
+        java.util.Arrays.fill(back, ' ');
+    }
+
+    /**
+     * Returns the character in the given cell of the back buffer, or the high surrogate if it is a supplementary character.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     */
+    public char getCell(int row, int column) {
+        int codePoint = getCodePoint(row, column);
+        return Character.isBmpCodePoint(codePoint) ? (char)codePoint : Character.highSurrogate(codePoint);
+    }
+
+    /**
+     * Returns the code point of the character in the given cell of the back buffer.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     */
+    public int getCodePoint(int row, int column) {
+        checkPosition(row, column);
+        return (int)(back[row * width + column] & Style.CODE_POINT_MASK);
+    }
+
+    /**
+     * Returns the style of the given cell of the back buffer.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     */
+    public long getStyle(int row, int column) {
+        checkPosition(row, column);
+        return back[row * width + column] & Style.MASK;
+    }
+
+    /**
+     * Sets the given cell of the back buffer to the given character. If it is a wide character, it also occupies the next cell.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     * @throws IllegalArgumentException if the given character is a control character, a surrogate or a zero-width character,
+     *         or a wide character and the given column is the last one.
+     */
+    public void setCell(int row, int column, char c) {
+        setCell(row, column, c, Style.DEFAULT);
+    }
+
+    /**
+     * Sets the given cell of the back buffer to the given character in the given style.
+     * If it is a wide character, it also occupies the next cell.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     * @throws IllegalArgumentException if the given character is a control character, a surrogate or a zero-width character,
+     *         or a wide character and the given column is the last one.
+     * @throws IllegalArgumentException if the given style was not obtained from {@link Style}.
+     */
+    public void setCell(int row, int column, char c, long style) {
+        checkPosition(row, column);
+        Style.check(style);
+        int columns = CharWidth.of(c);
+        if (columns < 0)
+            throw new IllegalArgumentException("The given character is a control character or a surrogate");
+        if (columns == 0)
+            throw new IllegalArgumentException("The given character is a zero-width character");
+        if (column + columns > width)
+            throw new IllegalArgumentException("The given wide character does not fit in the given column");
+        put(row * width + column, c, columns, style);
+    }
+
+    /**
+     * Writes the given text into the back buffer, starting at the given cell.
+     * Wide characters occupy two cells, and zero-width characters are skipped. Text that does not fit on the row is cut off.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     */
+    public void writeString(int row, int column, String text) {
+        writeString(row, column, text, Style.DEFAULT);
+    }
+
+    /**
+     * Writes the given text into the back buffer in the given style, starting at the given cell.
+     * Wide characters occupy two cells, and zero-width characters are skipped. Text that does not fit on the row is cut off.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     * @throws IllegalArgumentException if the given style was not obtained from {@link Style}.
+     */
+    public void writeString(int row, int column, String text, long style) {
+        checkPosition(row, column);
+        Style.check(style);
+        int length = text.length();
+        CharWidth.columns(text, 0, length); // Rejects unprintable text before anything is written.
+        int rowStart = row * width;
+        for (int i = 0; i < length && column < width; i++) {
+            char c = text.charAt(i);
+            if (c < 0x7F) {
+                put(rowStart + column++, c, 1, style);
+                continue;
+            }
+            int codePoint = CharWidth.codePointAt(text, i, length);
+            if (codePoint > 0xFFFF)
+                i++;
+            int columns = CharWidth.of(codePoint);
+            if (column + columns > width)
+                break;
+            if (columns > 0) {
+                put(rowStart + column, codePoint, columns, style);
+                column += columns;
+            }
+        }
+    }
+
+    /**
+     * Sets the cell where the terminal's cursor is to be left after the next flush.
+     *
+     * @throws IllegalArgumentException if the given row or column are out of bounds.
+     */
+    public void setCursor(int row, int column) {
+        checkPosition(row, column);
+        targetCursorRow = row;
+        targetCursorColumn = column;
+    }
+
+    /**
+     * Causes the next flush to clear the terminal's screen and redraw all cells,
+     * for example because the screen was modified by other means.
+     */
+    public void invalidate() {
+        repaintAll = true;
+        currentStyle = OutputBuffer.UNKNOWN_STYLE;
+    }
+
+    /** Returns whether cursor movements may use line feeds: only if no scroll region set by other means could make them scroll. */
+    private boolean lineFeeds() {
+        return session == null || !session.scrollRegionMaybeSet();
+    }
+
+    private void moveCursor(int row, int column) {
+        if (row == cursorRow && column == cursorColumn)
+            return;
+        output.putMoveCursor(cursorRow + 1, cursorColumn + 1, row + 1, column + 1, lineFeeds());
+        cursorRow = row;
+        cursorColumn = column;
+    }
+
+    private long hashRow(long[] cells, int row) {
+        long hash = 0;
+        for (int i = row * width, end = i + width; i < end; i++)
+            hash = (hash ^ cells[i]) * 0x9E3779B97F4A7C15L;
+        return hash;
+    }
+
+    /** Returns the number of cells of the given row of the back buffer that differ from the given row of the front buffer, or from a blank row if it is -1. */
+    private int countChanges(int row, int frontRow) {
+        int count = 0;
+        for (int column = 0; column < width; column++)
+            if (back[row * width + column] != (frontRow < 0 ? ' ' : front[frontRow * width + column]))
+                count++;
+        return count;
+    }
+
+    /**
+     * Looks for the run of rows of the back buffer that equal the rows of the front buffer a fixed number of rows
+     * below (the contents moved up) or above (the contents moved down) and that contains the most rows that changed.
+     * If scrolling the range spanned by those rows on the terminal, and then writing the rows scrolled in,
+     * takes fewer bytes than updating the range in place, emits the scroll and updates the front buffer and its hashes accordingly.
+     * Returns whether it did.
+     *
+     * Runs are found by comparing row hashes; the number of changed cells serves as an estimate of the bytes needed to update a row.
+     */
+    private boolean scroll() {
+        int bestShift = 0, bestFirst = 0, bestLast = 0, bestGain = 0;
+        // Back row r equals front row r + shift; a positive shift means the contents moved up.
+        for (int shift = 1 - height; shift < height; shift++) {
+            if (shift == 0)
+                continue;
+            int from = Math.max(0, -shift), to = Math.min(height, height - shift);
+            int first = -1, gain = 0;
+            for (int row = from; row <= to; row++) {
+                if (row < to && backHashes[row] == frontHashes[row + shift]) {
+                    if (first < 0) {
+                        first = row;
+                        gain = 0;
+                    }
+                    if (backHashes[row] != frontHashes[row])
+                        gain++;
+                } else if (first >= 0) {
+                    if (gain > bestGain) {
+                        bestShift = shift;
+                        bestFirst = first;
+                        bestLast = row - 1;
+                        bestGain = gain;
+                    }
+                    first = -1;
+                }
+            }
+        }
+        if (bestGain == 0)
+            return false;
+
+        int shift = bestShift, lines = Math.abs(shift);
+        int top = shift > 0 ? bestFirst : bestFirst + shift;
+        int bottom = shift > 0 ? bestLast + shift : bestLast;
+        int scrollLength = output.sgrLength(currentStyle, Style.DEFAULT) + OutputBuffer.csiLength(lines);
+        if (top > 0 || bottom < height - 1) {
+            if (bottom == height - 1)
+                scrollLength += OutputBuffer.moveCursorLength(top + 1, 1);
+            else
+                scrollLength += OutputBuffer.scrollRegionLength(top + 1, bottom + 1) + 3;
+        }
+        int updateLength = 0;
+        for (int row = top; row <= bottom; row++) {
+            updateLength += countChanges(row, row);
+            if (row < bestFirst || bestLast < row)
+                scrollLength += countChanges(row, -1);
+            else if (!java.util.Arrays.equals(back, row * width, (row + 1) * width, front, (row + shift) * width, (row + shift + 1) * width))
+                return false; // The hashes collided.
+        }
+        if (scrollLength >= updateLength)
+            return false;
+
+        // Scrolled-in rows are erased to the current background colour.
+        output.putSgr(currentStyle, Style.DEFAULT);
+        currentStyle = Style.DEFAULT;
+        if (top == 0 && bottom == height - 1)
+            output.putCsi(lines, shift > 0 ? 'S' : 'T');
+        else if (bottom == height - 1) {
+            // Delete Line and Insert Line shift the rows from the cursor's row down to the bottom of the screen.
+            output.putMoveCursor(top + 1, 1);
+            output.putCsi(lines, shift > 0 ? 'M' : 'L');
+            cursorRow = top;
+            cursorColumn = -1; // Some terminals move the cursor to the first column.
+        } else {
+            output.putScrollRegion(top + 1, bottom + 1);
+            output.putCsi(lines, shift > 0 ? 'S' : 'T');
+            output.putCsi();
+            output.put('r');
+            cursorRow = -1;
+        }
+        int moved = bottom - top + 1 - lines;
+        int blankFrom = shift > 0 ? bottom - lines + 1 : top;
+        if (shift > 0) {
+            System.arraycopy(front, (top + lines) * width, front, top * width, moved * width);
+            System.arraycopy(frontHashes, top + lines, frontHashes, top, moved);
+        } else {
+            System.arraycopy(front, top * width, front, (top + lines) * width, moved * width);
+            System.arraycopy(frontHashes, top, frontHashes, top + lines, moved);
+        }
+        java.util.Arrays.fill(front, blankFrom * width, (blankFrom + lines) * width, ' ');
+        java.util.Arrays.fill(frontHashes, blankFrom, blankFrom + lines, hashRow(front, blankFrom));
+        return true;
+    }
+
+    /**
+     * Updates the terminal so that it shows the back buffer, and moves the cursor to the cell
+     * set by {@link #setCursor(int, int)}.
+     *
+     * @throws java.io.UncheckedIOException if writing the output fails.
+     */
+    public void flush() {
+        output.clear();
+        if (repaintAll) {
+            // Many terminals clear the screen to the current background colour.
+            output.putSgr(currentStyle, Style.DEFAULT);
+            currentStyle = Style.DEFAULT;
+            output.putCsi();
+            output.putAscii("2J");
+            cursorRow = -1;
+            java.util.Arrays.fill(front, ' ');
+            repaintAll = false;
+        } else {
+            for (int row = 0; row < height; row++) {
+                backHashes[row] = hashRow(back, row);
+                frontHashes[row] = hashRow(front, row);
+            }
+            while (scroll()) {}
+        }
+        boolean lineFeeds = lineFeeds();
+        for (int row = 0; row < height; row++) {
+            int rowStart = row * width;
+            int column = 0;
+            while (column < width) {
+                if (back[rowStart + column] == front[rowStart + column]) {
+                    column++;
+                    continue;
+                }
+                // Extend the run across unchanged cells if rewriting them, including any style changes,
+                // is cheaper than moving the cursor past them, which is done using the shortest cursor movement.
+                int end = column + 1;
+                if (end < width && isContinuation(back[rowStart + end]))
+                    end++; // A wide character and its second cell are written together.
+                int rewriteLength = 0;
+                long rewriteStyle = back[rowStart + column] & Style.MASK;
+                for (int next = end; next < width; next++) {
+                    long cell = back[rowStart + next];
+                    long style = cell & Style.MASK;
+                    if (cell != front[rowStart + next]) {
+                        long runStyle = back[rowStart + end - 1] & Style.MASK;
+                        if (rewriteLength + output.sgrLength(rewriteStyle, style) >
+                                output.moveCursorLength(row + 1, end + 1, row + 1, next + 1, lineFeeds) + output.sgrLength(runStyle, style))
+                            break;
+                        end = next + 1;
+                        if (end < width && isContinuation(back[rowStart + end]))
+                            end++;
+                        rewriteLength = 0;
+                    } else
+                        rewriteLength += output.sgrLength(rewriteStyle, style) + (isContinuation(cell) ? 0 : OutputBuffer.utf8Length((int)(cell & Style.CODE_POINT_MASK)));
+                    rewriteStyle = style;
+                }
+                moveCursor(row, column);
+                for (int i = rowStart + column; i < rowStart + end; i++) {
+                    long cell = back[i];
+                    long style = cell & Style.MASK;
+                    if (style != currentStyle) {
+                        output.putSgr(currentStyle, style);
+                        currentStyle = style;
+                    }
+                    if (!isContinuation(cell))
+                        output.putCodePoint((int)(cell & Style.CODE_POINT_MASK));
+                }
+                System.arraycopy(back, rowStart + column, front, rowStart + column, end - column);
+                // After writing the last column, the cursor's column is not well-defined until a carriage return or an absolute move.
+                cursorColumn = end < width ? end : -1;
+                column = end;
+            }
+        }
+        output.putSgr(currentStyle, Style.DEFAULT);
+        currentStyle = Style.DEFAULT;
+        moveCursor(targetCursorRow, targetCursorColumn);
+        bytesWritten += output.length();
+        if (session != null) {
+            session.write(output);
+            return;
+        }
+        try {
+            output.writeTo(channel);
+            out.flush();
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+}
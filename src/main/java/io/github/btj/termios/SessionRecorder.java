@@ -0,0 +1,218 @@
+package io.github.btj.termios;
+
+/**
+ * Records the bytes read from standard input and the bytes written to standard output by this library into a file,
+ * so that a session can be replayed later using {@link SessionReplayer}.
+ *
+ * Output written to {@link System#out} directly, rather than through {@link Terminal} or {@link Frame}, is not recorded.
+ * Recording is cheap for the recorded threads: each chunk of input or output is copied into a memory buffer,
+ * which a background thread writes to the file.
+ * Instead of calling {@link #start(java.nio.file.Path)}, one can record a whole run of an application by setting
+ * the system property {@code io.github.btj.termios.record} to the path of the file.
+ *
+ * The file starts with the bytes {@code TREC} and a version byte (1). Then follows a record for each chunk:
+ * a tag byte (0 for input, 1 for output), the number of microseconds since the previous record (or since the recording started),
+ * the number of bytes in the chunk, and the bytes themselves. Both numbers are unsigned LEB128 varints.
+ */
+public final class SessionRecorder implements AutoCloseable {
+
+    static final byte[] MAGIC = {'T', 'R', 'E', 'C'};
+    static final int VERSION = 1;
+    static final int INPUT = 0;
+    static final int OUTPUT = 1;
+
+    /** The buffered bytes are written once there are this many of them, or when the flush interval elapses. */
+    private static final int FLUSH_THRESHOLD = 65536;
+    private static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    private static volatile SessionRecorder active;
+
+    static {
+        String path = System.getProperty("io.github.btj.termios.record");
+        if (path != null) {
+            try {
+                start(java.nio.file.Path.of(path));
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }
+    }
+
+    /** Starts recording if the {@code io.github.btj.termios.record} property is set; called by Stdin and Stdout. */
+    static void ensureInitialized() {}
+
+    private final java.nio.channels.FileChannel channel;
+    private final long startNanos = System.nanoTime();
+    private final Thread writer;
+    private final Thread shutdownHook = new Thread(this::closeQuietly, "io.github.btj.termios.SessionRecorder shutdown");
+    /** Guarded by this recorder. */
+    private byte[] buffer = new byte[FLUSH_THRESHOLD * 2];
+    private int length;
+    private byte[] spare = new byte[FLUSH_THRESHOLD * 2];
+    private long lastMicros;
+    private boolean closing;
+    private java.io.IOException writeError;
+
+    private SessionRecorder(java.nio.channels.FileChannel channel) {
+        this.channel = channel;
+        put(MAGIC, 0, MAGIC.length);
+        buffer[length++] = VERSION;
+        writer = new Thread(this::writeLoop, "io.github.btj.termios.SessionRecorder writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Starts recording into the given file, which is created or truncated.
+     * The recording is written completely when {@link #close()} is called, or else when the JVM shuts down normally.
+     *
+     * @throws IllegalStateException if a recording is in progress already.
+     */
+    public static SessionRecorder start(java.nio.file.Path file) throws java.io.IOException {
+        synchronized (SessionRecorder.class) {
+            if (active != null)
+                throw new IllegalStateException("A recording is in progress already");
+            SessionRecorder recorder = new SessionRecorder(java.nio.channels.FileChannel.open(file,
+                java.nio.file.StandardOpenOption.WRITE, java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.TRUNCATE_EXISTING));
+            recorder.writer.start();
+            Runtime.getRuntime().addShutdownHook(recorder.shutdownHook);
+            active = recorder;
+            return recorder;
+        }
+    }
+
+    /** Records the given bytes read from standard input, if a recording is in progress. */
+    static void recordInput(byte[] bytes, int offset, int count) {
+        SessionRecorder recorder = active;
+        if (recorder != null)
+            recorder.record(INPUT, bytes, offset, count, null);
+    }
+
+    /** Records the contents of the given buffer, about to be written to standard output, if a recording is in progress. */
+    static void recordOutput(OutputBuffer output) {
+        SessionRecorder recorder = active;
+        if (recorder != null)
+            recorder.record(OUTPUT, null, 0, output.length(), output);
+    }
+
+    private synchronized void record(int tag, byte[] bytes, int offset, int count, OutputBuffer output) {
+        if (closing || count == 0)
+            return;
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        if (buffer.length - length < count + 21)
+            buffer = java.util.Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count + 21));
+        buffer[length++] = (byte)tag;
+        putVarint(micros - lastMicros);
+        putVarint(count);
+        lastMicros = micros;
+        if (output != null) {
+            output.copyTo(buffer, length);
+            length += count;
+        } else {
+            put(bytes, offset, count);
+        }
+        if (length >= FLUSH_THRESHOLD)
+            notifyAll();
+    }
+
+    private void put(byte[] bytes, int offset, int count) {
+        System.arraycopy(bytes, offset, buffer, length, count);
+        length += count;
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer[length++] = (byte)(value | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte)value;
+    }
+
+    private void writeLoop() {
+        for (;;) {
+            byte[] chunk;
+            int chunkLength;
+            synchronized (this) {
+                if (length < FLUSH_THRESHOLD && !closing) {
+                    try {
+                        wait(FLUSH_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                if (length == 0) {
+                    if (closing)
+                        return;
+                    continue;
+                }
+                chunk = buffer;
+                chunkLength = length;
+                buffer = spare;
+                length = 0;
+            }
+            try {
+                java.nio.ByteBuffer bytes = java.nio.ByteBuffer.wrap(chunk, 0, chunkLength);
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            } catch (java.io.IOException e) {
+                synchronized (this) {
+                    writeError = e;
+                    closing = true;
+                    length = 0;
+                }
+                return;
+            }
+            synchronized (this) {
+                spare = chunk;
+            }
+        }
+    }
+
+    /**
+     * Stops recording, waits until everything recorded so far is written, and closes the file.
+     * Does nothing if the recording was stopped already.
+     *
+     * @throws java.io.IOException if writing the file failed.
+     */
+    public void close() throws java.io.IOException {
+        synchronized (SessionRecorder.class) {
+            if (active == this)
+                active = null;
+        }
+        synchronized (this) {
+            closing = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            throw new java.io.InterruptedIOException();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is shutting down; this is the shutdown hook.
+        }
+        java.io.IOException error;
+        synchronized (this) {
+            error = writeError;
+            writeError = null;
+        }
+        try {
+            channel.close();
+        } catch (java.io.IOException e) {
+            if (error == null)
+                error = e;
+        }
+        if (error != null)
+            throw error;
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (java.io.IOException e) {
+            System.err.println("io.github.btj.termios: writing the session recording failed: " + e);
+        }
+    }
+
+}
@@ -0,0 +1,189 @@
+package io.github.btj.termios;
+
+/**
+ * Reads a recording made by {@link SessionRecorder}, one chunk of input or output at a time.
+ *
+ * Example, measuring how long a KeyDecoder takes to decode the recorded input:
+ * <pre>
+ * try (SessionReplayer replayer = SessionReplayer.open(Path.of("session.trec"))) {
+ *     while (replayer.next())
+ *         if (replayer.isInput())
+ *             decoder.decode(replayer.getBytes(), handler);
+ * }
+ * </pre>
+ *
+ * To replay the recorded input into an application instead, run it with the system property {@code io.github.btj.termios.replay}
+ * set to the path of the recording. Standard input is then not read; instead, {@link Terminal#readByte()}, the input listeners
+ * and subscriptions receive the recorded input, at the recorded times, or as fast as possible if the system property
+ * {@code io.github.btj.termios.replay.speed} is {@code fast}. The application then sees the end of input after the last chunk.
+ */
+public final class SessionReplayer implements AutoCloseable {
+
+    private final java.nio.channels.FileChannel channel;
+    private final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(65536).flip();
+    private byte[] data = new byte[4096];
+    private int dataLength;
+    private boolean input;
+    private long timeNanos;
+    private boolean originalSpeed;
+    private long startNanos;
+
+    private SessionReplayer(java.nio.channels.FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the given recording.
+     *
+     * @throws java.io.IOException if the file cannot be read or is not a recording made by this version of {@link SessionRecorder}.
+     */
+    public static SessionReplayer open(java.nio.file.Path file) throws java.io.IOException {
+        SessionReplayer replayer = new SessionReplayer(java.nio.channels.FileChannel.open(file));
+        try {
+            for (byte b : SessionRecorder.MAGIC)
+                if (replayer.readByte() != b)
+                    throw new java.io.IOException(file + " is not a session recording");
+            if (replayer.readByte() != SessionRecorder.VERSION)
+                throw new java.io.IOException(file + " is a session recording of an unsupported version");
+        } catch (java.io.IOException | RuntimeException e) {
+            replayer.close();
+            throw e;
+        }
+        return replayer;
+    }
+
+    /**
+     * Sets whether {@link #next()} waits until the time at which the next chunk was recorded, measured from the first call of {@link #next()},
+     * rather than returning it as fast as possible. The default is false.
+     */
+    public void setOriginalSpeed(boolean originalSpeed) {
+        this.originalSpeed = originalSpeed;
+    }
+
+    /** Reads more of the file into the buffer if it is empty. Returns false at the end of the file. */
+    private boolean fill() throws java.io.IOException {
+        if (buffer.hasRemaining())
+            return true;
+        buffer.clear();
+        int n;
+        do
+            n = channel.read(buffer);
+        while (n == 0);
+        buffer.flip();
+        return n > 0;
+    }
+
+    /** Returns the next byte of the file, or -1 at its end. */
+    private int readByte() throws java.io.IOException {
+        return fill() ? buffer.get() & 0xff : -1;
+    }
+
+    private long readVarint() throws java.io.IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+            if (b < 0 || shift > 63)
+                throw new java.io.EOFException("Truncated session recording");
+            value |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+
+    /**
+     * Advances to the next chunk. Returns false if there are no more chunks.
+     *
+     * @throws java.io.IOException if reading fails or the recording is truncated.
+     */
+    public boolean next() throws java.io.IOException {
+        int tag = readByte();
+        if (tag < 0)
+            return false;
+        if (tag != SessionRecorder.INPUT && tag != SessionRecorder.OUTPUT)
+            throw new java.io.IOException("Corrupt session recording");
+        long deltaMicros = readVarint();
+        long count = readVarint();
+        if (count > Integer.MAX_VALUE - 8)
+            throw new java.io.IOException("Corrupt session recording");
+        if (data.length < count)
+            data = new byte[Math.max(data.length * 2, (int)count)];
+        for (int i = 0; i < count; ) {
+            if (!fill())
+                throw new java.io.EOFException("Truncated session recording");
+            int n = Math.min((int)count - i, buffer.remaining());
+            buffer.get(data, i, n);
+            i += n;
+        }
+        dataLength = (int)count;
+        input = tag == SessionRecorder.INPUT;
+        if (startNanos == 0)
+            startNanos = System.nanoTime();
+        timeNanos += deltaMicros * 1000;
+        if (originalSpeed) {
+            long wait;
+            while ((wait = startNanos + timeNanos - System.nanoTime()) > 0)
+                java.util.concurrent.locks.LockSupport.parkNanos(wait);
+        }
+        return true;
+    }
+
+    /** Returns true if the current chunk was read from standard input, false if it was written to standard output. */
+    public boolean isInput() {
+        return input;
+    }
+
+    /** Returns the time, in nanoseconds since the recording started, at which the current chunk was recorded. */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /** Returns a read-only view of the bytes of the current chunk, which is valid until the next call of {@link #next()}. */
+    public java.nio.ByteBuffer getBytes() {
+        return java.nio.ByteBuffer.wrap(data, 0, dataLength).asReadOnlyBuffer();
+    }
+
+    /** Closes the file. */
+    public void close() throws java.io.IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns a stream of the recorded input of the recording named by the {@code io.github.btj.termios.replay} property,
+     * for the Stdin pump thread, or null if the property is not set.
+     */
+    static java.io.InputStream replayedInput() throws java.io.IOException {
+        String path = System.getProperty("io.github.btj.termios.replay");
+        if (path == null)
+            return null;
+        SessionReplayer replayer = open(java.nio.file.Path.of(path));
+        replayer.setOriginalSpeed(!"fast".equals(System.getProperty("io.github.btj.termios.replay.speed")));
+        return new java.io.InputStream() {
+            int position;
+
+            public int read() throws java.io.IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+            }
+
+            public int read(byte[] bytes, int offset, int count) throws java.io.IOException {
+                java.util.Objects.checkFromIndexSize(offset, count, bytes.length);
+                if (count == 0)
+                    return 0;
+                while (position == replayer.dataLength || !replayer.input) {
+                    if (!replayer.next())
+                        return -1;
+                    position = 0;
+                }
+                int n = Math.min(count, replayer.dataLength - position);
+                System.arraycopy(replayer.data, position, bytes, offset, n);
+                position += n;
+                return n;
+            }
+
+            public void close() throws java.io.IOException {
+                replayer.close();
+            }
+        };
+    }
+
+}
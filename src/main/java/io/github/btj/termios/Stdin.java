@@ -0,0 +1,320 @@
+package io.github.btj.termios;
+
+import java.util.concurrent.TimeoutException;
+
+class Stdin {
+
+    private static final int CHUNK_SIZE = 4096;
+    /**
+     * If true, bytes are read directly on the caller's thread using poll/read
+     * until an input listener is registered, at which point the pump thread is started.
+     */
+    static final boolean POLL_MODE = "poll".equals(System.getProperty("io.github.btj.termios.input"))
+            && !System.getProperty("os.name").startsWith("Windows")
+            && System.getProperty("io.github.btj.termios.replay") == null;
+    private static final ByteRing buffer = new ByteRing();
+    private static Runnable listener;
+    private static boolean pumpStarted;
+    /** Set when the pump thread is started; direct reads then stop, so that the pump thread can take over. */
+    private static volatile boolean pumping;
+    /**
+     * Set by the pump thread once it has taken over standard input. From then on, all input goes through the ring,
+     * and {@link #pending} is no longer used.
+     */
+    private static volatile boolean pumpReading;
+    /** The time at which the pump thread last read bytes, if metrics are collected or dispatch events are enabled; 0 otherwise. */
+    private static volatile long arrivalTime;
+    /**
+     * Guards direct reads and {@link #pending} until the pump thread takes over, so that standard input
+     * is never read by a direct reader and the pump thread at once.
+     */
+    private static final Object directLock = new Object();
+    /**
+     * The longest a direct read waits at once. In between, the reader checks whether the pump thread was started,
+     * since a listener may be registered by another thread while the reader waits.
+     */
+    private static final long DIRECT_READ_SLICE_NANOS = 50_000_000;
+    /** Returned by the direct read methods if the pump thread took over; the caller should then take from the ring. */
+    private static final int TAKEN_OVER = -2;
+    /**
+     * Bytes read directly in poll mode but not yet consumed. Guarded by {@link #directLock};
+     * moved into the ring by the pump thread when it takes over.
+     */
+    private static final byte[] pending = new byte[CHUNK_SIZE];
+    private static int pendingStart;
+    private static int pendingEnd;
+
+    static void addListener(Runnable listener) {
+        boolean callNow = false;
+        synchronized (Stdin.class) {
+            if (Stdin.listener != null)
+                throw new IllegalStateException("A standard input listener was already registered");
+            startPump();
+            // Bytes read directly before the pump thread started are moved into the ring by the pump thread,
+            // which then calls the listener.
+            if (buffer.isReady())
+                callNow = true;
+            else
+                Stdin.listener = listener;
+        }
+        if (callNow)
+            listener.run();
+    }
+
+    static synchronized Runnable removeListener() {
+        Runnable result = listener;
+        listener = null;
+        return result;
+    }
+
+    /** Returns the largest number of bytes that were waiting in the ring between the pump thread and the reader at once. */
+    static int ringHighWaterMark() {
+        return buffer.highWaterMark();
+    }
+
+    /** Returns the number of bytes waiting in the ring between the pump thread and the reader. */
+    static int ringOccupancy() {
+        return buffer.length();
+    }
+
+    /**
+     * Returns the time at which the pump thread last read bytes, for {@link Metrics#dispatched}.
+     * A listener called by the pump thread is called for the bytes read at that time.
+     */
+    static long arrivalTime() {
+        return arrivalTime;
+    }
+
+    static synchronized void removeListener(Runnable listener) {
+        if (Stdin.listener == listener)
+            Stdin.listener = null;
+    }
+
+    private static synchronized void startPump() {
+        if (pumpStarted)
+            return;
+        pumpStarted = true;
+        Thread t = new Thread(null, null, "io.github.btj.termios.Stdin pump") {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            public void run() {
+                try {
+                    takeOver(chunk);
+                    // When replaying a recording, its input takes the place of standard input.
+                    java.io.InputStream stdin = SessionReplayer.replayedInput();
+                    if (stdin == null)
+                        stdin = new java.io.FileInputStream(java.io.FileDescriptor.in);
+                    for (;;) {
+                        int n = stdin.read(chunk);
+                        long arrival = Metrics.arrivalTime();
+                        arrivalTime = arrival;
+                        if (n < 0)
+                            buffer.close();
+                        else {
+                            SessionRecorder.recordInput(chunk, 0, n);
+                            buffer.put(chunk, 0, n);
+                            Metrics.inputRead(n);
+                        }
+                        Runnable listener = removeListener();
+                        if (listener != null) {
+                            Metrics.dispatched("listener", arrival);
+                            listener.run();
+                        }
+                        if (n < 0)
+                            return;
+                    }
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                } catch (java.io.IOException e) {
+                    buffer.poison(e);
+                }
+            }
+        };
+        t.setDaemon(true);
+        pumping = true;
+        t.start();
+    }
+
+    /**
+     * Called by the pump thread before it first reads: waits until no direct read is in progress,
+     * and moves the bytes that were read directly but not yet consumed into the ring, calling the listener if there are any.
+     */
+    private static void takeOver(byte[] chunk) throws InterruptedException {
+        int count;
+        synchronized (directLock) {
+            count = pendingEnd - pendingStart;
+            System.arraycopy(pending, pendingStart, chunk, 0, count);
+            pendingStart = pendingEnd = 0;
+            pumpReading = true;
+            directLock.notifyAll();
+        }
+        if (count > 0) {
+            buffer.put(chunk, 0, count);
+            Runnable listener = removeListener();
+            if (listener != null)
+                listener.run();
+        }
+    }
+
+    static {
+        SessionRecorder.ensureInitialized();
+        if (POLL_MODE)
+            NativeBackend.ensureSelected();
+        else
+            startPump();
+    }
+
+    /**
+     * Reads directly from standard input on the current thread, waiting at most the given number of nanoseconds.
+     * Returns the number of bytes read, -1 at the end of standard input, or {@link #TAKEN_OVER} if the pump thread took over.
+     * Must be called with {@link #directLock} held; waits in slices, so that the pump thread can take over while it waits.
+     */
+    private static int directRead(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        long deadline = timeoutNanos == Long.MAX_VALUE ? 0 : System.nanoTime() + timeoutNanos;
+        for (boolean first = true; ; first = false) {
+            try {
+                while (pumping && !pumpReading)
+                    directLock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new java.io.InterruptedIOException();
+            }
+            if (pumpReading)
+                return TAKEN_OVER;
+            long remaining = DIRECT_READ_SLICE_NANOS;
+            if (timeoutNanos != Long.MAX_VALUE) {
+                remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    if (!first)
+                        throw new TimeoutException();
+                    remaining = 0;
+                }
+            }
+            int n = NativeBackend.INSTANCE.pollRead(bytes, offset, count, Math.min(remaining, DIRECT_READ_SLICE_NANOS));
+            if (n > 0) {
+                Metrics.inputRead(n);
+                SessionRecorder.recordInput(bytes, offset, n);
+            }
+            if (n != 0)
+                return n;
+            if (remaining == 0)
+                throw new TimeoutException();
+        }
+    }
+
+    /**
+     * Returns the number of bytes in {@link #pending}, reading them directly if there are none.
+     * Returns -1 at the end of standard input, or {@link #TAKEN_OVER}. Must be called with {@link #directLock} held.
+     */
+    private static int readPending(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        if (pumpReading)
+            return TAKEN_OVER;
+        if (pendingStart < pendingEnd)
+            return pendingEnd - pendingStart;
+        int n = directRead(pending, 0, CHUNK_SIZE, timeoutNanos);
+        if (n < 0)
+            return n;
+        pendingStart = 0;
+        pendingEnd = n;
+        return n;
+    }
+
+    /**
+     * Returns the remaining part of the given timeout, for a caller that started waiting at the given time
+     * and falls back to the ring after the pump thread took over.
+     */
+    private static long remainingNanos(long timeoutNanos, long start) {
+        return timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(0, timeoutNanos - (System.nanoTime() - start));
+    }
+
+    static int readByte(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        if (!pumpReading) {
+            long start = System.nanoTime();
+            synchronized (directLock) {
+                int n = readPending(timeoutNanos);
+                if (n == -1)
+                    return -1;
+                if (n != TAKEN_OVER)
+                    return pending[pendingStart++] & 0xff;
+            }
+            timeoutNanos = remainingNanos(timeoutNanos, start);
+        }
+        try {
+            return buffer.take(timeoutNanos);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        } catch (ByteRingPoison poison) {
+            if (poison.getCause() instanceof java.io.IOException e)
+                throw e;
+            throw new AssertionError("Unexpected poison", poison);
+        }
+    }
+
+    static int readByte() throws java.io.IOException {
+        try {
+            return readByte(Long.MAX_VALUE);
+        } catch (TimeoutException e) {
+            throw new AssertionError();
+        }
+    }
+
+    static int readBytes(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        java.util.Objects.checkFromIndexSize(offset, count, bytes.length);
+        if (count == 0)
+            return 0;
+        if (!pumpReading) {
+            long start = System.nanoTime();
+            synchronized (directLock) {
+                int n;
+                if (pendingStart < pendingEnd) {
+                    n = Math.min(count, pendingEnd - pendingStart);
+                    System.arraycopy(pending, pendingStart, bytes, offset, n);
+                    pendingStart += n;
+                } else {
+                    n = directRead(bytes, offset, count, timeoutNanos);
+                }
+                if (n != TAKEN_OVER)
+                    return n;
+            }
+            timeoutNanos = remainingNanos(timeoutNanos, start);
+        }
+        try {
+            return buffer.take(bytes, offset, count, timeoutNanos);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        } catch (ByteRingPoison poison) {
+            if (poison.getCause() instanceof java.io.IOException e)
+                throw e;
+            throw new AssertionError("Unexpected poison", poison);
+        }
+    }
+
+    static int readBytes(java.nio.ByteBuffer bytes, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        if (!bytes.hasRemaining())
+            return 0;
+        if (!pumpReading) {
+            long start = System.nanoTime();
+            synchronized (directLock) {
+                int n = readPending(timeoutNanos);
+                if (n == -1)
+                    return -1;
+                if (n != TAKEN_OVER) {
+                    n = Math.min(n, bytes.remaining());
+                    bytes.put(pending, pendingStart, n);
+                    pendingStart += n;
+                    return n;
+                }
+            }
+            timeoutNanos = remainingNanos(timeoutNanos, start);
+        }
+        try {
+            return buffer.take(bytes, timeoutNanos);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        } catch (ByteRingPoison poison) {
+            if (poison.getCause() instanceof java.io.IOException e)
+                throw e;
+            throw new AssertionError("Unexpected poison", poison);
+        }
+    }
+
+}
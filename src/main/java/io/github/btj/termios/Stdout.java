@@ -0,0 +1,29 @@
+package io.github.btj.termios;
+
+class Stdout {
+
+    private static final java.nio.channels.FileChannel channel = new java.io.FileOutputStream(java.io.FileDescriptor.out).getChannel();
+
+    static {
+        SessionRecorder.ensureInitialized();
+    }
+
+    /**
+     * Writes the contents of the given buffer to standard output with a single write call,
+     * after any output still buffered in {@link System#out}, and clears the buffer.
+     * Must be called while holding the lock of the default session's {@link Frame}.
+     */
+    static void write(OutputBuffer buffer) {
+        try {
+            System.out.flush();
+            int length = buffer.length();
+            SessionRecorder.recordOutput(buffer);
+            long start = Metrics.flushStart();
+            buffer.writeTo(channel);
+            Metrics.flushed(length, start);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+}
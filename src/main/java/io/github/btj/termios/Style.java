@@ -0,0 +1,107 @@
+package io.github.btj.termios;
+
+/**
+ * Static methods for building and inspecting the styles of {@link Screen} cells.
+ *
+ * A style is a {@code long} that packs a foreground colour, a background colour and a set of attributes,
+ * so that a Screen can store each cell, character and style together, as a single {@code long}
+ * in a flat array. Colours are indexes into the terminal's 256-colour palette, where 0 to 7 are the
+ * standard colours and 8 to 15 their bright variants, or {@link #DEFAULT_COLOR}.
+ * {@link #DEFAULT} is the terminal's default style. Two styles are the same if and only if they are equal.
+ *
+ * Example:
+ * <pre>
+ * long warning = Style.of(Style.YELLOW, Style.DEFAULT_COLOR, Style.BOLD);
+ * screen.writeString(0, 0, "Disk almost full", warning);
+ * </pre>
+ */
+public final class Style {
+
+    // Cell layout: bits 0-20 hold the code point, bits 21-29 the foreground colour plus one (0 means the default colour),
+    // bits 30-38 the background colour plus one, bits 39-45 the attributes, and bit 46 is set if the character is wide.
+    static final int CODE_POINT_BITS = 21;
+    static final long CODE_POINT_MASK = (1L << CODE_POINT_BITS) - 1;
+    private static final int FOREGROUND_SHIFT = CODE_POINT_BITS;
+    private static final int BACKGROUND_SHIFT = FOREGROUND_SHIFT + 9;
+    private static final int ATTRIBUTES_SHIFT = BACKGROUND_SHIFT + 9;
+    private static final int COLOR_MASK = (1 << 9) - 1;
+    static final long MASK = ((1L << ATTRIBUTES_SHIFT + 7) - 1) & ~CODE_POINT_MASK;
+    /** Set in a cell that holds the first half of a wide character. */
+    static final long WIDE = 1L << ATTRIBUTES_SHIFT + 7;
+
+    /** The terminal's default colours, without attributes. */
+    public static final long DEFAULT = 0;
+
+    /** The terminal's default foreground or background colour. */
+    public static final int DEFAULT_COLOR = -1;
+    public static final int BLACK = 0;
+    public static final int RED = 1;
+    public static final int GREEN = 2;
+    public static final int YELLOW = 3;
+    public static final int BLUE = 4;
+    public static final int MAGENTA = 5;
+    public static final int CYAN = 6;
+    public static final int WHITE = 7;
+    /** Add this to one of the standard colours to obtain its bright variant. */
+    public static final int BRIGHT = 8;
+
+    public static final int BOLD = 1;
+    public static final int DIM = 1 << 1;
+    public static final int ITALIC = 1 << 2;
+    public static final int UNDERLINE = 1 << 3;
+    public static final int BLINK = 1 << 4;
+    public static final int INVERSE = 1 << 5;
+    public static final int STRIKETHROUGH = 1 << 6;
+    private static final int ALL_ATTRIBUTES = (1 << 7) - 1;
+
+    private Style() {}
+
+    private static void checkColor(int color) {
+        if (color < DEFAULT_COLOR || 255 < color)
+            throw new IllegalArgumentException("The given colour is not a palette index or DEFAULT_COLOR");
+    }
+
+    /**
+     * Returns the style with the given foreground colour, background colour and attributes,
+     * where the attributes are a combination of {@link #BOLD}, {@link #DIM} and so on.
+     *
+     * @throws IllegalArgumentException if a given colour is neither between 0 and 255 nor {@link #DEFAULT_COLOR}.
+     * @throws IllegalArgumentException if the given attributes contain unknown bits.
+     */
+    public static long of(int foreground, int background, int attributes) {
+        checkColor(foreground);
+        checkColor(background);
+        if ((attributes & ~ALL_ATTRIBUTES) != 0)
+            throw new IllegalArgumentException("The given attributes contain unknown bits");
+        return (long)(foreground + 1) << FOREGROUND_SHIFT | (long)(background + 1) << BACKGROUND_SHIFT | (long)attributes << ATTRIBUTES_SHIFT;
+    }
+
+    /** Returns the style with the given foreground colour, the default background colour and no attributes. */
+    public static long foreground(int color) {
+        return of(color, DEFAULT_COLOR, 0);
+    }
+
+    /** Returns the foreground colour of the given style, or {@link #DEFAULT_COLOR}. */
+    public static int getForeground(long style) {
+        return (int)(style >>> FOREGROUND_SHIFT & COLOR_MASK) - 1;
+    }
+
+    /** Returns the background colour of the given style, or {@link #DEFAULT_COLOR}. */
+    public static int getBackground(long style) {
+        return (int)(style >>> BACKGROUND_SHIFT & COLOR_MASK) - 1;
+    }
+
+    /** Returns the attributes of the given style. */
+    public static int getAttributes(long style) {
+        return (int)(style >>> ATTRIBUTES_SHIFT) & ALL_ATTRIBUTES;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the given value was not obtained from this class.
+     */
+    static void check(long style) {
+        if ((style & ~MASK) != 0 || getForeground(style) > 255 || getBackground(style) > 255)
+            throw new IllegalArgumentException("The given style is not a valid style");
+    }
+
+}
@@ -1,150 +1,83 @@
 package io.github.btj.termios;
 
-import java.util.concurrent.TimeoutException;
+class ResizeWatcher {
 
-class IntBufferPoison extends Exception {
-    IntBufferPoison(Throwable throwable) {
-        super(throwable);
-    }
-}
-
-class IntBuffer {
-    private static final int SIZE_BITS = 10;
-    private static final int SIZE = 1 << SIZE_BITS;
-    private static final int SIZE_MASK = SIZE - 1;
-
-    private final int[] buffer = new int[SIZE];
-    private int start;
-    private int length;
-    private Throwable poison;
-
-    public synchronized int length() { return length; }
-
-    public synchronized void put(int element) throws InterruptedException {
-        while (length == SIZE)
-            wait();
-        buffer[(start + length++) & SIZE_MASK] = element;
-        notifyAll();
-    }
-
-    public synchronized void poison(Throwable poison) {
-        this.poison = poison;
-        notifyAll();
-    }
-
-    public synchronized int take(long deadline) throws InterruptedException, IntBufferPoison, TimeoutException {
-        while (length == 0) {
-            if (poison != null)
-                throw new IntBufferPoison(poison);
-            long currentTime = System.currentTimeMillis();
-            if (deadline <= currentTime)
-                throw new TimeoutException();
-            wait(deadline - currentTime);
-        }
-        int result = buffer[start++];
-        start &= SIZE_MASK;
-        length--;
-        notifyAll();
-        return result;
-    }
-}
-
-class Stdin {
-
-    private static final IntBuffer buffer = new IntBuffer();
-    private static Runnable listener;
+    private static final java.util.concurrent.CopyOnWriteArrayList<Runnable> listeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private static boolean started;
 
     static void addListener(Runnable listener) {
-        boolean callNow = false;
-        synchronized (Stdin.class) {
-            if (Stdin.listener != null)
-                throw new IllegalStateException("A standard input listener was already registered");
-            if (buffer.length() > 0)
-                callNow = true;
-            else
-                Stdin.listener = listener;
-        }
-        if (callNow)
-            listener.run();
-    }
-
-    static synchronized Runnable removeListener() {
-        Runnable result = listener;
-        listener = null;
-        return result;
-    }
-
-    static {
-        Thread t = new Thread(null, null, "io.github.btj.termios.Stdin pump") {
-            java.io.FileInputStream stdin = new java.io.FileInputStream(java.io.FileDescriptor.in);
-            public void run() {
+        java.util.Objects.requireNonNull(listener);
+        synchronized (ResizeWatcher.class) {
+            if (!started) {
+                NativeLibrary.ensureLoaded();
                 try {
-                    for (;;) {
-                        int b = stdin.read();
-                        buffer.put(b);
-                        Runnable listener = removeListener();
-                        if (listener != null)
-                            listener.run();
-                    }
-                } catch (InterruptedException e) {
-                    throw new AssertionError(e);
+                    Terminal.installResizeHandler();
                 } catch (java.io.IOException e) {
-                    buffer.poison(e);
+                    throw new java.io.UncheckedIOException(e);
                 }
+                Thread t = new Thread(null, ResizeWatcher::run, "io.github.btj.termios.Resize watcher");
+                t.setDaemon(true);
+                t.start();
+                started = true;
             }
-        };
-        t.setDaemon(true);
-        t.start();
+        }
+        listeners.add(listener);
     }
 
-    static int readByte(long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
-        try {
-            return buffer.take(deadline);
-        } catch (InterruptedException e) {
-            throw new AssertionError(e);
-        } catch (IntBufferPoison poison) {
-            if (poison.getCause() instanceof java.io.IOException e)
-                throw e;
-            throw new AssertionError("Unexpected poison", poison);
-        }
+    static void removeListener(Runnable listener) {
+        listeners.remove(listener);
     }
 
-    static int readByte() throws java.io.IOException {
+    private static void run() {
         try {
-            return readByte(Long.MAX_VALUE);
-        } catch (TimeoutException e) {
-            throw new AssertionError();
+            for (;;) {
+                Terminal.waitForResize();
+                TerminalSession.getDefault().frame.textAreaWidth = 0;
+                for (Runnable listener : listeners)
+                    listener.run();
+            }
+        } catch (java.io.IOException e) {
+            // Stop watching; there is nobody to report this to.
         }
     }
 
 }
 
+/**
+ * Provides access to the terminal that standard input and standard output are connected to.
+ *
+ * The native library is loaded only when a method that needs it is first called, such as {@link #enterRawInputMode()}
+ * or {@link #getSize()}; the output methods do not need it. On Java 22 and later, on Linux and macOS, these methods
+ * call the operating system through the Foreign Function &amp; Memory API instead, if native access is enabled for this library
+ * (for example with {@code --enable-native-access=ALL-UNNAMED}); then the native library is loaded only when
+ * a resize listener is added. System property {@code io.github.btj.termios.backend} can be set to {@code jni}
+ * or {@code ffm} to override this choice.
+ *
+ * By default, standard input is read by a daemon "pump" thread that starts when this class is initialized.
+ * If the system property {@code io.github.btj.termios.input} is set to {@code poll} at startup,
+ * the read methods instead read directly from standard input on the calling thread, which avoids
+ * a thread handoff per key press; the pump thread is then started only when
+ * {@link #setInputListener(Runnable)} is first called, after which all input goes through it.
+ * The {@code poll} mode is not available on Windows; there, the property is ignored.
+ *
+ * These methods act on the default {@link TerminalSession}; use {@link TerminalSession} to serve other terminals as well.
+ */
 public class Terminal {
-    
-    static {
-        try {
-            String libName = System.mapLibraryName("io_github_btj_termios");
-            byte[] libBytes = Terminal.class.getClassLoader().getResourceAsStream(libName).readAllBytes();
-            byte[] libMD5Bytes = java.security.MessageDigest.getInstance("MD5").digest(libBytes);
-            String libMD5 = new java.math.BigInteger(1, libMD5Bytes).toString(16);
-            String libPath = System.getProperty("java.io.tmpdir") + "/" + System.mapLibraryName("io_github_btj_termios_" + libMD5);
-            java.io.File libFile = new java.io.File(libPath);
-            if (!libFile.exists())
-                java.nio.file.Files.write(libFile.toPath(), libBytes);
-            //System.out.println("The library is at " + libPath);
-            System.load(libPath);
-        } catch (java.io.IOException|java.security.NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
 
-    }
+    /** The size of the arrays in which the native library saves terminal attributes; larger than any platform's struct termios. */
+    static final int TERMIOS_SIZE = 256;
 
     /**
      * Put the terminal in a mode where it reports
      * key presses immediately rather than buffering them
      * until Return is pressed or otherwise processing them.
      */
-    public static native void enterRawInputMode();
+    public static void enterRawInputMode() {
+        TerminalSession.getDefault().enterRawInputMode();
+    }
+
+    /** Saves the attributes of the terminal on the given descriptor into the given array, then puts it in raw input mode. */
+    static native void enterRawInputMode0(int fd, byte[] savedAttributes) throws java.io.IOException;
 
     /**
      * If a byte is available on standard input now, this method
@@ -166,6 +99,25 @@ public class Terminal {
         Stdin.addListener(listener);
     }
 
+    /**
+     * Calls the given consumer on the given executor whenever bytes are available on standard input,
+     * passing all bytes available at that time as one batch, until the returned subscription is closed.
+     * Unlike an input listener, the subscription need not be renewed after each call.
+     * Keys that are typed while a call is pending are delivered together in the next call.
+     * See {@link InputSubscription} for details.
+     *
+     * A Swing application can have the bytes delivered in the AWT event handling thread as follows:
+     * <pre>
+     * Terminal.subscribe(java.awt.EventQueue::invokeLater, bytes -> myCode(bytes));
+     * </pre>
+     * While subscribed, do not read standard input in other ways or set an input listener.
+     *
+     * @throws IllegalStateException if standard input is subscribed to already.
+     */
+    public static InputSubscription subscribe(java.util.concurrent.Executor executor, java.util.function.Consumer<java.nio.ByteBuffer> consumer) {
+        return TerminalSession.getDefault().subscribe(executor, consumer);
+    }
+
     /**
      * Removes the input listener, if any. Note: this does not guarantee
      * that the listener will not be called anymore,
@@ -183,9 +135,13 @@ public class Terminal {
      * or (part of) a control sequence. Run the raw input test
      * to experimentally determine which bytes are generated
      * by which keypresses.
+     *
+     * Returns -1 if the end of standard input was reached.
+     *
+     * Note: standard input must be read by at most one thread at a time.
      */
     public static int readByte() throws java.io.IOException {
-        return Stdin.readByte();
+        return TerminalSession.getDefault().readByte();
     }
     
     /**
@@ -201,14 +157,203 @@ public class Terminal {
      * passed without a byte becoming available.
      */
     public static int readByte(long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
-        return Stdin.readByte(deadline);
+        return TerminalSession.getDefault().readByte(deadline);
+    }
+
+    /**
+     * Like {@link #readByte()}, but
+     * throws a TimeoutException if no byte became available within the given number of nanoseconds.
+     * The timeout is measured using {@link System#nanoTime()}, so it is not affected by changes to the system clock.
+     * If the given timeout is zero or negative, this method does not wait.
+     *
+     * A short timeout can be used, for example, to tell a lone Escape key press from the start of an escape sequence;
+     * see {@link KeyDecoder#readEvent()}.
+     */
+    public static int readByteNanos(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return TerminalSession.getDefault().readByteNanos(timeoutNanos);
+    }
+
+    /**
+     * Like {@link #readByteNanos(long)}, but takes the timeout as a Duration.
+     */
+    public static int readByte(java.time.Duration timeout) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return readByteNanos(toNanos(timeout));
+    }
+
+    /**
+     * Converts the given deadline (in milliseconds since midnight, January 1, 1970 UTC) into a timeout
+     * in nanoseconds, where {@code Long.MAX_VALUE} means no timeout.
+     */
+    static long timeoutNanos(long deadline) {
+        if (deadline == Long.MAX_VALUE)
+            return Long.MAX_VALUE;
+        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+        return remaining >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE - 1 : remaining * 1_000_000;
+    }
+
+    /**
+     * Returns the given duration in nanoseconds, saturated to the range of {@code long}.
+     */
+    static long toNanos(java.time.Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Read the bytes that are available on standard input, up to the given count,
+     * into the given array, starting at the given offset. Blocks until at least one
+     * byte is available. This is much cheaper than calling {@link #readByte()}
+     * once per byte when large amounts of input arrive at once, e.g. when the user pastes text.
+     *
+     * Returns the number of bytes read, or -1 if the end of standard input was reached.
+     * Returns 0 if the given count is 0.
+     *
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public static int readBytes(byte[] bytes, int offset, int count) throws java.io.IOException {
+        return TerminalSession.getDefault().readBytes(bytes, offset, count);
     }
 
+    /**
+     * Like {@link #readBytes(byte[], int, int)}, but
+     * throws a TimeoutException if the specified deadline (in milliseconds since midnight, January 1, 1970 UTC)
+     * passed without a byte becoming available.
+     */
+    public static int readBytes(byte[] bytes, int offset, int count, long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return TerminalSession.getDefault().readBytes(bytes, offset, count, deadline);
+    }
+
+    /**
+     * Like {@link #readBytes(byte[], int, int)}, but reads into the given buffer,
+     * up to its number of remaining bytes, and advances its position accordingly.
+     */
+    public static int readBytes(java.nio.ByteBuffer bytes) throws java.io.IOException {
+        return TerminalSession.getDefault().readBytes(bytes);
+    }
+
+    /**
+     * Like {@link #readBytes(java.nio.ByteBuffer)}, but
+     * throws a TimeoutException if the specified deadline (in milliseconds since midnight, January 1, 1970 UTC)
+     * passed without a byte becoming available.
+     */
+    public static int readBytes(java.nio.ByteBuffer bytes, long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return TerminalSession.getDefault().readBytes(bytes, deadline);
+    }
+
+    /**
+     * Waits until the given descriptor is readable or the given timeout (in nanoseconds; negative means no timeout) elapses,
+     * and then reads at most the given count of bytes into the given array.
+     * Returns the number of bytes read, 0 on timeout or interruption by a signal, or -1 at the end of the input.
+     */
+    static native int pollRead(int fd, byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException;
+
     /**
      * Put the terminal back into the mode that was active
      * when enterRawInputMode was last called.
      */
-    public static native void leaveRawInputMode();
+    public static void leaveRawInputMode() {
+        TerminalSession.getDefault().leaveRawInputMode();
+    }
+
+    /** Restores the attributes of the terminal on the given descriptor that were saved into the given array. */
+    static native void leaveRawInputMode0(int fd, byte[] savedAttributes) throws java.io.IOException;
+
+    /**
+     * Returns the current size of the terminal's text area, as reported by the operating system
+     * (using the TIOCGWINSZ ioctl, or the console screen buffer info on Windows).
+     * Unlike {@link #reportTextAreaSize()}, this does not involve a round trip to the terminal
+     * and does not mix the reply into standard input.
+     *
+     * @throws java.io.IOException if neither standard output nor standard input is a terminal.
+     */
+    public static TerminalSize getSize() throws java.io.IOException {
+        return TerminalSession.getDefault().getSize();
+    }
+
+    /**
+     * Returns a snapshot of counters describing the terminal's input and output, such as the number of bytes read and
+     * written and the latency of input listener calls. Most counters are collected only if system property
+     * {@code io.github.btj.termios.metrics} is {@code true} at startup; see {@link TerminalMetrics}.
+     *
+     * The same measurements are available as JDK Flight Recorder events in category "Terminal", named
+     * {@code io.github.btj.termios.InputRead}, {@code InputBufferFull}, {@code InputDispatch} and {@code OutputFlush};
+     * they are emitted while a recording is running, regardless of the system property. For example:
+     * <pre>
+     * java -XX:StartFlightRecording:filename=terminal.jfr ...
+     * </pre>
+     * When neither is enabled, the measurements cost no more than a few flag checks.
+     */
+    public static TerminalMetrics getMetrics() {
+        return Metrics.snapshot();
+    }
+
+    /**
+     * Adds a listener that is called whenever the size of the terminal's text area changes,
+     * for example because the user resized the terminal window. Call {@link #getSize()} in the listener
+     * to obtain the new size. Resizes that happen in quick succession may be reported only once.
+     *
+     * Listeners are called in a daemon thread named "io.github.btj.termios.Resize watcher",
+     * which is started when the first listener is added. On Unix-like systems, it is notified
+     * by a SIGWINCH signal handler; on Windows, it polls the console window size.
+     * As with {@link #setInputListener(Runnable)}, Swing applications must move to the AWT event handling thread themselves.
+     *
+     * @throws java.io.UncheckedIOException if the resize notification mechanism cannot be set up.
+     */
+    public static void addResizeListener(Runnable listener) {
+        ResizeWatcher.addListener(listener);
+    }
+
+    /**
+     * Removes the given resize listener, if it was added.
+     */
+    public static void removeResizeListener(Runnable listener) {
+        ResizeWatcher.removeListener(listener);
+    }
+
+    /**
+     * Returns the size of the text area of the terminal on the given output descriptor or, failing that, the given input descriptor,
+     * with the number of rows in the upper 32 bits and the number of columns in the lower 32 bits.
+     */
+    static native long queryTextAreaSize(int outputFd, int inputFd) throws java.io.IOException;
+
+    /** Opens the terminal device at the given path for reading and writing, without making it the controlling terminal. */
+    static native int openTerminal(String path) throws java.io.IOException;
+
+    static native void closeFileDescriptor(int fd) throws java.io.IOException;
+
+    /**
+     * Writes the bytes of the given direct buffer from the given position to the given limit to the given descriptor.
+     * Returns the number of bytes written, which is at least one unless the range is empty.
+     */
+    static native int write(int fd, java.nio.ByteBuffer bytes, int position, int limit) throws java.io.IOException;
+
+    /** Returns a new poller: an epoll instance on Linux, or a kqueue elsewhere. */
+    static native int createPoller() throws java.io.IOException;
+
+    /** Makes the given poller report the given descriptor once when it is readable, at its end, or hung up. */
+    static native void armPoller(int poller, int fd) throws java.io.IOException;
+
+    /** Makes the given poller stop watching the given descriptor. */
+    static native void disarmPoller(int poller, int fd);
+
+    /**
+     * Waits until the given poller reports descriptors, and stores them into the given array.
+     * Returns their number, which is 0 if the wait was interrupted by a signal.
+     */
+    static native int waitPoller(int poller, int[] fds) throws java.io.IOException;
+
+    /**
+     * Sets up the notification mechanism used by {@link #waitForResize()}. Does nothing if it was set up already.
+     */
+    static native void installResizeHandler() throws java.io.IOException;
+
+    /**
+     * Blocks until the size of the text area changes.
+     */
+    static native void waitForResize() throws java.io.IOException;
 
     /**
      * Requests the terminal to report the size of the text area to standard input.
@@ -217,17 +362,66 @@ public class Terminal {
      * CSI is <code>"\033["</code>.
      */
     public static void reportTextAreaSize() {
-        System.out.print("\033[18t");
-        System.out.flush();
+        TerminalSession.getDefault().reportTextAreaSize();
+    }
+
+    /**
+     * Requests the terminal to enable bracketed paste mode.
+     *
+     * Text pasted by the user is then sent to standard input between <code>CSI 200 ~</code> and <code>CSI 201 ~</code>,
+     * which {@link KeyDecoder} reports as a single {@link KeyDecoder#TYPE_PASTE} event.
+     * Call {@link #disableBracketedPaste()} before exiting.
+     */
+    public static void enableBracketedPaste() {
+        TerminalSession.getDefault().enableBracketedPaste();
+    }
+
+    /**
+     * Requests the terminal to disable bracketed paste mode.
+     */
+    public static void disableBracketedPaste() {
+        TerminalSession.getDefault().disableBracketedPaste();
+    }
+
+    /**
+     * Requests the terminal to report the given mouse events to standard input, using the SGR encoding (mode 1006):
+     * <code>CSI &lt; code ; column ; row M</code>, or {@code m} for a release. {@link KeyDecoder} reports them
+     * as {@link KeyDecoder#TYPE_MOUSE} events. Call {@link #disableMouseTracking()} before exiting.
+     */
+    public static void enableMouseTracking(MouseTracking tracking) {
+        TerminalSession.getDefault().enableMouseTracking(tracking);
+    }
+
+    /**
+     * Requests the terminal to stop reporting mouse events.
+     */
+    public static void disableMouseTracking() {
+        TerminalSession.getDefault().disableMouseTracking();
+    }
+
+    /**
+     * Starts a frame: a batch of output that is written to standard output with a single write call when the frame is closed,
+     * so that the terminal does not show partially drawn screens. Use it as follows:
+     * <pre>
+     * try (Frame frame = Terminal.beginFrame()) {
+     *     frame.printText(1, 1, "Hello");
+     *     frame.moveCursor(2, 1);
+     * }
+     * </pre>
+     *
+     * Until the frame is closed, other threads that begin a frame block. Frames may be nested;
+     * the output is written when the outermost frame is closed.
+     * The returned object is reused for subsequent frames.
+     */
+    public static Frame beginFrame() {
+        return TerminalSession.getDefault().beginFrame();
     }
 
     /**
      * Requests the terminal to clear the screen.
      */
     public static void clearScreen() {
-        System.out.print("\033[2J");
-        System.out.print("\033[3J");
-        System.out.flush();
+        TerminalSession.getDefault().clearScreen();
     }
 
     /**
@@ -236,34 +430,137 @@ public class Terminal {
      * @throws IllegalArgumentException if the given row or column are less than 1.
      */
     public static void moveCursor(int row, int column) {
-        if (row < 1)
-            throw new IllegalArgumentException("The given row is less than 1");
-        if (column < 1)
-            throw new IllegalArgumentException("The given column is less than 1");
+        TerminalSession.getDefault().moveCursor(row, column);
+    }
+
+    /**
+     * Requests the terminal to restrict scrolling to the rows from the given top row to the given bottom row (both 1-based, inclusive),
+     * using DECSTBM. {@link #scrollUp(int)}, {@link #scrollDown(int)}, {@link #insertLines(int)} and {@link #deleteLines(int)}
+     * then leave the other rows alone. This also moves the cursor to the first row and column.
+     *
+     * Example: to append a line to a log view that occupies rows 2 to 23, between a header and a footer:
+     * <pre>
+     * try (Frame frame = Terminal.beginFrame()) {
+     *     frame.setScrollRegion(2, 23);
+     *     frame.scrollUp(1);
+     *     frame.resetScrollRegion();
+     *     frame.printText(23, 1, line);
+     * }
+     * </pre>
+     *
+     * @throws IllegalArgumentException if the given top row is less than 1 or not less than the given bottom row.
+     */
+    public static void setScrollRegion(int top, int bottom) {
+        TerminalSession.getDefault().setScrollRegion(top, bottom);
+    }
+
+    /**
+     * Requests the terminal to let scrolling affect all rows again. This also moves the cursor to the first row and column.
+     */
+    public static void resetScrollRegion() {
+        TerminalSession.getDefault().resetScrollRegion();
+    }
+
+    /**
+     * Requests the terminal to move the rows of the scroll region up by the given number of lines (SU),
+     * discarding the top rows and inserting blank rows at the bottom. The cursor does not move.
+     *
+     * @throws IllegalArgumentException if the given number of lines is less than 1.
+     */
+    public static void scrollUp(int lines) {
+        TerminalSession.getDefault().scrollUp(lines);
+    }
 
-        System.out.format("\033[%d;%dH", row, column);
-        System.out.flush();
+    /**
+     * Requests the terminal to move the rows of the scroll region down by the given number of lines (SD),
+     * discarding the bottom rows and inserting blank rows at the top. The cursor does not move.
+     *
+     * @throws IllegalArgumentException if the given number of lines is less than 1.
+     */
+    public static void scrollDown(int lines) {
+        TerminalSession.getDefault().scrollDown(lines);
+    }
+
+    /**
+     * Requests the terminal to insert the given number of blank rows at the cursor's row (IL),
+     * moving that row and the rows below it, down to the bottom of the scroll region, down.
+     *
+     * @throws IllegalArgumentException if the given count is less than 1.
+     */
+    public static void insertLines(int count) {
+        TerminalSession.getDefault().insertLines(count);
+    }
+
+    /**
+     * Requests the terminal to delete the given number of rows, starting at the cursor's row (DL),
+     * moving the rows below them, down to the bottom of the scroll region, up and inserting blank rows at the bottom.
+     *
+     * @throws IllegalArgumentException if the given count is less than 1.
+     */
+    public static void deleteLines(int count) {
+        TerminalSession.getDefault().deleteLines(count);
     }
 
     /**
      * Requests the terminal to print the given text at the given row and column (both 1-based).
      * This also moves the cursor, but if the last character printed is in the last column of the text area, the resulting cursor position is not well-defined.
      *
+     * The text may contain any Unicode characters except control characters; it is sent to the terminal in UTF-8.
+     * Wide characters, such as CJK ideographs, occupy two columns, and combining marks combine with the preceding character;
+     * use {@link #getColumnWidth(CharSequence)} to find out how many columns a text occupies.
+     *
      * Note: printing to the last column of the last row of the text area might cause the terminal to scroll and should therefore be avoided.
      *
      * @throws IllegalArgumentException if the given row or column are less than 1.
-     * @throws IllegalArgumentException if the given text contains characters whose value is less than 32 or greater than 126.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
      */
     public static void printText(int row, int column, String text) {
-        if (row < 1)
-            throw new IllegalArgumentException("The given row is less than 1");
-        if (column < 1)
-            throw new IllegalArgumentException("The given column is less than 1");
-        if (text.chars().anyMatch(c -> c < 32 || 126 < c))
-            throw new IllegalArgumentException("The given text contains control characters or non-ASCII characters");
-
-        System.out.format("\033[%d;%dH%s", row, column, text);
-        System.out.flush();
+        printText(row, column, text, 0, text.length());
+    }
+
+    /**
+     * Like {@link #printText(int, int, String)}, but prints the characters of the given text
+     * from index {@code start} (inclusive) to index {@code end} (exclusive).
+     *
+     * This method, like the other output methods of this class, does not allocate any objects
+     * once its output buffer has grown to the required size.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given range of the text contains control characters or unpaired surrogates.
+     * @throws IndexOutOfBoundsException if the given start and end do not denote a range within the given text.
+     */
+    public static void printText(int row, int column, CharSequence text, int start, int end) {
+        TerminalSession.getDefault().printText(row, column, text, start, end);
+    }
+
+    /**
+     * Like {@link #printText(int, int, String)}, but prints the given count of characters
+     * of the given array, starting at the given offset.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given range of the array contains control characters or unpaired surrogates.
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public static void printText(int row, int column, char[] text, int offset, int count) {
+        TerminalSession.getDefault().printText(row, column, text, offset, count);
+    }
+
+    /**
+     * Returns the number of columns that the given code point occupies on the terminal: 2 for East Asian wide and fullwidth
+     * characters, such as CJK ideographs and most emoji, 0 for combining marks and other zero-width characters,
+     * 1 for other printable characters, and -1 for control characters and surrogates, which cannot be printed.
+     */
+    public static int getColumnWidth(int codePoint) {
+        return CharWidth.of(codePoint);
+    }
+
+    /**
+     * Returns the number of columns that the given text occupies when printed on the terminal.
+     *
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     */
+    public static int getColumnWidth(CharSequence text) {
+        return CharWidth.columns(text, 0, text.length());
     }
 
     private Terminal() {}
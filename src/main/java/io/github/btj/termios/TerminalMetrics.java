@@ -0,0 +1,27 @@
+package io.github.btj.termios;
+
+/**
+ * A snapshot of counters describing the terminal's input and output since the program started.
+ *
+ * The ring occupancy and high-water mark, which describe the ring of at most 16384 bytes between the standard input
+ * pump thread and the reader, are always available. The other counters are collected only if system property
+ * {@code io.github.btj.termios.metrics} is {@code true} at startup, and are zero otherwise.
+ * The dispatches counted are calls of input listeners and of {@link InputSubscription} consumers and
+ * {@link InputPublisher} subscribers; their latency runs from the time the pump thread read the bytes.
+ * A flush is a single write of a frame or other output to standard output.
+ *
+ * @see Terminal#getMetrics()
+ */
+public record TerminalMetrics(
+        long bytesRead,
+        long bytesWritten,
+        int ringOccupancy,
+        int ringHighWaterMark,
+        long producerBlockedNanos,
+        long dispatchCount,
+        long totalDispatchLatencyNanos,
+        long maxDispatchLatencyNanos,
+        long flushCount,
+        long totalFlushNanos,
+        long maxFlushNanos,
+        int maxFlushBytes) {}
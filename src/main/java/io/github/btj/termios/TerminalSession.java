@@ -0,0 +1,805 @@
+package io.github.btj.termios;
+
+/**
+ * A terminal that the program talks to through a file descriptor for input and one for output.
+ * Besides the default session, which is the terminal that standard input and standard output are connected to,
+ * sessions can be opened on other terminals, such as the slave sides of pseudo-terminals,
+ * so that one JVM can serve many terminals at once, for example one per user of a multi-user console.
+ *
+ * Each session has its own raw input mode state: entering or leaving raw input mode on one session does not affect the others.
+ * Each session also has its own {@link Frame}, with its own lock and its own knowledge of the terminal's width and scroll region,
+ * so that threads drawing on different sessions do not block each other.
+ * The input of all sessions other than the default one is watched by a single daemon thread, named
+ * "io.github.btj.termios.Session poller", which waits for any of them to become readable using epoll on Linux and kqueue
+ * on macOS. It does not read the input itself; it hands each readable session to the executor of its {@link InputSubscription},
+ * which reads the available bytes. So thousands of sessions need only that one thread, plus the threads of their executors.
+ *
+ * The static methods of {@link Terminal} act on the default session; the methods of this class that have the same name act
+ * on this session's terminal instead. Other sessions always use the native library, and are not supported on Windows.
+ *
+ * Example:
+ * <pre>
+ * TerminalSession session = TerminalSession.open("/dev/pts/3");
+ * session.enterRawInputMode();
+ * TerminalSize size = session.getSize();
+ * session.clearScreen();
+ * session.printText(1, 1, "Welcome, " + user);
+ * Screen screen = new Screen(size.height(), size.width(), session);
+ * session.subscribe(executor, bytes -&gt; {
+ *     ... // Update the screen.
+ *     screen.flush();
+ * });
+ * </pre>
+ */
+public abstract class TerminalSession implements AutoCloseable {
+
+    private static final TerminalSession DEFAULT = new DefaultSession();
+
+    /** The active subscription, if any. Guarded by this. */
+    InputSubscription subscription;
+    final Frame frame = new Frame(this);
+    private final java.io.OutputStream outputStream = new java.io.OutputStream() {
+        /** Guarded by the frame's lock, which is held while writing, so that a write does not interleave with a frame. */
+        private final OutputBuffer buffer = new OutputBuffer();
+
+        @Override
+        public void write(int b) throws java.io.IOException {
+            frame.lock.lock();
+            try {
+                buffer.put(b);
+                writeOrThrow(buffer);
+            } finally {
+                frame.lock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) throws java.io.IOException {
+            java.util.Objects.checkFromIndexSize(offset, count, bytes.length);
+            frame.lock.lock();
+            try {
+                buffer.put(bytes, offset, count);
+                writeOrThrow(buffer);
+            } finally {
+                frame.lock.unlock();
+            }
+        }
+    };
+
+    TerminalSession() {}
+
+    /**
+     * Returns the session for the terminal that standard input and standard output are connected to.
+     * Closing it has no effect.
+     */
+    public static TerminalSession getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Opens the terminal device at the given path, for example the slave side of a pseudo-terminal, for input and output.
+     * The device does not become the JVM's controlling terminal. It is closed when the session is closed.
+     *
+     * @throws java.io.IOException if the device cannot be opened.
+     * @throws UnsupportedOperationException on Windows.
+     */
+    public static TerminalSession open(String path) throws java.io.IOException {
+        java.util.Objects.requireNonNull(path);
+        NativeLibrary.ensureLoaded();
+        int fd = Terminal.openTerminal(path);
+        return new FileDescriptorSession(fd, fd, true);
+    }
+
+    /**
+     * Returns a session that reads from and writes to the given file descriptors, which may be the same.
+     * They are not closed when the session is closed.
+     *
+     * @throws IllegalArgumentException if a given file descriptor is negative.
+     */
+    public static TerminalSession forFileDescriptors(int inputFd, int outputFd) {
+        if (inputFd < 0 || outputFd < 0)
+            throw new IllegalArgumentException("A given file descriptor is negative");
+        NativeLibrary.ensureLoaded();
+        return new FileDescriptorSession(inputFd, outputFd, false);
+    }
+
+    /**
+     * Like {@link Terminal#enterRawInputMode()}, but for this session's terminal.
+     * Does nothing if this session is in raw input mode already.
+     *
+     * @throws IllegalStateException if the terminal's attributes cannot be got or set, for example because the input is not a terminal.
+     */
+    public abstract void enterRawInputMode();
+
+    /**
+     * Puts this session's terminal back into the mode that was active when {@link #enterRawInputMode()} was called.
+     * Does nothing if this session is not in raw input mode.
+     *
+     * @throws IllegalStateException if the terminal's attributes cannot be set.
+     */
+    public abstract void leaveRawInputMode();
+
+    /**
+     * Like {@link Terminal#getSize()}, but for this session's terminal.
+     *
+     * @throws java.io.IOException if neither the output nor the input is a terminal.
+     */
+    public abstract TerminalSize getSize() throws java.io.IOException;
+
+    /**
+     * Like {@link Terminal#subscribe(java.util.concurrent.Executor, java.util.function.Consumer)}, but for this session's input.
+     *
+     * @throws IllegalStateException if this session's input is subscribed to already, or if this session is closed.
+     */
+    public InputSubscription subscribe(java.util.concurrent.Executor executor, java.util.function.Consumer<java.nio.ByteBuffer> consumer) {
+        return InputSubscription.subscribe(this, executor, consumer);
+    }
+
+    /**
+     * Returns a stream that writes to this session's terminal. Each write call results in a single write to the terminal,
+     * unless this session's {@link Frame} is open in the current thread; then the output is appended to the frame.
+     */
+    public java.io.OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    private void writeOrThrow(OutputBuffer buffer) throws java.io.IOException {
+        try {
+            write(buffer);
+        } catch (java.io.UncheckedIOException e) {
+            buffer.clear();
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#beginFrame()}, but starts a frame on this session's terminal.
+     * Other threads that begin a frame on this session block until it is closed; frames on other sessions do not.
+     */
+    public Frame beginFrame() {
+        return frame.begin();
+    }
+
+    /**
+     * Like {@link Terminal#reportTextAreaSize()}, but for this session's terminal, which reports to this session's input.
+     */
+    public void reportTextAreaSize() {
+        try (Frame frame = beginFrame()) {
+            frame.reportTextAreaSize();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#enableBracketedPaste()}, but for this session's terminal.
+     */
+    public void enableBracketedPaste() {
+        try (Frame frame = beginFrame()) {
+            frame.enableBracketedPaste();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#disableBracketedPaste()}, but for this session's terminal.
+     */
+    public void disableBracketedPaste() {
+        try (Frame frame = beginFrame()) {
+            frame.disableBracketedPaste();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#enableMouseTracking(MouseTracking)}, but for this session's terminal.
+     */
+    public void enableMouseTracking(MouseTracking tracking) {
+        try (Frame frame = beginFrame()) {
+            frame.enableMouseTracking(tracking);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#disableMouseTracking()}, but for this session's terminal.
+     */
+    public void disableMouseTracking() {
+        try (Frame frame = beginFrame()) {
+            frame.disableMouseTracking();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#clearScreen()}, but for this session's terminal.
+     */
+    public void clearScreen() {
+        try (Frame frame = beginFrame()) {
+            frame.clearScreen();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#moveCursor(int, int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     */
+    public void moveCursor(int row, int column) {
+        try (Frame frame = beginFrame()) {
+            frame.moveCursor(row, column);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#setScrollRegion(int, int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given top row is less than 1 or not less than the given bottom row.
+     */
+    public void setScrollRegion(int top, int bottom) {
+        try (Frame frame = beginFrame()) {
+            frame.setScrollRegion(top, bottom);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#resetScrollRegion()}, but for this session's terminal.
+     */
+    public void resetScrollRegion() {
+        try (Frame frame = beginFrame()) {
+            frame.resetScrollRegion();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#scrollUp(int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given number of lines is less than 1.
+     */
+    public void scrollUp(int lines) {
+        try (Frame frame = beginFrame()) {
+            frame.scrollUp(lines);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#scrollDown(int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given number of lines is less than 1.
+     */
+    public void scrollDown(int lines) {
+        try (Frame frame = beginFrame()) {
+            frame.scrollDown(lines);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#insertLines(int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given count is less than 1.
+     */
+    public void insertLines(int count) {
+        try (Frame frame = beginFrame()) {
+            frame.insertLines(count);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#deleteLines(int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given count is less than 1.
+     */
+    public void deleteLines(int count) {
+        try (Frame frame = beginFrame()) {
+            frame.deleteLines(count);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#printText(int, int, String)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given text contains control characters or unpaired surrogates.
+     */
+    public void printText(int row, int column, String text) {
+        printText(row, column, text, 0, text.length());
+    }
+
+    /**
+     * Like {@link Terminal#printText(int, int, CharSequence, int, int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given range of the text contains control characters or unpaired surrogates.
+     * @throws IndexOutOfBoundsException if the given start and end do not denote a range within the given text.
+     */
+    public void printText(int row, int column, CharSequence text, int start, int end) {
+        try (Frame frame = beginFrame()) {
+            frame.printText(row, column, text, start, end);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#printText(int, int, char[], int, int)}, but for this session's terminal.
+     *
+     * @throws IllegalArgumentException if the given row or column are less than 1.
+     * @throws IllegalArgumentException if the given range of the array contains control characters or unpaired surrogates.
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public void printText(int row, int column, char[] text, int offset, int count) {
+        try (Frame frame = beginFrame()) {
+            frame.printText(row, column, text, offset, count);
+        }
+    }
+
+    /**
+     * Like {@link Terminal#readByte()}, but reads from this session's input.
+     * While this session's input is subscribed to, do not read it in this way.
+     */
+    public int readByte() throws java.io.IOException {
+        try {
+            return readByte0(Long.MAX_VALUE);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#readByte(long)}, but reads from this session's input.
+     */
+    public int readByte(long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return readByte0(Terminal.timeoutNanos(deadline));
+    }
+
+    /**
+     * Like {@link Terminal#readByteNanos(long)}, but reads from this session's input.
+     */
+    public int readByteNanos(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return readByte0(Math.max(0, timeoutNanos));
+    }
+
+    /**
+     * Like {@link Terminal#readByte(java.time.Duration)}, but reads from this session's input.
+     */
+    public int readByte(java.time.Duration timeout) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return readByteNanos(Terminal.toNanos(timeout));
+    }
+
+    /**
+     * Like {@link Terminal#readBytes(byte[], int, int)}, but reads from this session's input.
+     *
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public int readBytes(byte[] bytes, int offset, int count) throws java.io.IOException {
+        try {
+            return readBytes0(bytes, offset, count, Long.MAX_VALUE);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#readBytes(byte[], int, int, long)}, but reads from this session's input.
+     *
+     * @throws IndexOutOfBoundsException if the given offset and count do not denote a range within the given array.
+     */
+    public int readBytes(byte[] bytes, int offset, int count, long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return readBytes0(bytes, offset, count, Terminal.timeoutNanos(deadline));
+    }
+
+    /**
+     * Like {@link Terminal#readBytes(java.nio.ByteBuffer)}, but reads from this session's input.
+     */
+    public int readBytes(java.nio.ByteBuffer bytes) throws java.io.IOException {
+        try {
+            return readBytes0(bytes, Long.MAX_VALUE);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Like {@link Terminal#readBytes(java.nio.ByteBuffer, long)}, but reads from this session's input.
+     */
+    public int readBytes(java.nio.ByteBuffer bytes, long deadline) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return readBytes0(bytes, Terminal.timeoutNanos(deadline));
+    }
+
+    /**
+     * Ends this session's subscription, if any, leaves raw input mode, and closes the terminal if this session opened it.
+     */
+    @Override
+    public abstract void close();
+
+    /** Ends the active subscription, if any. */
+    void closeSubscription() {
+        InputSubscription active;
+        synchronized (this) {
+            active = subscription;
+        }
+        if (active != null)
+            active.close();
+    }
+
+    /**
+     * Writes the contents of the given buffer to this session's terminal and clears the buffer.
+     * If this session's frame is open in the current thread, appends the contents to the frame instead.
+     *
+     * @throws java.io.UncheckedIOException if writing fails.
+     */
+    void write(OutputBuffer buffer) {
+        frame.lock.lock();
+        try {
+            if (!frame.appendIfOpen(buffer))
+                writeNow(buffer);
+        } finally {
+            frame.lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the contents of the given buffer to this session's terminal with a single write call, and clears the buffer.
+     * Must be called while holding the lock of this session's frame.
+     *
+     * @throws java.io.UncheckedIOException if writing fails.
+     */
+    abstract void writeNow(OutputBuffer buffer);
+
+    /** Returns true if a scroll region might be set on this session's terminal, so that line feeds might scroll it. */
+    boolean scrollRegionMaybeSet() {
+        return frame.scrollRegionSet;
+    }
+
+    /**
+     * Reads a byte, waiting at most the given number of nanoseconds, where {@code Long.MAX_VALUE} means no timeout.
+     * Returns -1 at the end of the input.
+     */
+    abstract int readByte0(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException;
+
+    /** Like {@link #readBytes(byte[], int, int)}, but waits at most the given number of nanoseconds, like {@link #readByte0(long)}. */
+    abstract int readBytes0(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException;
+
+    /** Like {@link #readBytes(java.nio.ByteBuffer)}, but waits at most the given number of nanoseconds, like {@link #readByte0(long)}. */
+    abstract int readBytes0(java.nio.ByteBuffer bytes, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException;
+
+    /**
+     * Sets the given listener, which is called once, on an arbitrary thread, when input is available. If input is available
+     * already, it may be called right away, in the current thread.
+     *
+     * @throws IllegalStateException if a listener was set already.
+     */
+    abstract void addInputListener(Runnable listener);
+
+    /** Removes the given listener, if it is set. It may still be called. */
+    abstract void removeInputListener(Runnable listener);
+
+    /**
+     * Reads the bytes that are available now into the given buffer, without waiting, up to its number of remaining bytes.
+     * Returns the number of bytes read, or -1 at the end of the input.
+     */
+    abstract int readAvailable(java.nio.ByteBuffer bytes) throws java.io.IOException;
+
+    /** Returns the time at which the input that caused the last listener call arrived, for {@link Metrics#dispatched}, or 0. */
+    abstract long inputArrivalTime();
+
+}
+
+/** The session for standard input and standard output, whose state is kept by {@link Stdin}, {@link Stdout} and {@link NativeBackend}. */
+final class DefaultSession extends TerminalSession {
+
+    public void enterRawInputMode() { NativeBackend.INSTANCE.enterRawInputMode(); }
+
+    public void leaveRawInputMode() { NativeBackend.INSTANCE.leaveRawInputMode(); }
+
+    public TerminalSize getSize() throws java.io.IOException {
+        long size = NativeBackend.INSTANCE.queryTextAreaSize();
+        frame.textAreaWidth = (int)size;
+        return new TerminalSize((int)(size >>> 32), (int)size);
+    }
+
+    public void close() {}
+
+    void writeNow(OutputBuffer buffer) { Stdout.write(buffer); }
+
+    int readByte0(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return Stdin.readByte(timeoutNanos);
+    }
+
+    int readBytes0(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return Stdin.readBytes(bytes, offset, count, timeoutNanos);
+    }
+
+    int readBytes0(java.nio.ByteBuffer bytes, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        return Stdin.readBytes(bytes, timeoutNanos);
+    }
+
+    void addInputListener(Runnable listener) { Stdin.addListener(listener); }
+
+    void removeInputListener(Runnable listener) { Stdin.removeListener(listener); }
+
+    int readAvailable(java.nio.ByteBuffer bytes) throws java.io.IOException {
+        try {
+            return Stdin.readBytes(bytes, 0);
+        } catch (java.util.concurrent.TimeoutException e) {
+            return 0;
+        }
+    }
+
+    long inputArrivalTime() { return Stdin.arrivalTime(); }
+
+}
+
+/** A session on file descriptors other than standard input and standard output. */
+final class FileDescriptorSession extends TerminalSession {
+
+    private final int inputFd;
+    private final int outputFd;
+    private final boolean ownsFileDescriptors;
+    /** The terminal attributes saved by enterRawInputMode. Guarded by this. */
+    private final byte[] savedAttributes = new byte[Terminal.TERMIOS_SIZE];
+    /** Guarded by this. */
+    private boolean raw;
+    private volatile boolean closed;
+    /** True once the input descriptor was armed, so that the poller watches it. */
+    private volatile boolean polled;
+    private final java.util.concurrent.atomic.AtomicReference<Runnable> listener = new java.util.concurrent.atomic.AtomicReference<>();
+    private volatile long arrivalTime;
+    /** Guarded by itself; held while writing, so that output from different threads does not interleave. */
+    private final java.nio.channels.WritableByteChannel channel = new java.nio.channels.WritableByteChannel() {
+        public int write(java.nio.ByteBuffer bytes) throws java.io.IOException {
+            int position = bytes.position();
+            int n = Terminal.write(outputFd, bytes, position, bytes.limit());
+            bytes.position(position + n);
+            return n;
+        }
+        public boolean isOpen() { return !closed; }
+        public void close() {}
+    };
+    /**
+     * Blocking reads wait for input in slices of at most this many nanoseconds, so that they notice when the session is closed
+     * and release {@link #readLock}, under which the descriptor is closed.
+     */
+    private static final long READ_SLICE_NANOS = 50_000_000;
+    /** Held while reading, so that {@link #pending} is read by one thread at a time, and while closing the input descriptor. */
+    private final Object readLock = new Object();
+    /** Input read by readByte0 that was not returned yet, from pendingStart to pendingEnd. Guarded by readLock. */
+    private final byte[] pending = new byte[4096];
+    private int pendingStart;
+    private int pendingEnd;
+
+    FileDescriptorSession(int inputFd, int outputFd, boolean ownsFileDescriptors) {
+        this.inputFd = inputFd;
+        this.outputFd = outputFd;
+        this.ownsFileDescriptors = ownsFileDescriptors;
+    }
+
+    public synchronized void enterRawInputMode() {
+        if (raw)
+            return;
+        try {
+            Terminal.enterRawInputMode0(inputFd, savedAttributes);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not set the terminal attributes. Is the input not a terminal?", e);
+        }
+        raw = true;
+    }
+
+    public synchronized void leaveRawInputMode() {
+        if (!raw)
+            return;
+        try {
+            Terminal.leaveRawInputMode0(inputFd, savedAttributes);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("Could not set the terminal attributes", e);
+        }
+        raw = false;
+    }
+
+    public TerminalSize getSize() throws java.io.IOException {
+        long size = Terminal.queryTextAreaSize(outputFd, inputFd);
+        frame.textAreaWidth = (int)size;
+        return new TerminalSize((int)(size >>> 32), (int)size);
+    }
+
+    void writeNow(OutputBuffer buffer) {
+        try {
+            synchronized (channel) {
+                if (closed) {
+                    buffer.clear();
+                    throw new java.io.IOException("The session is closed");
+                }
+                buffer.writeTo(channel);
+            }
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads directly from the input descriptor, waiting at most the given number of nanoseconds, like {@link #readByte0(long)}.
+     * Must be called with {@link #readLock} held.
+     *
+     * @throws java.io.IOException if the session is closed, also if it is closed while waiting.
+     */
+    private int pollRead(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (long remaining = timeoutNanos; ; ) {
+            if (closed)
+                throw new java.io.IOException("The session is closed");
+            int n = Terminal.pollRead(inputFd, bytes, offset, count, Math.min(remaining, READ_SLICE_NANOS));
+            if (n != 0)
+                return n;
+            // Interrupted by a signal, or the slice or the timeout elapsed.
+            if (timeoutNanos != Long.MAX_VALUE && (remaining = deadline - System.nanoTime()) <= 0)
+                throw new java.util.concurrent.TimeoutException();
+        }
+    }
+
+    int readByte0(long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        synchronized (readLock) {
+            if (pendingStart == pendingEnd) {
+                int n = pollRead(pending, 0, pending.length, timeoutNanos);
+                if (n < 0)
+                    return -1;
+                pendingStart = 0;
+                pendingEnd = n;
+            }
+            return pending[pendingStart++] & 0xff;
+        }
+    }
+
+    int readBytes0(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        java.util.Objects.checkFromIndexSize(offset, count, bytes.length);
+        if (count == 0)
+            return 0;
+        synchronized (readLock) {
+            if (pendingStart < pendingEnd) {
+                int n = Math.min(count, pendingEnd - pendingStart);
+                System.arraycopy(pending, pendingStart, bytes, offset, n);
+                pendingStart += n;
+                return n;
+            }
+            return pollRead(bytes, offset, count, timeoutNanos);
+        }
+    }
+
+    int readBytes0(java.nio.ByteBuffer bytes, long timeoutNanos) throws java.io.IOException, java.util.concurrent.TimeoutException {
+        if (!bytes.hasRemaining())
+            return 0;
+        synchronized (readLock) {
+            if (pendingStart == pendingEnd) {
+                int n = pollRead(pending, 0, pending.length, timeoutNanos);
+                if (n < 0)
+                    return -1;
+                pendingStart = 0;
+                pendingEnd = n;
+            }
+            int n = Math.min(bytes.remaining(), pendingEnd - pendingStart);
+            bytes.put(pending, pendingStart, n);
+            pendingStart += n;
+            return n;
+        }
+    }
+
+    void addInputListener(Runnable listener) {
+        if (closed)
+            throw new IllegalStateException("The session is closed");
+        if (!this.listener.compareAndSet(null, listener))
+            throw new IllegalStateException("An input listener was already set");
+        try {
+            polled = true;
+            SessionPoller.arm(this, inputFd);
+        } catch (java.io.IOException e) {
+            this.listener.compareAndSet(listener, null);
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    void removeInputListener(Runnable listener) {
+        this.listener.compareAndSet(listener, null);
+    }
+
+    /** Called by the poller thread when the input is readable or at its end. */
+    void onReadable() {
+        arrivalTime = Metrics.arrivalTime();
+        Runnable listener = this.listener.getAndSet(null);
+        if (listener != null) {
+            Metrics.dispatched("listener", arrivalTime);
+            listener.run();
+        }
+    }
+
+    int readAvailable(java.nio.ByteBuffer bytes) throws java.io.IOException {
+        try {
+            return readBytes0(bytes, 0);
+        } catch (java.util.concurrent.TimeoutException e) {
+            return 0;
+        }
+    }
+
+    long inputArrivalTime() { return arrivalTime; }
+
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        closeSubscription();
+        listener.set(null);
+        if (polled)
+            SessionPoller.disarm(this, inputFd);
+        try {
+            leaveRawInputMode();
+        } catch (IllegalStateException e) {
+            // The terminal may be gone already.
+        }
+        if (ownsFileDescriptors) {
+            // Readers and writers check closed before each use of the descriptor, so once both locks are held, none will use it again,
+            // not even a descriptor with the same number that the operating system hands out after this.
+            synchronized (readLock) {
+                synchronized (channel) {
+                    try {
+                        Terminal.closeFileDescriptor(inputFd);
+                    } catch (java.io.IOException e) {
+                        // Nothing was lost; the descriptor is released anyway.
+                    }
+                }
+            }
+        }
+    }
+
+}
+
+/**
+ * The daemon thread that waits for the input of any {@link FileDescriptorSession} that has an input listener to become readable,
+ * and then calls the listener. Each session's descriptor is armed for a single notification when its listener is set.
+ */
+class SessionPoller {
+
+    private static final int MAX_EVENTS = 256;
+    private static final int poller = createPoller();
+    private static final java.util.concurrent.ConcurrentHashMap<Integer, FileDescriptorSession> sessions = new java.util.concurrent.ConcurrentHashMap<>();
+
+    static {
+        Thread t = new Thread(null, SessionPoller::run, "io.github.btj.termios.Session poller");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static int createPoller() {
+        try {
+            return Terminal.createPoller();
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Arms the given session's input descriptor for one notification.
+     *
+     * @throws IllegalStateException if another session reads from the same descriptor.
+     */
+    static void arm(FileDescriptorSession session, int fd) throws java.io.IOException {
+        FileDescriptorSession other = sessions.putIfAbsent(fd, session);
+        if (other != null && other != session)
+            throw new IllegalStateException("Another session reads from the same file descriptor");
+        Terminal.armPoller(poller, fd);
+    }
+
+    /** Stops watching the given session's input descriptor. */
+    static void disarm(FileDescriptorSession session, int fd) {
+        if (sessions.remove(fd, session))
+            Terminal.disarmPoller(poller, fd);
+    }
+
+    private static void run() {
+        int[] ready = new int[MAX_EVENTS];
+        try {
+            for (;;) {
+                int n = Terminal.waitPoller(poller, ready);
+                for (int i = 0; i < n; i++) {
+                    FileDescriptorSession session = sessions.get(ready[i]);
+                    if (session != null)
+                        session.onReadable();
+                }
+            }
+        } catch (java.io.IOException e) {
+            // Stop watching; there is nobody to report this to.
+        }
+    }
+
+}
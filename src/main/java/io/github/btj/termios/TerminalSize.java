@@ -0,0 +1,8 @@
+package io.github.btj.termios;
+
+/**
+ * The size of the terminal's text area, in rows ({@code height}) and columns ({@code width}).
+ *
+ * @see Terminal#getSize()
+ */
+public record TerminalSize(int height, int width) {}
@@ -0,0 +1,223 @@
+package io.github.btj.termios;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT;
+
+/**
+ * Calls {@code tcgetattr}, {@code tcsetattr}, {@code ioctl}, {@code poll} and {@code read} through the
+ * Foreign Function &amp; Memory API, which is final as of Java 22. This class is compiled only if the JDK
+ * supports Java 22, and is used only on 64-bit Linux and macOS, whose structure layouts and constants it hardcodes.
+ */
+final class FfmBackend extends NativeBackend {
+
+    private static final boolean MAC_OS = System.getProperty("os.name").startsWith("Mac");
+
+    // struct termios: the flag fields are unsigned int on Linux and unsigned long on macOS.
+    private static final long TCFLAG_SIZE = MAC_OS ? 8 : 4;
+    private static final long C_IFLAG = 0;
+    private static final long C_LFLAG = 3 * TCFLAG_SIZE;
+    private static final long C_CC = MAC_OS ? 32 : 17;
+    private static final long TERMIOS_SIZE = MAC_OS ? 72 : 60;
+    private static final int BRKINT = 0x2;
+    private static final int ICRNL = 0x100;
+    private static final int IXON = MAC_OS ? 0x200 : 0x400;
+    private static final int ISIG = MAC_OS ? 0x80 : 0x1;
+    private static final int ICANON = MAC_OS ? 0x100 : 0x2;
+    private static final int ECHO = 0x8;
+    private static final int IEXTEN = MAC_OS ? 0x400 : 0x8000;
+    private static final int VTIME = MAC_OS ? 17 : 5;
+    private static final int VMIN = MAC_OS ? 16 : 6;
+    private static final int TCSANOW = 0;
+
+    private static final long TIOCGWINSZ = MAC_OS ? 0x40087468L : 0x5413;
+    private static final short POLLIN = 1;
+    private static final int EINTR = 4;
+    private static final int EAGAIN = MAC_OS ? 35 : 11;
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * Returns a new FfmBackend, or null if this platform is not supported or if native access is not enabled
+     * for this library and {@code force} is false.
+     */
+    static FfmBackend create(boolean force) {
+        String os = System.getProperty("os.name");
+        String arch = System.getProperty("os.arch");
+        if (!(os.equals("Linux") || os.startsWith("Mac")) || !(arch.equals("amd64") || arch.equals("x86_64") || arch.equals("aarch64")))
+            return null;
+        if (!force && !FfmBackend.class.getModule().isNativeAccessEnabled())
+            return null;
+        return new FfmBackend();
+    }
+
+    /**
+     * Holds the downcall handles. Creating them is a restricted operation, which prints a warning if native access
+     * is not enabled, so this class is initialized only after {@link #create(boolean)} has checked that.
+     */
+    private static final class Downcalls {
+
+        private static final Linker LINKER = Linker.nativeLinker();
+        private static final Linker.Option CAPTURE_ERRNO = Linker.Option.captureCallState("errno");
+        private static final long CALL_STATE_SIZE = Linker.Option.captureStateLayout().byteSize();
+        private static final long ERRNO_OFFSET = Linker.Option.captureStateLayout().byteOffset(MemoryLayout.PathElement.groupElement("errno"));
+
+        private static final MethodHandle TCGETATTR = downcall("tcgetattr", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS));
+        private static final MethodHandle TCSETATTR = downcall("tcsetattr", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS));
+        private static final MethodHandle IOCTL = downcall("ioctl", FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_LONG, ADDRESS), CAPTURE_ERRNO, Linker.Option.firstVariadicArg(2));
+        // On Linux, ppoll takes a timeout in nanoseconds; elsewhere, poll takes one in milliseconds.
+        private static final MethodHandle POLL = MAC_OS
+                ? downcall("poll", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT), CAPTURE_ERRNO)
+                : downcall("ppoll", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG, ADDRESS, ADDRESS), CAPTURE_ERRNO);
+        private static final MethodHandle READ = downcall("read", FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG), CAPTURE_ERRNO);
+        private static final MethodHandle STRERROR = downcall("strerror", FunctionDescriptor.of(ADDRESS, JAVA_INT));
+
+        private static MethodHandle downcall(String name, FunctionDescriptor descriptor, Linker.Option... options) {
+            MemorySegment address = LINKER.defaultLookup().find(name).orElseThrow(() -> new UnsatisfiedLinkError(name));
+            return LINKER.downcallHandle(address, descriptor, options);
+        }
+
+    }
+
+    private final Arena arena = Arena.ofAuto();
+    // The following are guarded by this.
+    /** The terminal attributes saved by enterRawInputMode. */
+    private final MemorySegment originalTerm = arena.allocate(TERMIOS_SIZE, 8);
+    private final MemorySegment rawTerm = arena.allocate(TERMIOS_SIZE, 8);
+    /** struct winsize: unsigned short ws_row, ws_col, ws_xpixel, ws_ypixel */
+    private final MemorySegment winsize = arena.allocate(8, 8);
+    private final MemorySegment sizeCallState = arena.allocate(Downcalls.CALL_STATE_SIZE, 8);
+    // The following are used by pollRead only, which is called by at most one thread at a time.
+    private final MemorySegment pollFd = arena.allocate(8, 8);
+    private final MemorySegment timeout = arena.allocate(16, 8);
+    private final MemorySegment chunk = arena.allocate(CHUNK_SIZE, 8);
+    private final MemorySegment pollCallState = arena.allocate(Downcalls.CALL_STATE_SIZE, 8);
+
+    private FfmBackend() {}
+
+    private static java.io.IOException ioException(int errno) {
+        try {
+            MemorySegment message = (MemorySegment)Downcalls.STRERROR.invokeExact(errno);
+            return new java.io.IOException(message.reinterpret(Long.MAX_VALUE).getString(0));
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static long getFlag(MemorySegment term, long offset) {
+        return TCFLAG_SIZE == 8 ? term.get(JAVA_LONG, offset) : term.get(JAVA_INT, offset) & 0xffffffffL;
+    }
+
+    private static void setFlag(MemorySegment term, long offset, long value) {
+        if (TCFLAG_SIZE == 8)
+            term.set(JAVA_LONG, offset, value);
+        else
+            term.set(JAVA_INT, offset, (int)value);
+    }
+
+    synchronized void enterRawInputMode() {
+        int result;
+        try {
+            result = (int)Downcalls.TCGETATTR.invokeExact(0, originalTerm);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        if (result != 0)
+            throw new IllegalStateException("Could not get the terminal attributes. Is stdin not a terminal?");
+
+        rawTerm.copyFrom(originalTerm);
+        // See io_github_btj_termios_Terminal.c for why these flags are cleared.
+        setFlag(rawTerm, C_IFLAG, getFlag(rawTerm, C_IFLAG) & ~(ICRNL | BRKINT | IXON));
+        setFlag(rawTerm, C_LFLAG, getFlag(rawTerm, C_LFLAG) & ~(ECHO | ICANON | IEXTEN | ISIG));
+        rawTerm.set(JAVA_BYTE, C_CC + VMIN, (byte)1);
+        rawTerm.set(JAVA_BYTE, C_CC + VTIME, (byte)0);
+
+        try {
+            result = (int)Downcalls.TCSETATTR.invokeExact(0, TCSANOW, rawTerm);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        if (result != 0)
+            throw new IllegalStateException("Could not set the terminal attributes. Is stdin not a terminal?");
+    }
+
+    synchronized void leaveRawInputMode() {
+        int result;
+        try {
+            result = (int)Downcalls.TCSETATTR.invokeExact(0, TCSANOW, originalTerm);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        if (result != 0)
+            throw new IllegalStateException("Could not set the terminal attributes. Is stdin not a terminal?");
+    }
+
+    int pollRead(byte[] bytes, int offset, int count, long timeoutNanos) throws java.io.IOException {
+        pollFd.set(JAVA_INT, 0, 0);
+        pollFd.set(JAVA_SHORT, 4, POLLIN);
+        pollFd.set(JAVA_SHORT, 6, (short)0);
+        int result;
+        try {
+            if (MAC_OS) {
+                // poll's timeout is in milliseconds; round up so that we do not return before the timeout elapsed.
+                int timeoutMillis = timeoutNanos < 0 ? -1 : timeoutNanos >= 2_000_000_000_000_000L ? 2_000_000_000 : (int)((timeoutNanos + 999_999) / 1_000_000);
+                result = (int)Downcalls.POLL.invokeExact(pollCallState, pollFd, 1, timeoutMillis);
+            } else {
+                timeout.set(JAVA_LONG, 0, timeoutNanos / 1_000_000_000);
+                timeout.set(JAVA_LONG, 8, timeoutNanos % 1_000_000_000);
+                MemorySegment timeoutOrNull = timeoutNanos < 0 ? MemorySegment.NULL : timeout;
+                result = (int)Downcalls.POLL.invokeExact(pollCallState, pollFd, 1L, timeoutOrNull, MemorySegment.NULL);
+            }
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        if (result < 0) {
+            int errno = pollCallState.get(JAVA_INT, Downcalls.ERRNO_OFFSET);
+            if (errno != EINTR)
+                throw ioException(errno);
+            return 0;
+        }
+        if (result == 0)
+            return 0;
+
+        long n;
+        try {
+            n = (long)Downcalls.READ.invokeExact(pollCallState, 0, chunk, (long)Math.min(count, CHUNK_SIZE));
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        if (n < 0) {
+            int errno = pollCallState.get(JAVA_INT, Downcalls.ERRNO_OFFSET);
+            if (errno != EINTR && errno != EAGAIN)
+                throw ioException(errno);
+            return 0;
+        }
+        if (n == 0)
+            return -1; // End of file
+        MemorySegment.copy(chunk, JAVA_BYTE, 0, bytes, offset, (int)n);
+        return (int)n;
+    }
+
+    synchronized long queryTextAreaSize() throws java.io.IOException {
+        int result;
+        try {
+            result = (int)Downcalls.IOCTL.invokeExact(sizeCallState, 1, TIOCGWINSZ, winsize);
+            if (result != 0)
+                result = (int)Downcalls.IOCTL.invokeExact(sizeCallState, 0, TIOCGWINSZ, winsize);
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+        if (result != 0)
+            throw ioException(sizeCallState.get(JAVA_INT, Downcalls.ERRNO_OFFSET));
+        return (long)Short.toUnsignedInt(winsize.get(JAVA_SHORT, 0)) << 32 | Short.toUnsignedInt(winsize.get(JAVA_SHORT, 2));
+    }
+
+}
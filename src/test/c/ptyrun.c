@@ -0,0 +1,94 @@
+/*
+ * Runs a program on a new pseudo-terminal, for automated tests of programs that need a terminal.
+ *
+ * Usage: ptyrun ROWS COLUMNS PROGRAM [ARGUMENT...]
+ *
+ * Bytes read from this process's standard input are written to the pseudo-terminal (as if typed by the user),
+ * and bytes written by the program to the pseudo-terminal are copied to this process's standard output.
+ * Exits with the program's exit status once the program has exited and all of its output has been copied.
+ */
+
+#include <stdio.h>
+#include <stdlib.h>
+#include <errno.h>
+#include <poll.h>
+#include <unistd.h>
+#include <sys/wait.h>
+#include <termios.h>
+#ifdef __APPLE__
+    #include <util.h>
+#else
+    #include <pty.h>
+#endif
+
+static int writeAll(int fd, const char *bytes, ssize_t count) {
+    while (count > 0) {
+        ssize_t n = write(fd, bytes, count);
+        if (n < 0) {
+            if (errno == EINTR)
+                continue;
+            return -1;
+        }
+        bytes += n;
+        count -= n;
+    }
+    return 0;
+}
+
+int main(int argc, char **argv) {
+    if (argc < 4) {
+        fprintf(stderr, "Usage: %s ROWS COLUMNS PROGRAM [ARGUMENT...]\n", argv[0]);
+        return 2;
+    }
+    struct winsize size = { .ws_row = atoi(argv[1]), .ws_col = atoi(argv[2]) };
+    int master;
+    pid_t pid = forkpty(&master, NULL, NULL, &size);
+    if (pid < 0) {
+        perror("forkpty");
+        return 2;
+    }
+    if (pid == 0) {
+        execvp(argv[3], argv + 3);
+        perror("execvp");
+        _exit(127);
+    }
+
+    struct pollfd fds[2] = { { .fd = master, .events = POLLIN }, { .fd = 0, .events = POLLIN } };
+    char buffer[4096];
+    for (;;) {
+        // Once standard input is at its end, stop polling it, but keep copying the program's output.
+        if (poll(fds, fds[1].fd < 0 ? 1 : 2, -1) < 0) {
+            if (errno == EINTR)
+                continue;
+            perror("poll");
+            return 2;
+        }
+        if (fds[0].revents) {
+            ssize_t n = read(master, buffer, sizeof(buffer));
+            if (n <= 0) {
+                if (n < 0 && errno == EINTR)
+                    continue;
+                break; // On Linux, reading the master fails with EIO once the program has closed the terminal.
+            }
+            if (writeAll(1, buffer, n))
+                break;
+        }
+        if (fds[1].fd >= 0 && fds[1].revents) {
+            ssize_t n = read(0, buffer, sizeof(buffer));
+            if (n < 0 && errno == EINTR)
+                continue;
+            if (n <= 0)
+                fds[1].fd = -1;
+            else if (writeAll(master, buffer, n))
+                break;
+        }
+    }
+
+    int status;
+    while (waitpid(pid, &status, 0) < 0)
+        if (errno != EINTR) {
+            perror("waitpid");
+            return 2;
+        }
+    return WIFEXITED(status) ? WEXITSTATUS(status) : 128 + WTERMSIG(status);
+}
@@ -0,0 +1,188 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.github.btj.termios.Frame;
+import io.github.btj.termios.Terminal;
+
+/**
+ * Checks that the cursor movements chosen by Frame leave text where an absolute movement would,
+ * and measures the bytes they take on redraw traces typical of applications, compared to absolute movements.
+ *
+ * Runs itself on a pseudo-terminal, so that the terminal's width is known, and replays the same traces with absolute
+ * movements into a VirtualTerminal to obtain the expected screen. The byte counts are reported by the child once the screen is checked.
+ * Run using <code>make test_cursor_movement</code>.
+ */
+public class CursorMovementTest {
+
+    static final int HEIGHT = 24, WIDTH = 80;
+    static final String DONE = "CursorMovementTest done";
+
+    /** Prints the given text at the given position (1-based), or only moves the cursor there if the text is null. */
+    record Op(int row, int column, String text) {}
+
+    /** Every row redrawn in full, as ScreenBuffer.flush in TerminalTest does. */
+    static List<List<Op>> redrawTrace() {
+        List<List<Op>> frames = new ArrayList<>();
+        for (int frame = 0; frame < 10; frame++) {
+            List<Op> ops = new ArrayList<>();
+            for (int row = 1; row < HEIGHT; row++) {
+                StringBuilder line = new StringBuilder();
+                for (int column = 0; column < WIDTH; column++)
+                    line.append((char)('a' + (row + column + frame) % 26));
+                ops.add(new Op(row, 1, line.toString()));
+            }
+            ops.add(new Op(HEIGHT / 2, WIDTH / 2, null));
+            frames.add(ops);
+        }
+        return frames;
+    }
+
+    /** A header with the elapsed time in the top right corner, and a ball that moves, as in TerminalTest. */
+    static List<List<Op>> ballTrace() {
+        List<List<Op>> frames = new ArrayList<>();
+        for (int frame = 0; frame < 50; frame++) {
+            String time = frame / 10 + "s passed";
+            int row = 10 + frame % 3, column = 30 + frame % 7;
+            frames.add(List.of(
+                new Op(1, 1, "Press q to quit; use the arrow keys to move the ball"),
+                new Op(1, WIDTH - time.length() + 1, time),
+                new Op(row - 1, column - 1, "+-+"),
+                new Op(row, column - 1, "| |"),
+                new Op(row + 1, column - 1, "+-+"),
+                new Op(row, column, null)));
+        }
+        return frames;
+    }
+
+    /** A status bar whose fields are updated from left to right, and a column of numbers. */
+    static List<List<Op>> statusTrace() {
+        List<List<Op>> frames = new ArrayList<>();
+        for (int frame = 0; frame < 50; frame++) {
+            List<Op> ops = new ArrayList<>();
+            ops.add(new Op(HEIGHT, 1, String.format("CPU %3d%%", frame * 7 % 100)));
+            ops.add(new Op(HEIGHT, 12, String.format("MEM %3d%%", frame * 3 % 100)));
+            ops.add(new Op(HEIGHT, 24, String.format("NET %4.1f MB/s", frame * 0.7 % 10)));
+            ops.add(new Op(HEIGHT, 60, String.format("12:00:%02d", frame % 60)));
+            for (int row = 3; row < HEIGHT - 1; row++)
+                ops.add(new Op(row, 50, String.format("%8d", row * frame * 31 % 100000)));
+            frames.add(ops);
+        }
+        return frames;
+    }
+
+    /** Random text, including wide characters and text that ends in the last column, and random cursor movements. */
+    static List<List<Op>> randomTrace() {
+        String[] pieces = {"abc", "x", "\u00e9t\u00e9", "\u4e2d\u6587", "\ud83d\ude00", "hello world", "42"};
+        Random random = new Random(7);
+        List<List<Op>> frames = new ArrayList<>();
+        for (int frame = 0; frame < 200; frame++) {
+            List<Op> ops = new ArrayList<>();
+            int row = 1 + random.nextInt(HEIGHT - 1);
+            for (int i = random.nextInt(10); i >= 0; i--) {
+                row = Math.max(1, Math.min(HEIGHT - 1, row + random.nextInt(5) - 2));
+                if (random.nextInt(5) == 0) {
+                    ops.add(new Op(row, 1 + random.nextInt(WIDTH), null));
+                    continue;
+                }
+                String text = pieces[random.nextInt(pieces.length)];
+                int columns = Terminal.getColumnWidth(text);
+                int column = random.nextInt(4) == 0 ? WIDTH - columns + 1 : 1 + random.nextInt(WIDTH - columns + 1);
+                ops.add(new Op(row, column, text));
+            }
+            frames.add(ops);
+        }
+        return frames;
+    }
+
+    static final String[] TRACE_NAMES = {"redraw", "ball", "status", "random"};
+
+    static List<List<List<Op>>> traces() {
+        return List.of(redrawTrace(), ballTrace(), statusTrace(), randomTrace());
+    }
+
+    /** Returns the number of bytes the given frames take using absolute cursor movements, as Frame did before. */
+    static long absoluteBytes(List<List<Op>> frames) {
+        long bytes = 0;
+        for (List<Op> ops : frames)
+            for (Op op : ops)
+                bytes += ("\033[" + op.row() + ";" + op.column() + "H").length()
+                    + (op.text() == null ? 0 : op.text().getBytes(java.nio.charset.StandardCharsets.UTF_8).length);
+        return bytes;
+    }
+
+    static void draw(Frame frame, Op op) {
+        if (op.text() == null)
+            frame.moveCursor(op.row(), op.column());
+        else
+            frame.printText(op.row(), op.column(), op.text());
+    }
+
+    static void child() throws Exception {
+        Terminal.getSize(); // Lets Frame know the width.
+        List<List<List<Op>>> traces = traces();
+        // Reported once the screen is checked, since standard error goes to the same terminal.
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %10s %10s %10s", "trace", "bytes", "absolute", "reduction"));
+        for (int i = 0; i < traces.size(); i++) {
+            long before = Terminal.getMetrics().bytesWritten();
+            for (List<Op> ops : traces.get(i)) {
+                try (Frame frame = Terminal.beginFrame()) {
+                    for (Op op : ops)
+                        draw(frame, op);
+                }
+            }
+            long bytes = Terminal.getMetrics().bytesWritten() - before;
+            long absolute = absoluteBytes(traces.get(i));
+            report.add(String.format("%-8s %10d %10d %9.2fx", TRACE_NAMES[i], bytes, absolute, (double)absolute / bytes));
+        }
+        Terminal.printText(HEIGHT - 1, 1, DONE);
+        Terminal.readByte();
+        Terminal.clearScreen();
+        for (int row = 0; row < report.size(); row++)
+            Terminal.printText(row + 1, 1, report.get(row));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child();
+            return;
+        }
+        VirtualTerminal expected = new VirtualTerminal(HEIGHT, WIDTH);
+        for (List<List<Op>> trace : traces())
+            for (List<Op> ops : trace)
+                for (Op op : ops) {
+                    byte[] bytes = ("\033[" + op.row() + ";" + op.column() + "H" + (op.text() == null ? "" : op.text()))
+                        .getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    expected.write(bytes);
+                }
+        expected.write(("\033[" + (HEIGHT - 1) + ";1H" + DONE).getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+
+        List<String> command = PseudoTerminal.javaCommand("CursorMovementTest", "-Dio.github.btj.termios.metrics=true");
+        command.add("child");
+        try (PseudoTerminal terminal = new PseudoTerminal(HEIGHT, WIDTH, command)) {
+            terminal.await(screen -> screen.row(HEIGHT - 2).startsWith(DONE), 20_000);
+            terminal.await(screen -> {
+                for (int row = 0; row < HEIGHT; row++)
+                    if (!screen.row(row).equals(expected.row(row)))
+                        throw new AssertionError("Row " + row + " is \"" + screen.row(row) + "\" instead of \"" + expected.row(row) + "\"");
+                if (screen.row != expected.row || screen.column != expected.column)
+                    throw new AssertionError("Cursor at " + screen.row + "," + screen.column + " instead of " + expected.row + "," + expected.column);
+                return true;
+            }, 1000);
+            terminal.type("\n"); // Echoed on the last row, which is why DONE is printed on the row above.
+            terminal.await(screen -> {
+                if (!screen.row(TRACE_NAMES.length).startsWith(TRACE_NAMES[TRACE_NAMES.length - 1] + " "))
+                    return false;
+                for (int row = 0; row <= TRACE_NAMES.length; row++)
+                    System.out.println(screen.row(row).stripTrailing());
+                return true;
+            }, 5000);
+            int status = terminal.waitFor();
+            if (status != 0)
+                throw new AssertionError("The child exited with status " + status);
+        }
+        System.out.println("CursorMovementTest passed");
+    }
+
+}
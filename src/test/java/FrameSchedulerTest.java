@@ -0,0 +1,90 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.github.btj.termios.FrameScheduler;
+import io.github.btj.termios.Screen;
+import io.github.btj.termios.Terminal;
+
+/**
+ * Checks that a FrameScheduler coalesces frequent redraw requests into at most the given frame rate,
+ * never runs its renderer concurrently, writes each frame with a single write call, and counts dropped frames.
+ * Run with system property io.github.btj.termios.metrics set to true and standard output redirected,
+ * e.g. using <code>make test_frame_scheduler</code>.
+ */
+public class FrameSchedulerTest {
+
+    static final int FRAMES_PER_SECOND = 30;
+
+    /** Requests a frame every millisecond for the given time, then waits for the last frame. Returns the number of requests. */
+    static long requestFrames(FrameScheduler scheduler, long millis) throws InterruptedException {
+        long requests = 0;
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            scheduler.requestFrame();
+            requests++;
+            Thread.sleep(1);
+        }
+        Thread.sleep(500);
+        return requests;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean rendering = new AtomicBoolean();
+        Screen screen = new Screen(24, 80);
+        int[] frame = new int[1];
+        Runnable renderer = () -> {
+            if (!rendering.compareAndSet(false, true))
+                throw new AssertionError("The renderer ran concurrently with itself");
+            frame[0]++;
+            screen.clear();
+            screen.writeString(0, 0, "Frame " + frame[0]);
+            screen.flush();
+            Terminal.printText(2, 1, "Status line");
+            Terminal.moveCursor(1, 1);
+            rendering.set(false);
+        };
+
+        long flushesBefore = Terminal.getMetrics().flushCount();
+        FrameScheduler scheduler = new FrameScheduler(executor, FRAMES_PER_SECOND, renderer);
+        long requests = requestFrames(scheduler, 1000);
+        long frames = scheduler.getFrameCount();
+        System.err.println(requests + " requests, " + frames + " frames, " + scheduler.getCoalescedCount() + " coalesced, " + scheduler.getDroppedCount() + " dropped");
+        if (frames > FRAMES_PER_SECOND + 2 || frames < FRAMES_PER_SECOND / 2)
+            throw new AssertionError(frames + " frames were rendered in one second at " + FRAMES_PER_SECOND + " frames per second");
+        if (frames + scheduler.getCoalescedCount() != requests)
+            throw new AssertionError("Requests were lost");
+        if (frame[0] != frames)
+            throw new AssertionError("The frame count is wrong");
+        long flushes = Terminal.getMetrics().flushCount() - flushesBefore;
+        if (flushes != frames)
+            throw new AssertionError(flushes + " writes for " + frames + " frames");
+        scheduler.close();
+
+        // A renderer that takes longer than the frame interval causes dropped frames.
+        FrameScheduler slowScheduler = new FrameScheduler(executor, 50, () -> {
+            try {
+                Thread.sleep(60);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        });
+        requestFrames(slowScheduler, 1000);
+        System.err.println(slowScheduler.getFrameCount() + " slow frames, " + slowScheduler.getDroppedCount() + " dropped");
+        if (slowScheduler.getFrameCount() > 1000 / 60 + 3)
+            throw new AssertionError("The slow renderer ran too often");
+        if (slowScheduler.getDroppedCount() == 0)
+            throw new AssertionError("No frames were dropped");
+        slowScheduler.close();
+        long before = slowScheduler.getFrameCount();
+        slowScheduler.requestFrame();
+        Thread.sleep(100);
+        if (slowScheduler.getFrameCount() != before)
+            throw new AssertionError("A frame was rendered after close");
+
+        executor.shutdown();
+        System.err.println("FrameSchedulerTest passed");
+    }
+
+}
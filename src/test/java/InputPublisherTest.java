@@ -0,0 +1,71 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+import io.github.btj.termios.InputPublisher;
+
+/**
+ * Checks that an InputPublisher with the given overflow policy delivers or drops the bytes of standard input
+ * as expected, with a subscriber that requests nothing during the first half second.
+ * Run with the given number of bytes of the output of <code>yes abc</code> piped into standard input,
+ * e.g. using <code>make test_input_publisher</code>.
+ */
+public class InputPublisherTest {
+
+    static final byte[] PATTERN = "abc\n".getBytes();
+    static final int CAPACITY = 1 << 16;
+
+    public static void main(String[] args) throws InterruptedException {
+        InputPublisher.OverflowPolicy policy = InputPublisher.OverflowPolicy.valueOf(args[0]);
+        long expectedTotal = Long.parseLong(args[1]);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        InputPublisher publisher = new InputPublisher(executor, policy, CAPACITY);
+        CountDownLatch done = new CountDownLatch(1);
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        long[] received = new long[1];
+        Throwable[] failure = new Throwable[1];
+        publisher.subscribe(new Flow.Subscriber<ByteBuffer>() {
+            public void onSubscribe(Flow.Subscription s) { subscription[0] = s; }
+            public void onNext(ByteBuffer bytes) {
+                while (bytes.hasRemaining()) {
+                    byte b = bytes.get();
+                    if (policy != InputPublisher.OverflowPolicy.DROP_OLDEST && b != PATTERN[(int)(received[0] % PATTERN.length)])
+                        throw new AssertionError("Unexpected byte at offset " + received[0]);
+                    received[0]++;
+                }
+                if (policy == InputPublisher.OverflowPolicy.BLOCK)
+                    subscription[0].request(1);
+            }
+            public void onError(Throwable t) { failure[0] = t; done.countDown(); }
+            public void onComplete() { done.countDown(); }
+        });
+        Thread.sleep(500);
+        System.out.printf("After 500 ms without demand: %d bytes buffered, ring high-water mark %d%n", publisher.getBufferedBytes(), publisher.getRingHighWaterMark());
+        executor.execute(() -> subscription[0].request(policy == InputPublisher.OverflowPolicy.BLOCK ? 1 : Long.MAX_VALUE));
+        done.await();
+        executor.shutdown();
+        if (failure[0] != null)
+            throw new AssertionError(failure[0]);
+        System.out.printf("%s: received %d bytes, dropped %d, high-water mark %d (capacity %d)%n", policy, received[0], publisher.getDroppedBytes(), publisher.getHighWaterMark(), CAPACITY);
+        if (received[0] + publisher.getDroppedBytes() != expectedTotal)
+            throw new AssertionError("Expected " + expectedTotal + " bytes in total");
+        switch (policy) {
+            case BLOCK -> {
+                if (publisher.getHighWaterMark() > CAPACITY || publisher.getDroppedBytes() != 0)
+                    throw new AssertionError("BLOCK exceeded the capacity or dropped bytes");
+            }
+            case DROP_OLDEST -> {
+                if (publisher.getHighWaterMark() > CAPACITY || publisher.getDroppedBytes() == 0)
+                    throw new AssertionError("DROP_OLDEST exceeded the capacity or dropped nothing");
+            }
+            case GROW -> {
+                if (publisher.getHighWaterMark() != expectedTotal)
+                    throw new AssertionError("GROW did not buffer all input");
+            }
+        }
+        System.out.println("InputPublisherTest passed");
+    }
+
+}
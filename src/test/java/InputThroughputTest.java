@@ -0,0 +1,46 @@
+import java.io.IOException;
+import io.github.btj.termios.Terminal;
+
+/**
+ * Compares the throughput of reading standard input one byte at a time
+ * with reading it in bulk. Run with a large amount of data piped into
+ * standard input, e.g. using <code>make test_input_throughput</code>.
+ */
+public class InputThroughputTest {
+
+    static final int COUNT = 1 << 22;
+
+    static long readPerByte() throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < COUNT; i++)
+            if (Terminal.readByte() < 0)
+                throw new AssertionError("Not enough input; pipe at least " + 2 * COUNT + " bytes into standard input");
+        return System.nanoTime() - start;
+    }
+
+    static long readBulk() throws IOException {
+        byte[] bytes = new byte[4096];
+        long start = System.nanoTime();
+        for (int total = 0; total < COUNT; ) {
+            int n = Terminal.readBytes(bytes, 0, Math.min(bytes.length, COUNT - total));
+            if (n < 0)
+                throw new AssertionError("Not enough input; pipe at least " + 2 * COUNT + " bytes into standard input");
+            total += n;
+        }
+        return System.nanoTime() - start;
+    }
+
+    static void report(String label, long nanos) {
+        System.out.printf("%-10s %8.1f ms %10.1f MB/s%n", label, nanos / 1e6, COUNT / (nanos / 1e9) / 1e6);
+    }
+
+    public static void main(String[] args) throws IOException {
+        long perByte = readPerByte();
+        long bulk = readBulk();
+        System.out.printf("Read %d bytes per method%n", COUNT);
+        report("readByte", perByte);
+        report("readBytes", bulk);
+        System.out.printf("Speedup: %.1fx%n", (double)perByte / bulk);
+    }
+
+}
@@ -0,0 +1,162 @@
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import io.github.btj.termios.KeyDecoder;
+
+public class KeyDecoderTest {
+
+    static ArrayList<Long> decode(String input) {
+        ArrayList<Long> events = new ArrayList<>();
+        KeyDecoder decoder = new KeyDecoder();
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        decoder.decode(bytes, 0, bytes.length, events::add);
+        decoder.flush(events::add);
+        return events;
+    }
+
+    static String describe(long event) {
+        return switch (KeyDecoder.type(event)) {
+            case KeyDecoder.TYPE_CHAR -> "char(" + KeyDecoder.codePoint(event) + "," + KeyDecoder.modifiers(event) + ")";
+            case KeyDecoder.TYPE_KEY -> "key(" + KeyDecoder.key(event) + "," + KeyDecoder.modifiers(event) + ")";
+            case KeyDecoder.TYPE_TEXT_AREA_SIZE -> "size(" + KeyDecoder.height(event) + "," + KeyDecoder.width(event) + ")";
+            case KeyDecoder.TYPE_UNKNOWN_SEQUENCE -> "unknown(" + (char)KeyDecoder.finalByte(event) + ")";
+            case KeyDecoder.TYPE_PASTE -> "paste(" + KeyDecoder.pasteLength(event) + ")";
+            case KeyDecoder.TYPE_MOUSE -> "mouse(" + KeyDecoder.mouseAction(event) + "," + KeyDecoder.mouseButton(event) + ","
+                + KeyDecoder.mouseRow(event) + "," + KeyDecoder.mouseColumn(event) + "," + KeyDecoder.modifiers(event) + ")";
+            default -> "?" + Long.toHexString(event);
+        };
+    }
+
+    static void check(String input, String expected) {
+        StringBuilder actual = new StringBuilder();
+        for (long event : decode(input)) {
+            if (actual.length() > 0)
+                actual.append(' ');
+            actual.append(describe(event));
+        }
+        if (!actual.toString().equals(expected))
+            throw new AssertionError("For input " + input.replace("\033", "\\033") + ": expected " + expected + " but got " + actual);
+    }
+
+    static String key(int key, int modifiers) { return "key(" + key + "," + modifiers + ")"; }
+
+    public static void main(String[] args) {
+        check("a\r\u007f", "char(97,0) char(13,0) char(127,0)");
+        check("\u00e9\u20ac\ud83d\ude00", "char(233,0) char(8364,0) char(128512,0)");
+        check("\033[A\033[B\033[C\033[D", key(KeyDecoder.KEY_UP, 0) + " " + key(KeyDecoder.KEY_DOWN, 0) + " " + key(KeyDecoder.KEY_RIGHT, 0) + " " + key(KeyDecoder.KEY_LEFT, 0));
+        check("\033OA\033OP", key(KeyDecoder.KEY_UP, 0) + " " + key(KeyDecoder.KEY_F1, 0));
+        check("\033[1;5C", key(KeyDecoder.KEY_RIGHT, KeyDecoder.MOD_CTRL));
+        check("\033[3;2~", key(KeyDecoder.KEY_DELETE, KeyDecoder.MOD_SHIFT));
+        check("\033[24~\033[Z", key(KeyDecoder.KEY_F1 + 11, 0) + " " + key(KeyDecoder.KEY_BACKTAB, 0));
+        check("\033[8;24;80t", "size(24,80)");
+        check("\033x", "char(120," + KeyDecoder.MOD_ALT + ")");
+        check("\033", key(KeyDecoder.KEY_ESCAPE, 0));
+        check("\033\033[A", key(KeyDecoder.KEY_ESCAPE, 0) + " " + key(KeyDecoder.KEY_UP, 0));
+        check("\033[?1;2c", "unknown(c)");
+        check("\033O1", "char(79," + KeyDecoder.MOD_ALT + ") char(49,0)");
+
+        byte[] invalid = {(byte)0xc3, 'a', (byte)0xff};
+        ArrayList<Long> events = new ArrayList<>();
+        new KeyDecoder().decode(invalid, 0, invalid.length, events::add);
+        if (events.size() != 3 || KeyDecoder.codePoint(events.get(0)) != 0xfffd || KeyDecoder.codePoint(events.get(1)) != 'a' || KeyDecoder.codePoint(events.get(2)) != 0xfffd)
+            throw new AssertionError("Invalid UTF-8 not replaced correctly");
+
+        // A sequence split across calls
+        KeyDecoder decoder = new KeyDecoder();
+        events.clear();
+        byte[] part1 = "\033[1;".getBytes(StandardCharsets.US_ASCII);
+        byte[] part2 = "3D".getBytes(StandardCharsets.US_ASCII);
+        decoder.decode(part1, 0, part1.length, events::add);
+        if (!events.isEmpty() || !decoder.isPending())
+            throw new AssertionError("Incomplete sequence should be pending");
+        decoder.decode(part2, 0, part2.length, events::add);
+        if (events.size() != 1 || KeyDecoder.key(events.get(0)) != KeyDecoder.KEY_LEFT || KeyDecoder.modifiers(events.get(0)) != KeyDecoder.MOD_ALT)
+            throw new AssertionError("Split sequence not decoded correctly");
+
+        // Bracketed pastes, whose contents are not decoded
+        check("a\033[200~x\033[A\r\033[201~b", "char(97,0) paste(5) char(98,0)");
+        check("\033[200~\033[201~", "paste(0)");
+        check("\033[200~\033[20\033[201~\033", "paste(4) " + key(KeyDecoder.KEY_ESCAPE, 0));
+
+        // A paste split across calls, with a partial end marker at the boundary
+        decoder = new KeyDecoder();
+        events.clear();
+        String pasted = "line 1\r\033[201line \u00e9\033[\033\033[20";
+        String rest = "0~ \ud83d\ude00\r";
+        byte[][] chunks = {
+            ("\033[1;2A\033[200~" + pasted).getBytes(StandardCharsets.UTF_8),
+            (rest + "\033[2").getBytes(StandardCharsets.UTF_8),
+            "01~\033[B".getBytes(StandardCharsets.UTF_8)
+        };
+        for (byte[] chunk : chunks) {
+            decoder.decode(chunk, 0, chunk.length, events::add);
+            decoder.flush(events::add);
+        }
+        String expectedText = pasted + rest;
+        int expectedLength = expectedText.getBytes(StandardCharsets.UTF_8).length;
+        if (events.size() != 3 || KeyDecoder.key(events.get(0)) != KeyDecoder.KEY_UP
+                || KeyDecoder.type(events.get(1)) != KeyDecoder.TYPE_PASTE || KeyDecoder.pasteLength(events.get(1)) != expectedLength
+                || KeyDecoder.key(events.get(2)) != KeyDecoder.KEY_DOWN)
+            throw new AssertionError("Split paste not decoded correctly");
+        if (!decoder.getPastedText().equals(expectedText) || decoder.getPastedBytes().remaining() != expectedLength)
+            throw new AssertionError("Pasted text is \"" + decoder.getPastedText().replace("\033", "\\033") + "\"");
+
+        // A large paste, byte by byte
+        decoder = new KeyDecoder();
+        events.clear();
+        StringBuilder large = new StringBuilder("\033[200~");
+        for (int i = 0; i < 100_000; i++)
+            large.append((char)('a' + i % 26));
+        large.append("\033[201~");
+        for (byte b : large.toString().getBytes(StandardCharsets.US_ASCII))
+            decoder.decode(b & 0xff, events::add);
+        if (events.size() != 1 || KeyDecoder.pasteLength(events.get(0)) != 100_000 || decoder.getPastedBytes().get(99_999) != 'a' + 99_999 % 26)
+            throw new AssertionError("Large paste not decoded correctly");
+
+        // SGR mouse reports: CSI < code ; column ; row M, or m for a release
+        check("\033[<0;10;5M\033[<0;10;5m", "mouse(0,0,5,10,0) mouse(1,0,5,10,0)");
+        check("\033[<2;1;1M\033[<64;3;4M\033[<65;3;4M\033[<128;1;1M", "mouse(0,2,1,1,0) mouse(0,4,4,3,0) mouse(0,5,4,3,0) mouse(0,8,1,1,0)");
+        check("\033[<20;300;200M", "mouse(0,0,200,300," + (KeyDecoder.MOD_SHIFT | KeyDecoder.MOD_CTRL) + ")");
+        check("\033[<1;2M", "unknown(M)");
+
+        // Consecutive movements in one call are coalesced into the latest one, but not across other events or button changes
+        decoder = new KeyDecoder();
+        events.clear();
+        byte[] motions = "\033[<35;1;1M\033[<35;2;1M\033[<35;3;1Mx\033[<35;4;1M\033[<32;5;1M\033[<32;6;1M\033[<35;7;1M\033[<35;8;1M"
+            .getBytes(StandardCharsets.US_ASCII);
+        decoder.decode(motions, 0, motions.length, events::add);
+        StringBuilder described = new StringBuilder();
+        for (long event : events)
+            described.append(describe(event)).append(' ');
+        if (!described.toString().equals("mouse(2,3,1,3,0) char(120,0) mouse(2,3,1,4,0) mouse(2,0,1,6,0) mouse(2,3,1,8,0) ")
+                || decoder.getCoalescedMotionCount() != 4)
+            throw new AssertionError("Movements coalesced incorrectly: " + described + decoder.getCoalescedMotionCount());
+        // Bytes passed one at a time are not known to be queued, so they are not coalesced.
+        events.clear();
+        for (byte b : motions)
+            decoder.decode(b & 0xff, events::add);
+        if (events.size() != 9 || decoder.getCoalescedMotionCount() != 4)
+            throw new AssertionError("Movements decoded one byte at a time were coalesced");
+
+        // Decoding mouse reports does not allocate in steady state.
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long[] count = {0};
+        java.util.function.LongConsumer counter = event -> count[0]++;
+        byte[] clicks = "\033[<0;40;12M\033[<32;41;12M\033[<0;41;12m\033[<65;1;1M".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < 100_000; i++)
+            decoder.decode(clicks, 0, clicks.length, counter);
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            decoder.decode(clicks, 0, clicks.length, counter);
+            decoder.decode(motions, 0, motions.length, counter);
+        }
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+        // Allow for a few incidental allocations by the JVM itself.
+        if (allocated > 4096)
+            throw new AssertionError("Decoding mouse reports allocated " + allocated + " bytes");
+
+        System.out.println("KeyDecoderTest passed");
+    }
+
+}
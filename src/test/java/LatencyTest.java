@@ -0,0 +1,56 @@
+import java.util.Arrays;
+
+/**
+ * Measures key-to-redraw latency without a human at a terminal: runs {@link TerminalTest} on a pseudo-terminal,
+ * presses the Right and Left arrow keys alternately, and measures for each key press how long it takes until
+ * the ball has been redrawn, i.e. until the cursor, which TerminalTest leaves in the ball, has moved.
+ * The latency includes the relay through the ptyrun helper. Run using <code>make test_latency</code>.
+ * The number of measured key presses can be given as the first argument; further arguments are passed
+ * to TerminalTest's JVM, e.g. <code>-Dio.github.btj.termios.input=poll</code>.
+ */
+public class LatencyTest {
+
+    static final int HEIGHT = 24;
+    static final int WIDTH = 80;
+    static final int WARMUP_PRESSES = 50;
+    static final long TIMEOUT_MILLIS = 10_000;
+
+    static String percentile(long[] sortedNanos, double p) {
+        long nanos = sortedNanos[Math.min(sortedNanos.length - 1, (int)Math.ceil(p / 100 * sortedNanos.length) - 1)];
+        return String.format("%8.1f us", nanos / 1e3);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int presses = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        long[] latencies = new long[presses];
+        String[] jvmOptions = Arrays.copyOfRange(args, Math.min(1, args.length), args.length);
+        try (PseudoTerminal terminal = new PseudoTerminal(HEIGHT, WIDTH, PseudoTerminal.javaCommand("TerminalTest", jvmOptions))) {
+            terminal.await(screen -> screen.row(0).startsWith("Press q to quit"), TIMEOUT_MILLIS);
+            // TerminalTest starts with the ball in the middle and leaves the cursor in it.
+            int row = HEIGHT / 2 - 2;
+            int column = WIDTH / 2 - 2;
+            terminal.await(screen -> screen.row == row && screen.column == column, TIMEOUT_MILLIS);
+            for (int i = -WARMUP_PRESSES; i < presses; i++) {
+                boolean right = (i & 1) == 0;
+                int targetColumn = right ? column + 1 : column;
+                long start = System.nanoTime();
+                terminal.type(right ? "\033[C" : "\033[D");
+                terminal.await(screen -> screen.row == row && screen.column == targetColumn, TIMEOUT_MILLIS);
+                if (i >= 0)
+                    latencies[i] = System.nanoTime() - start;
+            }
+            terminal.type("q");
+            int status = terminal.waitFor();
+            if (status != 0)
+                throw new AssertionError("TerminalTest exited with status " + status);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("Key-to-redraw latency over %d key presses:%n", presses);
+        System.out.println("p50 " + percentile(latencies, 50));
+        System.out.println("p90 " + percentile(latencies, 90));
+        System.out.println("p99 " + percentile(latencies, 99));
+        System.out.println("max " + percentile(latencies, 100));
+        System.out.println("LatencyTest passed");
+    }
+
+}
@@ -0,0 +1,87 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.github.btj.termios.InputSubscription;
+import io.github.btj.termios.Terminal;
+import io.github.btj.termios.TerminalMetrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Checks that the metrics snapshot and the JDK Flight Recorder events cover the terminal's input and output.
+ * Run with system property io.github.btj.termios.metrics set to true, more than 16384 bytes piped into standard input,
+ * and standard output redirected, e.g. using <code>make test_metrics</code>.
+ */
+public class MetricsTest {
+
+    static final int LINES = 100;
+
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("MetricsTest", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("io.github.btj.termios.InputRead");
+            recording.enable("io.github.btj.termios.InputBufferFull");
+            recording.enable("io.github.btj.termios.InputDispatch");
+            recording.enable("io.github.btj.termios.OutputFlush");
+            recording.start();
+
+            // Start the pump thread but do not consume input at first, so that the ring fills up and the pump thread blocks.
+            Terminal.getMetrics();
+            Thread.sleep(500);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            CountDownLatch done = new CountDownLatch(1);
+            long[] total = new long[1];
+            InputSubscription subscription = Terminal.subscribe(executor, bytes -> {
+                if (!bytes.hasRemaining())
+                    done.countDown();
+                total[0] += bytes.remaining();
+            });
+            done.await();
+            subscription.close();
+            executor.shutdown();
+
+            for (int row = 1; row <= LINES; row++)
+                Terminal.printText(row, 1, "Line " + row);
+
+            TerminalMetrics metrics = Terminal.getMetrics();
+            System.err.println(metrics);
+            if (metrics.bytesRead() != total[0])
+                throw new AssertionError("Read " + total[0] + " bytes but the metrics say " + metrics.bytesRead());
+            if (metrics.ringHighWaterMark() != 16384)
+                throw new AssertionError("The ring did not fill up; pipe more than 16384 bytes into standard input");
+            if (metrics.producerBlockedNanos() < 100_000_000)
+                throw new AssertionError("The pump thread was blocked for only " + metrics.producerBlockedNanos() + " ns");
+            if (metrics.dispatchCount() == 0 || metrics.maxDispatchLatencyNanos() <= 0)
+                throw new AssertionError("No dispatches were measured");
+            if (metrics.flushCount() < LINES || metrics.bytesWritten() < LINES * "Line 1".length() || metrics.maxFlushBytes() <= 0)
+                throw new AssertionError("Not all output was measured");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Long> counts = new HashMap<>();
+        long bytesRead = 0;
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            String name = event.getEventType().getName();
+            counts.merge(name, 1L, Long::sum);
+            if (name.equals("io.github.btj.termios.InputRead"))
+                bytesRead += event.getInt("bytes");
+        }
+        Files.delete(file);
+        System.err.println(counts);
+        for (String name : new String[] {"InputRead", "InputBufferFull", "InputDispatch", "OutputFlush"})
+            if (counts.getOrDefault("io.github.btj.termios." + name, 0L) == 0)
+                throw new AssertionError("No " + name + " events were recorded");
+        if (bytesRead != Terminal.getMetrics().bytesRead())
+            throw new AssertionError("The InputRead events account for " + bytesRead + " bytes");
+        System.err.println("MetricsTest passed");
+    }
+
+}
@@ -0,0 +1,45 @@
+import java.lang.management.ManagementFactory;
+
+import io.github.btj.termios.Terminal;
+
+/**
+ * Checks that printText, including non-ASCII text, and moveCursor do not allocate in steady state.
+ * Writes to standard output; run with standard output redirected, e.g. using <code>make test_output_allocation</code>.
+ */
+public class OutputAllocationTest {
+
+    static final int CALLS = 100_000;
+
+    static final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+    static void draw(StringBuilder line, char[] chars, String unicode) {
+        for (int row = 1; row <= 50; row++) {
+            Terminal.printText(row, 1, line, 0, line.length());
+            Terminal.printText(row, 40, chars, 0, chars.length);
+            Terminal.printText(row, 60, unicode);
+            Terminal.moveCursor(row, 80);
+        }
+    }
+
+    public static void main(String[] args) {
+        StringBuilder line = new StringBuilder("Press q to quit; use the arrow keys");
+        char[] chars = "0123456789 s passed".toCharArray();
+        String unicode = "\u00e9t\u00e9 \u4e2d\u6587 \ud83d\ude00";
+        for (int i = 0; i < CALLS / 200; i++) // Warm up, so that buffers have grown and code is compiled
+            draw(line, chars, unicode);
+
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS / 200; i++)
+            draw(line, chars, unicode);
+        long nanos = System.nanoTime() - start;
+        long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+        System.err.printf("%d calls: %.0f ns/call, %d bytes allocated (%.3f bytes/call)%n", CALLS, (double)nanos / CALLS, allocated, (double)allocated / CALLS);
+        // Allow for a few incidental allocations by the JVM itself.
+        if (allocated > 4096)
+            throw new AssertionError("printText/moveCursor allocated " + allocated + " bytes");
+        System.err.println("OutputAllocationTest passed");
+    }
+
+}
@@ -0,0 +1,46 @@
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.github.btj.termios.Terminal;
+
+/**
+ * Checks that, in poll mode, registering an input listener on one thread while another thread is blocked reading standard input
+ * hands standard input over to the pump thread without losing or reordering bytes, and that the listener is called.
+ * Run with the output of <code>seq</code> piped into standard input after a delay, and with
+ * <code>-Dio.github.btj.termios.input=poll</code>, e.g. using <code>make test_poll_handoff</code>.
+ */
+public class PollHandoffTest {
+
+    public static void main(String[] args) throws Exception {
+        int lines = Integer.parseInt(args[0]);
+        int[] first = new int[1];
+        Thread reader = new Thread(() -> {
+            try {
+                first[0] = Terminal.readByte();
+            } catch (java.io.IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        });
+        reader.start();
+        Thread.sleep(200); // Let the reader block in a direct read.
+        CountDownLatch called = new CountDownLatch(1);
+        Terminal.setInputListener(called::countDown);
+        reader.join();
+        if (!called.await(10, TimeUnit.SECONDS))
+            throw new AssertionError("The input listener was not called");
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        received.write(first[0]);
+        byte[] bytes = new byte[4096];
+        for (int n; (n = Terminal.readBytes(bytes, 0, bytes.length)) >= 0; )
+            received.write(bytes, 0, n);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= lines; i++)
+            expected.append(i).append('\n');
+        if (!received.toString().equals(expected.toString()))
+            throw new AssertionError("Received " + received.size() + " bytes that differ from the " + expected.length() + " bytes sent");
+        System.out.println("PollHandoffTest passed");
+    }
+
+}
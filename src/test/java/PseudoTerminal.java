@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+
+/**
+ * Runs a program on a pseudo-terminal, using the ptyrun helper built from src/test/c/ptyrun.c,
+ * and interprets its output with a {@link VirtualTerminal}, so that tests can type keys and wait
+ * for the screen to change without a human at a real terminal. Not available on Windows.
+ */
+class PseudoTerminal implements AutoCloseable {
+
+    static final String HELPER = "_build/test/ptyrun";
+
+    private final VirtualTerminal screen;
+    private final Process process;
+    private final OutputStream keyboard;
+    /** Set by the reader thread if the output could not be read or interpreted. */
+    private Throwable failure;
+    private boolean ended;
+
+    PseudoTerminal(int height, int width, List<String> command) throws IOException {
+        List<String> helperCommand = new ArrayList<>(List.of(HELPER, "" + height, "" + width));
+        helperCommand.addAll(command);
+        process = new ProcessBuilder(helperCommand).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        keyboard = process.getOutputStream();
+        screen = new VirtualTerminal(height, width);
+        screen.replies = new OutputStream() {
+            public void write(int b) throws IOException { type(new byte[] {(byte)b}, 0, 1); }
+            public void write(byte[] bytes, int offset, int count) throws IOException { type(bytes, offset, count); }
+        };
+        Thread reader = new Thread(this::readOutput, "PseudoTerminal reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** Returns the command that runs the given class in a new JVM with the current class path. */
+    static List<String> javaCommand(String mainClass, String... jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + "/bin/java");
+        command.addAll(List.of(jvmOptions));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        return command;
+    }
+
+    private void readOutput() {
+        InputStream output = process.getInputStream();
+        byte[] bytes = new byte[4096];
+        try {
+            for (;;) {
+                int n = output.read(bytes);
+                if (n < 0)
+                    break;
+                synchronized (this) {
+                    for (int i = 0; i < n; i++)
+                        screen.write(bytes[i]);
+                    notifyAll();
+                }
+            }
+        } catch (IOException | RuntimeException | AssertionError e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+        synchronized (this) {
+            ended = true;
+            notifyAll();
+        }
+    }
+
+    /** Sends the given bytes to the program, as if the user typed them. */
+    void type(byte[] bytes, int offset, int count) throws IOException {
+        synchronized (keyboard) {
+            keyboard.write(bytes, offset, count);
+            keyboard.flush();
+        }
+    }
+
+    void type(String keys) throws IOException {
+        byte[] bytes = keys.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        type(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Waits until the screen satisfies the given condition.
+     *
+     * @throws TimeoutException if the condition is not satisfied within the given number of milliseconds.
+     * @throws AssertionError if the program's output could not be interpreted, or the program exited.
+     */
+    synchronized void await(Predicate<VirtualTerminal> condition, long timeoutMillis) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+        while (!condition.test(screen)) {
+            if (failure != null)
+                throw new AssertionError("Could not interpret the program's output", failure);
+            if (ended)
+                throw new AssertionError("The program exited");
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                throw new TimeoutException();
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+    }
+
+    /** Closes the program's standard input and waits for it to exit; returns its exit status. */
+    int waitFor() throws IOException, InterruptedException {
+        keyboard.close();
+        return process.waitFor();
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+    }
+
+}
@@ -0,0 +1,141 @@
+import io.github.btj.termios.Screen;
+import io.github.btj.termios.Style;
+
+/**
+ * Measures the number of bytes written per frame by Screen for typical updates,
+ * compared to repainting every row with Terminal.printText, as ScreenBuffer.flush does in TerminalTest,
+ * preceding each run of cells of the same style by an SGR sequence that selects the full style.
+ */
+public class ScreenBenchmark {
+
+    static final int HEIGHT = 80, WIDTH = 300, FRAMES = 100;
+
+    interface Scene {
+        void draw(Screen screen, int frame);
+    }
+
+    static void drawBallScene(Screen screen, int frame) {
+        screen.clear();
+        screen.writeString(0, 0, "Press q to quit; use the arrow keys to move the ball");
+        String timeMessage = frame / 10 + "s passed";
+        screen.writeString(0, WIDTH - timeMessage.length(), timeMessage);
+        int row = HEIGHT / 2 + frame % 5, column = WIDTH / 2 + frame % 7;
+        screen.writeString(row - 1, column - 1, "+-+");
+        screen.writeString(row, column - 1, "| |");
+        screen.writeString(row + 1, column - 1, "+-+");
+        screen.setCursor(row, column);
+    }
+
+    static void drawCounterScene(Screen screen, int frame) {
+        screen.writeString(HEIGHT / 2, WIDTH / 2, String.format("%6d", frame));
+    }
+
+    static void drawTableScene(Screen screen, int frame) {
+        for (int row = 2; row < HEIGHT; row += 4)
+            for (int column = 0; column + 10 <= WIDTH; column += 12)
+                screen.writeString(row, column, String.format("%10d", (row * 31 + column * 17 + frame) % 1000 * (frame % 3 == 0 ? 1 : 1000)));
+    }
+
+    static final long[] DASHBOARD_STYLES = {
+        Style.of(Style.WHITE + Style.BRIGHT, Style.BLUE, Style.BOLD),
+        Style.foreground(Style.GREEN),
+        Style.foreground(Style.YELLOW),
+        Style.of(Style.RED, Style.DEFAULT_COLOR, Style.BOLD),
+        Style.of(244, Style.DEFAULT_COLOR, 0),
+        Style.of(Style.BLACK, 214, 0),
+    };
+
+    static void drawDashboardScene(Screen screen, int frame) {
+        screen.writeString(0, 0, String.format("%-" + WIDTH + "s", " Cluster status, frame " + frame), DASHBOARD_STYLES[0]);
+        for (int row = 1; row < HEIGHT; row++) {
+            for (int column = 0; column + 12 <= WIDTH; column += 12) {
+                int value = (row * 31 + column * 17 + frame * (row % 4 == 0 ? 7 : 0)) % 1000;
+                long style = DASHBOARD_STYLES[1 + value % 3];
+                screen.writeString(row, column, "node" + (column / 12) + ":", DASHBOARD_STYLES[4]);
+                screen.writeString(row, column + 7, String.format("%3d", value), style);
+                screen.writeString(row, column + 10, value > 900 ? "!" : " ", DASHBOARD_STYLES[5]);
+            }
+        }
+    }
+
+    /** A tail-style log view between a header and a footer, which shows a new line in each frame. */
+    static void drawLogScene(Screen screen, int frame) {
+        screen.writeString(0, 0, String.format("%-" + WIDTH + "s", " tail -f service.log"), DASHBOARD_STYLES[0]);
+        for (int row = 1; row < HEIGHT - 1; row++) {
+            int line = frame + row;
+            String text = String.format("2024-05-01 12:%02d:%02d.%03d INFO  worker-%d handled request %d in %d ms",
+                line / 60 % 60, line % 60, line * 7 % 1000, line % 8, line * 31, line * 17 % 200);
+            screen.writeString(row, 0, String.format("%-" + WIDTH + "s", text), line % 10 == 0 ? DASHBOARD_STYLES[3] : Style.DEFAULT);
+        }
+        screen.writeString(HEIGHT - 1, 0, String.format("%-" + WIDTH + "s", " " + (frame + HEIGHT - 2) + " lines"), DASHBOARD_STYLES[0]);
+    }
+
+    /** Returns the number of bytes of an SGR sequence that resets the style and selects the given one. */
+    static int fullSgrLength(long style) {
+        StringBuilder sequence = new StringBuilder("\033[0");
+        int attributes = Style.getAttributes(style);
+        int[] codes = {1, 2, 3, 4, 5, 7, 9};
+        for (int i = 0; i < codes.length; i++)
+            if ((attributes & 1 << i) != 0)
+                sequence.append(';').append(codes[i]);
+        appendColor(sequence, Style.getForeground(style), 30);
+        appendColor(sequence, Style.getBackground(style), 40);
+        return sequence.append('m').length();
+    }
+
+    static void appendColor(StringBuilder sequence, int color, int base) {
+        if (color == Style.DEFAULT_COLOR)
+            return;
+        if (color < 8)
+            sequence.append(';').append(base + color);
+        else if (color < 16)
+            sequence.append(';').append(base + 60 + color - 8);
+        else
+            sequence.append(';').append(base + 8).append(";5;").append(color);
+    }
+
+    static long printTextBytesPerFrame(Screen screen) {
+        // What ScreenBuffer.flush writes: every row, prefixed by a cursor movement,
+        // with the full style before each run of cells of the same style, if the screen has styles.
+        long bytes = 0;
+        for (int row = 0; row < screen.getHeight(); row++) {
+            bytes += ("\033[" + (row + 1) + ";1H").length() + screen.getWidth();
+            long style = Style.DEFAULT;
+            for (int column = 0; column < screen.getWidth(); column++) {
+                if (screen.getStyle(row, column) != style) {
+                    style = screen.getStyle(row, column);
+                    bytes += fullSgrLength(style);
+                }
+            }
+            if (style != Style.DEFAULT)
+                bytes += "\033[0m".length();
+        }
+        return bytes;
+    }
+
+    static void run(String name, Scene scene) {
+        VirtualTerminal terminal = new VirtualTerminal(HEIGHT, WIDTH);
+        Screen screen = new Screen(HEIGHT, WIDTH, terminal);
+        scene.draw(screen, 0);
+        screen.flush();
+        long firstFrame = screen.getBytesWritten();
+        for (int frame = 1; frame <= FRAMES; frame++) {
+            scene.draw(screen, frame);
+            screen.flush();
+        }
+        long perFrame = (screen.getBytesWritten() - firstFrame) / FRAMES;
+        long naive = printTextBytesPerFrame(screen);
+        System.out.printf("%-10s %12d %12d %12d %9.1fx%n", name, firstFrame, perFrame, naive, (double)naive / Math.max(1, perFrame));
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("Bytes per frame on a %dx%d screen, averaged over %d frames%n", WIDTH, HEIGHT, FRAMES);
+        System.out.printf("%-10s %12s %12s %12s %10s%n", "scene", "first frame", "Screen", "printText", "reduction");
+        run("ball", ScreenBenchmark::drawBallScene);
+        run("counter", ScreenBenchmark::drawCounterScene);
+        run("table", ScreenBenchmark::drawTableScene);
+        run("dashboard", ScreenBenchmark::drawDashboardScene);
+        run("log", ScreenBenchmark::drawLogScene);
+    }
+
+}
@@ -0,0 +1,146 @@
+import java.util.Random;
+
+import io.github.btj.termios.Screen;
+import io.github.btj.termios.Style;
+
+/**
+ * Checks that a Screen's output, interpreted by a VirtualTerminal, shows the Screen's contents.
+ */
+public class ScreenTest {
+
+    static void checkShows(VirtualTerminal terminal, Screen screen, int cursorRow, int cursorColumn) {
+        for (int row = 0; row < screen.getHeight(); row++)
+            for (int column = 0; column < screen.getWidth(); column++)
+                if (terminal.cells[row * terminal.width + column] != screen.getCodePoint(row, column))
+                    throw new AssertionError("Mismatch at row " + row + ", column " + column + ": terminal row is \"" + terminal.row(row) + "\"");
+                else if (terminal.styles[row * terminal.width + column] != screen.getStyle(row, column))
+                    throw new AssertionError("Style mismatch at row " + row + ", column " + column);
+        if (terminal.style != Style.DEFAULT)
+            throw new AssertionError("The terminal's style was not reset");
+        if (terminal.scrollTop != 0 || terminal.scrollBottom != screen.getHeight() - 1)
+            throw new AssertionError("The terminal's scroll region was not reset");
+        if (terminal.row != cursorRow || terminal.column != cursorColumn)
+            throw new AssertionError("Cursor at " + terminal.row + "," + terminal.column + " instead of " + cursorRow + "," + cursorColumn);
+    }
+
+    static int randomColor(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> Style.DEFAULT_COLOR;
+            case 1 -> random.nextInt(8);
+            case 2 -> random.nextInt(16);
+            default -> random.nextInt(256);
+        };
+    }
+
+    /** Returns a style from a small set most of the time, so that runs of the same style are common. */
+    static long randomStyle(Random random) {
+        if (random.nextInt(3) == 0)
+            return Style.DEFAULT;
+        if (random.nextBoolean())
+            return Style.of(random.nextInt(3), Style.DEFAULT_COLOR, random.nextInt(2) * Style.BOLD);
+        return Style.of(randomColor(random), randomColor(random), random.nextInt(1 << 7));
+    }
+
+    /** Characters of width 1, 2 and 0: accented letters, CJK ideographs, an emoji outside the BMP, and a combining accent. */
+    static final String[] UNICODE = {"\u00e9", "\u00fc", "\u4e2d", "\u6587", "\uac00", "\ud83d\ude00", "\u0301"};
+
+    static String randomText(Random random) {
+        StringBuilder text = new StringBuilder("text");
+        for (int i = random.nextInt(4); i > 0; i--)
+            text.append(UNICODE[random.nextInt(UNICODE.length)]);
+        return text.append(random.nextInt(1000)).toString();
+    }
+
+    static char randomChar(Random random) {
+        return random.nextInt(8) == 0 ? "\u00e9\u4e2d\uff21".charAt(random.nextInt(3)) : (char)(32 + random.nextInt(95));
+    }
+
+    /** Copies the given row of the back buffer to the given other row, as an application that scrolls a view does. */
+    static void copyRow(Screen screen, int from, int to) {
+        for (int column = 0; column < screen.getWidth(); column++) {
+            int codePoint = screen.getCodePoint(from, column);
+            if (codePoint != 0)
+                screen.writeString(to, column, new String(Character.toChars(codePoint)), screen.getStyle(from, column));
+        }
+    }
+
+    /** Moves the contents of rows top to bottom (inclusive) of the back buffer up by the given number of rows, or down if it is negative. */
+    static void scrollRows(Screen screen, int top, int bottom, int lines) {
+        if (lines > 0)
+            for (int row = top; row + lines <= bottom; row++)
+                copyRow(screen, row + lines, row);
+        else
+            for (int row = bottom; row + lines >= top; row--)
+                copyRow(screen, row + lines, row);
+        int blankFrom = lines > 0 ? bottom - lines + 1 : top;
+        for (int row = blankFrom; row < blankFrom + Math.abs(lines); row++)
+            screen.writeString(row, 0, " ".repeat(screen.getWidth()));
+    }
+
+    public static void main(String[] args) {
+        int height = 24, width = 80;
+        VirtualTerminal terminal = new VirtualTerminal(height, width);
+        Screen screen = new Screen(height, width, terminal);
+        Random random = new Random(42);
+        for (int frame = 0; frame < 1000; frame++) {
+            int changes = random.nextInt(20);
+            for (int i = 0; i < changes; i++) {
+                int row = random.nextInt(height);
+                int column = random.nextInt(width - 1);
+                switch (random.nextInt(4)) {
+                    case 0 -> screen.setCell(row, column, randomChar(random));
+                    case 1 -> screen.writeString(row, column, randomText(random));
+                    case 2 -> screen.setCell(row, column, randomChar(random), randomStyle(random));
+                    default -> screen.writeString(row, column, randomText(random), randomStyle(random));
+                }
+            }
+            if (random.nextInt(5) == 0) {
+                int top = random.nextInt(height - 1), bottom = top + 1 + random.nextInt(height - top - 1);
+                int lines = 1 + random.nextInt(Math.min(3, bottom - top));
+                scrollRows(screen, top, bottom, random.nextBoolean() ? lines : -lines);
+            }
+            if (random.nextInt(50) == 0)
+                screen.clear();
+            if (random.nextInt(200) == 0)
+                screen.invalidate();
+            int cursorRow = random.nextInt(height), cursorColumn = random.nextInt(width);
+            screen.setCursor(cursorRow, cursorColumn);
+            screen.flush();
+            checkShows(terminal, screen, cursorRow, cursorColumn);
+        }
+        if (terminal.bytesReceived != screen.getBytesWritten())
+            throw new AssertionError("Bytes written miscounted");
+
+        // A log view between a header and a footer shows a new line: a scroll and the new line should suffice.
+        screen.clear();
+        for (int row = 0; row < height; row++)
+            screen.writeString(row, 0, String.format("%-" + width + "s", "Log line " + row + ": " + "x".repeat(row * 2)));
+        screen.flush();
+        long before = screen.getBytesWritten();
+        scrollRows(screen, 1, height - 2, 1);
+        screen.writeString(height - 2, 0, "Log line " + height);
+        screen.setCursor(height - 1, 0);
+        screen.flush();
+        checkShows(terminal, screen, height - 1, 0);
+        if (screen.getBytesWritten() - before > 40)
+            throw new AssertionError("Scrolling a log view took " + (screen.getBytesWritten() - before) + " bytes");
+
+        screen.clear();
+        screen.writeString(0, width - 3, "a\u4e2d\u6587");
+        if (screen.getCodePoint(0, width - 2) != 0x4e2d || screen.getCodePoint(0, width - 1) != 0)
+            throw new AssertionError("A wide character does not occupy two cells");
+        screen.setCell(0, width - 1, 'b');
+        if (screen.getCell(0, width - 2) != ' ')
+            throw new AssertionError("Overwriting half of a wide character did not blank the other half");
+        try {
+            screen.setCell(0, width - 1, '\u4e2d');
+            throw new AssertionError("A wide character was accepted in the last column");
+        } catch (IllegalArgumentException expected) {}
+        screen.setCursor(0, width - 1);
+        screen.flush();
+        checkShows(terminal, screen, 0, width - 1);
+
+        System.out.println("ScreenTest passed");
+    }
+
+}
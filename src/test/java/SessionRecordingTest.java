@@ -0,0 +1,132 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.btj.termios.KeyDecoder;
+import io.github.btj.termios.SessionReplayer;
+import io.github.btj.termios.Terminal;
+
+/**
+ * Records a child that echoes its key events, using the <code>io.github.btj.termios.record</code> property,
+ * checks the recording using SessionReplayer, and then replays it into the child, at the original speed and as fast as possible,
+ * checking that the child writes the same output. Run using <code>make test_session_recording</code>.
+ */
+public class SessionRecordingTest {
+
+    static final String FIRST = "abc\033[A";
+    static final String SECOND = "\u00e9\033[<35;10;5M";
+    static final long PAUSE_MILLIS = 300;
+
+    /**
+     * Prints a line for each key event. On standard error, reports the Up key as soon as it is received,
+     * and at the end the time between the Up key and the next event.
+     */
+    static void child() throws Exception {
+        KeyDecoder decoder = new KeyDecoder();
+        long up = 0, gap = -1;
+        int row = 1;
+        for (long event; (event = decoder.readEvent()) != KeyDecoder.NONE; ) {
+            if (up != 0 && gap < 0)
+                gap = (System.nanoTime() - up) / 1_000_000;
+            if (KeyDecoder.type(event) == KeyDecoder.TYPE_KEY && KeyDecoder.key(event) == KeyDecoder.KEY_UP) {
+                up = System.nanoTime();
+                System.err.println("up");
+            }
+            Terminal.printText(row++, 1, Long.toHexString(event));
+        }
+        System.err.println(gap);
+    }
+
+    record Run(byte[] output, long gapMillis) {}
+
+    static Run run(byte[] input, boolean pause, String... properties) throws Exception {
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path")));
+        command.addAll(List.of(properties));
+        command.add("SessionRecordingTest");
+        command.add("child");
+        Process process = new ProcessBuilder(command).start();
+        BufferedReader error = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8));
+        try (OutputStream stdin = process.getOutputStream()) {
+            if (input != null) {
+                int split = FIRST.getBytes(StandardCharsets.UTF_8).length;
+                stdin.write(input, 0, split);
+                stdin.flush();
+                if (pause) {
+                    // Pause only once the child is running, so that its startup time does not count.
+                    String line = error.readLine();
+                    if (!"up".equals(line))
+                        throw new AssertionError("The child failed: " + line);
+                    Thread.sleep(PAUSE_MILLIS);
+                }
+                stdin.write(input, split, input.length - split);
+            }
+        }
+        byte[] output = process.getInputStream().readAllBytes();
+        List<String> lines = error.lines().toList();
+        if (process.waitFor() != 0 || lines.isEmpty())
+            throw new AssertionError("The child failed: " + lines);
+        return new Run(output, Long.parseLong(lines.get(lines.size() - 1)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child();
+            return;
+        }
+        Path recording = Files.createTempFile("SessionRecordingTest", ".trec");
+        byte[] input = (FIRST + SECOND).getBytes(StandardCharsets.UTF_8);
+        Run recorded = run(input, true, "-Dio.github.btj.termios.record=" + recording);
+        if (recorded.gapMillis() < PAUSE_MILLIS * 9 / 10)
+            throw new AssertionError("The pause while recording was only " + recorded.gapMillis() + " ms");
+
+        ByteArrayOutputStream recordedInput = new ByteArrayOutputStream();
+        ByteArrayOutputStream recordedOutput = new ByteArrayOutputStream();
+        long firstInput = -1, lastInput = -1, chunks = 0;
+        try (SessionReplayer replayer = SessionReplayer.open(recording)) {
+            while (replayer.next()) {
+                chunks++;
+                byte[] bytes = new byte[replayer.getBytes().remaining()];
+                replayer.getBytes().get(bytes);
+                if (replayer.isInput()) {
+                    recordedInput.write(bytes);
+                    if (firstInput < 0)
+                        firstInput = replayer.getTimeNanos();
+                    lastInput = replayer.getTimeNanos();
+                } else {
+                    recordedOutput.write(bytes);
+                }
+            }
+        }
+        if (!Arrays.equals(recordedInput.toByteArray(), input))
+            throw new AssertionError("Recorded input: " + recordedInput.toString(StandardCharsets.UTF_8));
+        if (!Arrays.equals(recordedOutput.toByteArray(), recorded.output()))
+            throw new AssertionError("Recorded output: " + recordedOutput.toString(StandardCharsets.UTF_8));
+        if ((lastInput - firstInput) / 1_000_000 < PAUSE_MILLIS)
+            throw new AssertionError("The recorded pause is only " + (lastInput - firstInput) / 1_000_000 + " ms");
+
+        Run original = run(null, false, "-Dio.github.btj.termios.replay=" + recording);
+        if (!Arrays.equals(original.output(), recorded.output()))
+            throw new AssertionError("The replay at the original speed produced different output");
+        if (original.gapMillis() < PAUSE_MILLIS * 9 / 10)
+            throw new AssertionError("The pause in the replay at the original speed was only " + original.gapMillis() + " ms");
+
+        Run fast = run(null, false, "-Dio.github.btj.termios.replay=" + recording, "-Dio.github.btj.termios.replay.speed=fast");
+        if (!Arrays.equals(fast.output(), recorded.output()))
+            throw new AssertionError("The fast replay produced different output");
+        if (fast.gapMillis() >= PAUSE_MILLIS / 2)
+            throw new AssertionError("The fast replay paused for " + fast.gapMillis() + " ms");
+
+        System.out.println("SessionRecordingTest passed (" + Files.size(recording) + " bytes, " + chunks + " chunks; replay pauses: "
+            + original.gapMillis() + " ms at the original speed, " + fast.gapMillis() + " ms fast)");
+        Files.delete(recording);
+    }
+
+}
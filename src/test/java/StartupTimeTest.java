@@ -0,0 +1,44 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import io.github.btj.termios.Terminal;
+
+/**
+ * Measures the startup cost of the library: the first output call, which must not load the native library,
+ * and loading the native library, compared to reading and digesting the whole library as was done before
+ * the digest was computed at build time.
+ * Writes to standard output; run with standard output redirected, e.g. using <code>make test_startup</code>.
+ */
+public class StartupTimeTest {
+
+    static boolean nativeLibraryMapped() throws Exception {
+        Path maps = Path.of("/proc/self/maps");
+        if (!Files.exists(maps))
+            return false; // Cannot tell on this platform
+        return Files.readString(maps).contains("io_github_btj_termios");
+    }
+
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+        Terminal.printText(1, 1, "Hello");
+        long outputNanos = System.nanoTime() - start;
+        if (nativeLibraryMapped())
+            throw new AssertionError("The output methods loaded the native library");
+
+        start = System.nanoTime();
+        Class.forName("io.github.btj.termios.NativeLibrary");
+        long loadNanos = System.nanoTime() - start;
+
+        String libName = System.mapLibraryName("io_github_btj_termios");
+        start = System.nanoTime();
+        byte[] libBytes = StartupTimeTest.class.getClassLoader().getResourceAsStream(libName).readAllBytes();
+        java.security.MessageDigest.getInstance("MD5").digest(libBytes);
+        long digestNanos = System.nanoTime() - start;
+
+        System.err.printf("First printText (including class initialization): %.2f ms%n", outputNanos / 1e6);
+        System.err.printf("Native library load:                               %.2f ms%n", loadNanos / 1e6);
+        System.err.printf("Reading and digesting the library (no longer done): %.2f ms%n", digestNanos / 1e6);
+        System.err.println("StartupTimeTest passed");
+    }
+
+}
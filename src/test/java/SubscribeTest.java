@@ -0,0 +1,50 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.github.btj.termios.InputSubscription;
+import io.github.btj.termios.Terminal;
+
+/**
+ * Checks that a subscription delivers all bytes of standard input in order, in batches.
+ * Run with the output of <code>yes abc</code> piped into standard input, e.g. using <code>make test_subscribe</code>.
+ */
+public class SubscribeTest {
+
+    static final byte[] PATTERN = "abc\n".getBytes();
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+        long[] total = new long[1];
+        int[] batches = new int[1];
+        Thread[] dispatchThread = new Thread[1];
+        long start = System.nanoTime();
+        InputSubscription subscription = Terminal.subscribe(executor, bytes -> {
+            if (dispatchThread[0] == null)
+                dispatchThread[0] = Thread.currentThread();
+            else if (dispatchThread[0] != Thread.currentThread())
+                throw new AssertionError("Dispatched on an unexpected thread");
+            if (!bytes.hasRemaining()) {
+                done.countDown();
+                return;
+            }
+            batches[0]++;
+            while (bytes.hasRemaining()) {
+                if (bytes.get() != PATTERN[(int)(total[0] % PATTERN.length)])
+                    throw new AssertionError("Unexpected byte at offset " + total[0]);
+                total[0]++;
+            }
+        });
+        done.await();
+        long nanos = System.nanoTime() - start;
+        subscription.close();
+        executor.shutdown();
+        if (total[0] == 0)
+            throw new AssertionError("No input; pipe the output of yes abc into standard input");
+        System.out.printf("Received %d bytes in %d batches (%.1f bytes per batch) in %.1f ms%n", total[0], batches[0], (double)total[0] / batches[0], nanos / 1e6);
+        System.out.println("SubscribeTest passed");
+    }
+
+}
@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.github.btj.termios.Frame;
+import io.github.btj.termios.FrameScheduler;
+import io.github.btj.termios.Terminal;
+import io.github.btj.termios.TerminalSession;
+
+/**
+ * Checks that many sessions can be served from one JVM with a single poller thread, using named pipes as their terminals,
+ * that a session's frame does not block on the default session's frame, that a FrameScheduler can pace a session,
+ * that closing a session ends a blocked read on it, and that a session on a pseudo-terminal has its own
+ * raw input mode: it runs itself on a pseudo-terminal, where it opens a session on /dev/tty, enters raw input mode on it,
+ * and receives key presses without a Return, through a subscription and through a blocking read.
+ * Run using <code>make test_terminal_session</code>.
+ */
+public class TerminalSessionTest {
+
+    static final int SESSIONS = 200;
+    static final int MESSAGES = 20;
+    static final String POLLER_THREAD = "io.github.btj.termios.Session poller";
+
+    static void checkPipes() throws Exception {
+        Path directory = Files.createTempDirectory("TerminalSessionTest");
+        List<String> command = new ArrayList<>(List.of("mkfifo"));
+        for (int i = 0; i < SESSIONS; i++)
+            command.add(directory.resolve("pipe" + i).toString());
+        if (new ProcessBuilder(command).inheritIO().start().waitFor() != 0)
+            throw new AssertionError("mkfifo failed");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        TerminalSession[] sessions = new TerminalSession[SESSIONS];
+        StringBuilder[] received = new StringBuilder[SESSIONS];
+        CountDownLatch done = new CountDownLatch(SESSIONS);
+        // Each session's expected input: what is written to the pipe by another stream, and what the session writes itself,
+        // which it reads back since a named pipe opened for reading and writing is its own echo.
+        String[] expected = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            int session = i;
+            sessions[i] = TerminalSession.open(directory.resolve("pipe" + i).toString());
+            received[i] = new StringBuilder();
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < MESSAGES; j++)
+                text.append("session ").append(i).append(" message ").append(j).append('\n');
+            text.append("end\n");
+            expected[i] = text.toString();
+            sessions[i].subscribe(executor, bytes -> {
+                synchronized (received[session]) {
+                    received[session].append(StandardCharsets.UTF_8.decode(bytes));
+                    if (received[session].toString().endsWith("end\n"))
+                        done.countDown();
+                }
+            });
+        }
+
+        OutputStream[] writers = new OutputStream[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++)
+            writers[i] = Files.newOutputStream(directory.resolve("pipe" + i));
+        for (int j = 0; j < MESSAGES; j++)
+            for (int i = 0; i < SESSIONS; i++) {
+                byte[] message = ("session " + i + " message " + j + "\n").getBytes(StandardCharsets.UTF_8);
+                if (j % 2 == 0)
+                    writers[i].write(message);
+                else
+                    sessions[i].getOutputStream().write(message);
+            }
+        for (int i = 0; i < SESSIONS; i++)
+            writers[i].write("end\n".getBytes(StandardCharsets.UTF_8));
+
+        if (!done.await(10, TimeUnit.SECONDS))
+            throw new AssertionError(done.getCount() + " sessions did not receive all of their input");
+        for (int i = 0; i < SESSIONS; i++)
+            synchronized (received[i]) {
+                if (!received[i].toString().equals(expected[i]))
+                    throw new AssertionError("Session " + i + " received \"" + received[i] + "\"");
+            }
+        long pollers = Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals(POLLER_THREAD)).count();
+        if (pollers != 1)
+            throw new AssertionError(pollers + " poller threads for " + SESSIONS + " sessions");
+
+        try {
+            sessions[0].getSize();
+            throw new AssertionError("A named pipe has a size");
+        } catch (IOException e) {
+            // A named pipe is not a terminal.
+        }
+        try {
+            sessions[0].enterRawInputMode();
+            throw new AssertionError("A named pipe entered raw input mode");
+        } catch (IllegalStateException e) {
+            // A named pipe is not a terminal.
+        }
+
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions[i].close();
+            writers[i].close();
+        }
+        try {
+            sessions[0].getOutputStream().write('x');
+            throw new AssertionError("A closed session accepted output");
+        } catch (IOException e) {
+            // The session is closed.
+        }
+        executor.shutdown();
+
+        try (TerminalSession session = TerminalSession.open(directory.resolve("pipe0").toString())) {
+            try (Frame frame = Terminal.beginFrame()) {
+                Thread printer = new Thread(() -> session.printText(1, 1, "framed"));
+                printer.start();
+                printer.join(10_000);
+                if (printer.isAlive())
+                    throw new AssertionError("Printing on a session blocked while the default session's frame was open");
+            }
+            byte[] bytes = new byte[64];
+            int n = session.readBytes(bytes, 0, bytes.length, System.currentTimeMillis() + 10_000);
+            String text = new String(bytes, 0, Math.max(n, 0), StandardCharsets.UTF_8);
+            if (!text.endsWith("framed"))
+                throw new AssertionError("The session read back \"" + text + "\"");
+            try {
+                session.readByteNanos(10_000_000);
+                throw new AssertionError("A read without input did not time out");
+            } catch (TimeoutException e) {
+                // Nothing else was written.
+            }
+
+            FrameScheduler scheduler = new FrameScheduler(session, Runnable::run, 60, () -> {
+                session.printText(1, 1, "scheduled");
+                session.printText(2, 1, "frame");
+            });
+            scheduler.requestFrame();
+            scheduler.close();
+            // A named pipe returns the bytes of a small write with a single read.
+            n = session.readBytes(bytes, 0, bytes.length, System.currentTimeMillis() + 10_000);
+            text = new String(bytes, 0, Math.max(n, 0), StandardCharsets.UTF_8);
+            if (!text.startsWith("\033[?2026h") || !text.contains("scheduled") || !text.endsWith("frame\033[?2026l"))
+                throw new AssertionError("The scheduled frame was read back as \"" + text + "\"");
+        }
+
+        TerminalSession blocked = TerminalSession.open(directory.resolve("pipe1").toString());
+        CountDownLatch readFailed = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            try {
+                blocked.readByte();
+            } catch (IOException e) {
+                readFailed.countDown();
+            }
+        });
+        reader.start();
+        Thread.sleep(100);
+        blocked.close();
+        if (!readFailed.await(10, TimeUnit.SECONDS))
+            throw new AssertionError("Closing a session did not end a blocked read on it");
+        for (int i = 0; i < SESSIONS; i++)
+            Files.delete(directory.resolve("pipe" + i));
+        Files.delete(directory);
+    }
+
+    static void child() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch gotKey = new CountDownLatch(1);
+        try (TerminalSession session = TerminalSession.open("/dev/tty")) {
+            OutputStream out = session.getOutputStream();
+            var size = session.getSize();
+            session.enterRawInputMode();
+            var subscription = session.subscribe(executor, bytes -> {
+                try {
+                    out.write(("\033[2;1Hgot " + StandardCharsets.UTF_8.decode(bytes)).getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+                gotKey.countDown();
+            });
+            session.printText(1, 1, "ready " + size.height() + "x" + size.width());
+            if (!gotKey.await(10, TimeUnit.SECONDS))
+                throw new AssertionError("No key press was received");
+            subscription.close();
+            session.printText(3, 1, "reading");
+            int b = session.readByte(System.currentTimeMillis() + 10_000);
+            session.printText(4, 1, "read " + (char)b);
+        }
+        executor.shutdown();
+    }
+
+    static void checkPseudoTerminal() throws Exception {
+        List<String> command = PseudoTerminal.javaCommand("TerminalSessionTest");
+        command.add("child");
+        try (PseudoTerminal terminal = new PseudoTerminal(24, 80, command)) {
+            terminal.await(screen -> screen.row(0).startsWith("ready 24x80"), 10_000);
+            // Without raw input mode, the key would be echoed and not be delivered until Return is pressed.
+            terminal.type("x");
+            terminal.await(screen -> screen.row(1).startsWith("got x"), 10_000);
+            terminal.await(screen -> screen.row(2).startsWith("reading"), 10_000);
+            terminal.type("y");
+            terminal.await(screen -> screen.row(3).startsWith("read y"), 10_000);
+            int status = terminal.waitFor();
+            if (status != 0)
+                throw new AssertionError("The child exited with status " + status);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            child();
+            return;
+        }
+        checkPipes();
+        checkPseudoTerminal();
+        System.out.println("TerminalSessionTest passed");
+    }
+
+}
@@ -0,0 +1,24 @@
+import java.io.IOException;
+import io.github.btj.termios.Terminal;
+
+public class TerminalSizeTest {
+
+    public static void main(String[] args) throws IOException {
+        Terminal.enterRawInputMode();
+        try {
+            System.out.println("The terminal size is " + Terminal.getSize());
+            System.out.println("Resize the terminal window to see the new size, or enter q to quit.");
+            Terminal.addResizeListener(() -> {
+                try {
+                    System.out.println("The terminal was resized to " + Terminal.getSize());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            while (Terminal.readByte() != 'q') {}
+        } finally {
+            Terminal.leaveRawInputMode();
+        }
+    }
+
+}
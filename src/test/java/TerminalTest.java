@@ -2,6 +2,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.concurrent.TimeoutException;
 
+import io.github.btj.termios.Frame;
 import io.github.btj.termios.Terminal;
 
 class TerminalParser {
@@ -84,8 +85,10 @@ class ScreenBuffer {
     }
 
     void flush() {
-        for (int i = 0; i < height; i++)
-            Terminal.printText(1 + i, 1, String.valueOf(buffer, i * width, width));
+        try (Frame frame = Terminal.beginFrame()) {
+            for (int i = 0; i < height; i++)
+                frame.printText(1 + i, 1, String.valueOf(buffer, i * width, width));
+        }
     }
 }
 
@@ -0,0 +1,271 @@
+import java.io.OutputStream;
+
+import io.github.btj.termios.Style;
+import io.github.btj.termios.Terminal;
+
+/**
+ * A minimal terminal emulator that interprets the output of the library,
+ * so that tests can check what a real terminal would show.
+ * Throws an AssertionError on any byte sequence it does not understand.
+ */
+class VirtualTerminal extends OutputStream {
+
+    final int height, width;
+    /** The code point in each cell; 0 in the second cell of a wide character. */
+    final int[] cells;
+    /** The style of each cell, as a {@link Style} value. */
+    final long[] styles;
+    /** The current graphic rendition, set by SGR sequences. */
+    long style = Style.DEFAULT;
+    int row, column;
+    /** True if the last character was written to the last column, so that the next one wraps. */
+    boolean wrapPending;
+    /** The rows of the scroll region (0-based, inclusive), set by DECSTBM. */
+    int scrollTop, scrollBottom;
+    long bytesReceived;
+    /**
+     * If not null, receives the replies to reports requested by the program, such as the text area size,
+     * which a real terminal sends to standard input.
+     */
+    OutputStream replies;
+
+    private int state; // 0: ground, 1: after ESC, 2: in CSI
+    private final StringBuilder sequence = new StringBuilder();
+    /** The code point being decoded from UTF-8, and the number of continuation bytes still expected. */
+    private int codePoint, pendingBytes;
+
+    VirtualTerminal(int height, int width) {
+        this.height = height;
+        this.width = width;
+        cells = new int[height * width];
+        java.util.Arrays.fill(cells, ' ');
+        styles = new long[height * width];
+        scrollBottom = height - 1;
+    }
+
+    /** Returns the text shown on the given row; a wide character counts once. */
+    String row(int row) {
+        StringBuilder text = new StringBuilder();
+        for (int column = 0; column < width; column++)
+            if (cells[row * width + column] != 0)
+                text.appendCodePoint(cells[row * width + column]);
+        return text.toString();
+    }
+
+    /**
+     * Moves rows top to bottom (inclusive) up by the given number of rows, or down if it is negative,
+     * and erases the rows scrolled in to the current background colour, as real terminals do.
+     */
+    private void scroll(int top, int bottom, int lines) {
+        int count = Math.min(Math.abs(lines), bottom - top + 1);
+        int moved = bottom - top + 1 - count;
+        int blankFrom = lines > 0 ? bottom - count + 1 : top;
+        int source = lines > 0 ? top + count : top, target = lines > 0 ? top : top + count;
+        System.arraycopy(cells, source * width, cells, target * width, moved * width);
+        System.arraycopy(styles, source * width, styles, target * width, moved * width);
+        java.util.Arrays.fill(cells, blankFrom * width, (blankFrom + count) * width, ' ');
+        java.util.Arrays.fill(styles, blankFrom * width, (blankFrom + count) * width, Style.of(Style.DEFAULT_COLOR, Style.getBackground(style), 0));
+    }
+
+    /** If the given cell holds half of a wide character, blanks the other half, as real terminals do when it is overwritten. */
+    private void breakWideCharacter(int index) {
+        int column = index % width;
+        if (cells[index] == 0 && column > 0)
+            cells[index - 1] = ' ';
+        else if (column < width - 1 && cells[index + 1] == 0)
+            cells[index + 1] = ' ';
+    }
+
+    private void print(int codePoint) {
+        int columns = Terminal.getColumnWidth(codePoint);
+        if (columns < 0)
+            throw new AssertionError("Unexpected code point " + codePoint);
+        if (columns == 0)
+            return; // Combining characters are not stored.
+        if (wrapPending || column + columns > width) {
+            if (row == height - 1)
+                throw new AssertionError("The terminal scrolled");
+            row++;
+            column = 0;
+            wrapPending = false;
+        }
+        int index = row * width + column;
+        breakWideCharacter(index);
+        cells[index] = codePoint;
+        styles[index] = style;
+        if (columns == 2) {
+            breakWideCharacter(index + 1);
+            cells[index + 1] = 0;
+            styles[index + 1] = style;
+        }
+        if (column + columns == width)
+            wrapPending = true;
+        else
+            column += columns;
+    }
+
+    @Override
+    public void write(int b) {
+        bytesReceived++;
+        b &= 0xff;
+        if (pendingBytes > 0) {
+            if ((b & 0xC0) != 0x80)
+                throw new AssertionError("Invalid UTF-8 continuation byte " + b);
+            codePoint = codePoint << 6 | b & 0x3F;
+            if (--pendingBytes == 0)
+                print(codePoint);
+            return;
+        }
+        switch (state) {
+            case 0 -> {
+                if (b == 033)
+                    state = 1;
+                else if (b == '\r') {
+                    column = 0;
+                    wrapPending = false;
+                } else if (b == '\n') {
+                    if (row == height - 1)
+                        throw new AssertionError("The terminal scrolled");
+                    row++;
+                    wrapPending = false;
+                } else if (b == '\b') {
+                    if (column > 0)
+                        column--;
+                    wrapPending = false;
+                } else if (32 <= b && b <= 126) {
+                    print(b);
+                } else if (0xC2 <= b && b <= 0xF4) {
+                    pendingBytes = b < 0xE0 ? 1 : b < 0xF0 ? 2 : 3;
+                    codePoint = b & (0x3F >> pendingBytes);
+                } else
+                    throw new AssertionError("Unexpected byte " + b);
+            }
+            case 1 -> {
+                if (b != '[')
+                    throw new AssertionError("Unexpected escape sequence ESC " + (char)b);
+                sequence.setLength(0);
+                state = 2;
+            }
+            case 2 -> {
+                if (0x40 <= b && b <= 0x7e) {
+                    state = 0;
+                    csi(sequence.toString(), (char)b);
+                } else
+                    sequence.append((char)b);
+            }
+        }
+    }
+
+    private int[] params(String text, int defaultValue, int count) {
+        String[] parts = text.isEmpty() ? new String[0] : text.split(";", -1);
+        int[] result = new int[Math.max(count, parts.length)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = i < parts.length && !parts[i].isEmpty() ? Integer.parseInt(parts[i]) : defaultValue;
+        return result;
+    }
+
+    private void csi(String params, char finalByte) {
+        wrapPending = false;
+        int[] p = params(params, 1, 2);
+        switch (finalByte) {
+            case 'H' -> {
+                row = Math.min(p[0], height) - 1;
+                column = Math.min(p[1], width) - 1;
+            }
+            case 'A' -> row = Math.max(0, row - p[0]);
+            case 'B' -> row = Math.min(height - 1, row + p[0]);
+            case 'C' -> column = Math.min(width - 1, column + p[0]);
+            case 'D' -> column = Math.max(0, column - p[0]);
+            case 'G' -> column = Math.min(p[0], width) - 1;
+            case 'J' -> {
+                int mode = params(params, 0, 1)[0];
+                if (mode == 2) {
+                    java.util.Arrays.fill(cells, ' ');
+                    // Like most terminals, erase to the current background colour.
+                    java.util.Arrays.fill(styles, Style.of(Style.DEFAULT_COLOR, Style.getBackground(style), 0));
+                }
+                else if (mode != 3)
+                    throw new AssertionError("Unsupported erase mode " + mode);
+            }
+            case 'r' -> {
+                int[] margins = params(params, 0, 2);
+                scrollTop = margins[0] == 0 ? 0 : margins[0] - 1;
+                scrollBottom = margins[1] == 0 ? height - 1 : Math.min(margins[1], height) - 1;
+                if (scrollTop >= scrollBottom)
+                    throw new AssertionError("Invalid scroll region CSI " + params + "r");
+                row = column = 0;
+            }
+            case 'S' -> scroll(scrollTop, scrollBottom, p[0]);
+            case 'T' -> scroll(scrollTop, scrollBottom, -p[0]);
+            case 'L', 'M' -> {
+                if (row < scrollTop || scrollBottom < row)
+                    throw new AssertionError("Insert or delete line outside the scroll region");
+                scroll(row, scrollBottom, finalByte == 'M' ? p[0] : -p[0]);
+                column = 0;
+            }
+            case 'm' -> sgr(params(params, 0, 1));
+            case 't' -> {
+                if (!params.equals("18") || replies == null)
+                    throw new AssertionError("Unsupported control sequence CSI " + params + finalByte);
+                try {
+                    replies.write(("\033[8;" + height + ";" + width + "t").getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+                    replies.flush();
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            }
+            default -> throw new AssertionError("Unsupported control sequence CSI " + params + finalByte);
+        }
+    }
+
+    private void sgr(int[] p) {
+        int foreground = Style.getForeground(style), background = Style.getBackground(style), attributes = Style.getAttributes(style);
+        for (int i = 0; i < p.length; i++) {
+            int code = p[i];
+            switch (code) {
+                case 0 -> {
+                    foreground = background = Style.DEFAULT_COLOR;
+                    attributes = 0;
+                }
+                case 1 -> attributes |= Style.BOLD;
+                case 2 -> attributes |= Style.DIM;
+                case 3 -> attributes |= Style.ITALIC;
+                case 4 -> attributes |= Style.UNDERLINE;
+                case 5 -> attributes |= Style.BLINK;
+                case 7 -> attributes |= Style.INVERSE;
+                case 9 -> attributes |= Style.STRIKETHROUGH;
+                case 22 -> attributes &= ~(Style.BOLD | Style.DIM);
+                case 23 -> attributes &= ~Style.ITALIC;
+                case 24 -> attributes &= ~Style.UNDERLINE;
+                case 25 -> attributes &= ~Style.BLINK;
+                case 27 -> attributes &= ~Style.INVERSE;
+                case 29 -> attributes &= ~Style.STRIKETHROUGH;
+                case 39 -> foreground = Style.DEFAULT_COLOR;
+                case 49 -> background = Style.DEFAULT_COLOR;
+                case 38, 48 -> {
+                    if (i + 2 >= p.length || p[i + 1] != 5)
+                        throw new AssertionError("Unsupported colour specification in SGR " + code);
+                    if (code == 38)
+                        foreground = p[i + 2];
+                    else
+                        background = p[i + 2];
+                    i += 2;
+                }
+                default -> {
+                    if (30 <= code && code <= 37)
+                        foreground = code - 30;
+                    else if (40 <= code && code <= 47)
+                        background = code - 40;
+                    else if (90 <= code && code <= 97)
+                        foreground = code - 90 + Style.BRIGHT;
+                    else if (100 <= code && code <= 107)
+                        background = code - 100 + Style.BRIGHT;
+                    else
+                        throw new AssertionError("Unsupported SGR parameter " + code);
+                }
+            }
+        }
+        style = Style.of(foreground, background, attributes);
+    }
+
+}